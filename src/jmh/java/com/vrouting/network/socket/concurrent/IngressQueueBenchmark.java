@@ -0,0 +1,94 @@
+package com.vrouting.network.socket.concurrent;
+
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageType;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingress hand-off from three producer threads to one consumer, comparing the
+ * {@link LinkedBlockingQueue} the handler used to poll, a lock-based bounded queue and
+ * {@link MpscRingBuffer}. Producers and the consumer never block; the {@code offered}
+ * and {@code polled} counters report successful transfers per microsecond.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IngressQueueBenchmark {
+    private static final int CAPACITY = 1024;
+
+    @Param({"LinkedBlockingQueue", "ArrayBlockingQueue", "MpscRingBuffer"})
+    public String queueType;
+
+    private Queue<Message> queue;
+    private MpscRingBuffer<Message> ring;
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        message = new Message("node-a", "node-b", MessageType.DATA);
+        if ("LinkedBlockingQueue".equals(queueType)) {
+            queue = new LinkedBlockingQueue<>(CAPACITY);
+        } else if ("ArrayBlockingQueue".equals(queueType)) {
+            queue = new ArrayBlockingQueue<>(CAPACITY);
+        } else {
+            ring = new MpscRingBuffer<>(CAPACITY);
+        }
+    }
+
+    /**
+     * Counts only successful hand-offs, so fast failures on a full or empty queue do not
+     * inflate the score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Transfers {
+        public long offered;
+        public long polled;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            offered = 0;
+            polled = 0;
+        }
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(3)
+    public void offer(Transfers transfers) {
+        if (ring != null ? ring.offer(message) : queue.offer(message)) {
+            transfers.offered++;
+        }
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public void poll(Transfers transfers) {
+        if ((ring != null ? ring.poll() : queue.poll()) != null) {
+            transfers.polled++;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.vrouting.network.socket.core;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transmissions under plain flooding, MPR flooding and gossip with the default
+ * probability and one anti-entropy round, on the networks of
+ * {@link BroadcastSimulation}, broadcasting from each node in turn. The score is
+ * simulated broadcasts per millisecond; the {@code transmissions}, {@code copies},
+ * {@code overhead} and {@code missed} counters are rates in the same unit, so dividing one by the score
+ * gives its value per broadcast.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BroadcastBenchmark {
+
+    @Param({"50", "200"})
+    public int nodes;
+
+    @Param({"8", "24"})
+    public double degree;
+
+    private BroadcastSimulation network;
+    private final Random random = new Random(42);
+    private int source;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        network = BroadcastSimulation.randomGeometric(nodes, degree, 42);
+    }
+
+    /**
+     * Totals over an iteration, reported by JMH as rates.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long transmissions;
+        public long copies;
+        public long overhead;
+        public long missed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            transmissions = 0;
+            copies = 0;
+            overhead = 0;
+            missed = 0;
+        }
+
+        void record(BroadcastSimulation.Result result, int size) {
+            transmissions += result.getTransmissions();
+            copies += result.getCopies();
+            overhead += result.getOverhead();
+            missed += size - result.getReached();
+        }
+    }
+
+    @Benchmark
+    public BroadcastSimulation.Result flood(Counters counters) {
+        BroadcastSimulation.Result result = network.flood(nextSource());
+        counters.record(result, nodes);
+        return result;
+    }
+
+    @Benchmark
+    public BroadcastSimulation.Result mpr(Counters counters) {
+        BroadcastSimulation.Result result = network.mpr(nextSource());
+        counters.record(result, nodes);
+        return result;
+    }
+
+    @Benchmark
+    public BroadcastSimulation.Result gossip(Counters counters) {
+        BroadcastSimulation.Result result = network.gossip(nextSource(), 0.65, 0, false, 1, random);
+        counters.record(result, nodes);
+        return result;
+    }
+
+    private int nextSource() {
+        source = (source + 1) % nodes;
+        return source;
+    }
+}
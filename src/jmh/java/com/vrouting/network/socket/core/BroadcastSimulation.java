@@ -0,0 +1,344 @@
+package com.vrouting.network.socket.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Round-based simulation of one broadcast over a random geometric network: nodes are
+ * placed uniformly in a unit square and linked when closer than a radius, as radios
+ * in range would be. A transmission reaches every neighbor of the sender at once.
+ *
+ * <p>Counts, per broadcast, the nodes that transmit, the per-neighbor copies the
+ * dispatcher would send, and how many nodes were reached. Run {@link #main} for a table
+ * comparing the modes across network sizes and densities, followed by the delivery
+ * against overhead curves of gossip.
+ */
+public final class BroadcastSimulation {
+    private final int[][] adjacency;
+    private final int[][] relays;
+
+    private BroadcastSimulation(int[][] adjacency) {
+        this.adjacency = adjacency;
+        this.relays = new int[adjacency.length][];
+        for (int node = 0; node < adjacency.length; node++) {
+            relays[node] = MprSelector.select(node, adjacency[node], neighbor -> adjacency[neighbor]);
+        }
+    }
+
+    /**
+     * Builds a connected random geometric network, redrawing until it is connected.
+     *
+     * @param degree the expected number of neighbors per node, which sets the radius
+     */
+    public static BroadcastSimulation randomGeometric(int nodes, double degree, long seed) {
+        Random random = new Random(seed);
+        double radius = Math.sqrt(degree / (Math.PI * (nodes - 1)));
+        while (true) {
+            double[] x = new double[nodes];
+            double[] y = new double[nodes];
+            for (int i = 0; i < nodes; i++) {
+                x[i] = random.nextDouble();
+                y[i] = random.nextDouble();
+            }
+            List<List<Integer>> lists = new ArrayList<>();
+            for (int i = 0; i < nodes; i++) {
+                lists.add(new ArrayList<>());
+            }
+            for (int i = 0; i < nodes; i++) {
+                for (int j = i + 1; j < nodes; j++) {
+                    double dx = x[i] - x[j];
+                    double dy = y[i] - y[j];
+                    if (dx * dx + dy * dy < radius * radius) {
+                        lists.get(i).add(j);
+                        lists.get(j).add(i);
+                    }
+                }
+            }
+            int[][] adjacency = new int[nodes][];
+            for (int i = 0; i < nodes; i++) {
+                adjacency[i] = lists.get(i).stream().mapToInt(Integer::intValue).toArray();
+            }
+            if (isConnected(adjacency)) {
+                return new BroadcastSimulation(adjacency);
+            }
+        }
+    }
+
+    public int size() {
+        return adjacency.length;
+    }
+
+    public double meanDegree() {
+        long total = 0;
+        for (int[] row : adjacency) {
+            total += row.length;
+        }
+        return (double) total / adjacency.length;
+    }
+
+    /**
+     * Every node re-broadcasts the first copy it receives to all neighbors except the
+     * one it came from.
+     */
+    public Result flood(int source) {
+        return run(source, (node, from) -> true, false);
+    }
+
+    /**
+     * Only nodes chosen as a relay by the neighbor they received a copy from
+     * re-broadcast; a relay that first hears the broadcast from a neighbor that did not
+     * choose it still re-broadcasts on a later copy from one that did. Each node
+     * transmits at most once, as {@link MessageDispatcher} does by keying broadcasts on
+     * their origin's {@link GossipProtocol#BROADCAST_ID}.
+     */
+    public Result mpr(int source) {
+        return run(source, (node, from) -> Arrays.binarySearch(relays[from], node) >= 0, true);
+    }
+
+    /**
+     * Gossip: the source sends to its peers, and every other node forwards its first
+     * copy with the given probability, to at most {@code fanout} random peers when
+     * fanout is positive. Adaptive nodes scale the probability by
+     * {@link GossipProtocol#REFERENCE_DEGREE} over their degree. After the broadcast
+     * dies out, each anti-entropy round has every node that holds it send a digest to
+     * one random neighbor; a neighbor that lacks it requests it, receives it and
+     * gossips it onward. Digests, requests and repairs count as {@code overhead}.
+     */
+    public Result gossip(int source, double probability, int fanout, boolean adaptive, int repairRounds,
+                         Random random) {
+        int n = adjacency.length;
+        boolean[] reached = new boolean[n];
+        Result result = new Result();
+        ArrayDeque<int[]> deliveries = new ArrayDeque<>();
+        reached[source] = true;
+        result.reached = 1;
+        gossipTransmit(source, -1, fanout, random, result, deliveries);
+        spread(deliveries, reached, probability, fanout, adaptive, random, result);
+        for (int round = 0; round < repairRounds; round++) {
+            boolean[] holders = reached.clone();
+            for (int node = 0; node < n; node++) {
+                if (!holders[node] || adjacency[node].length == 0) {
+                    continue;
+                }
+                int peer = adjacency[node][random.nextInt(adjacency[node].length)];
+                result.overhead++;
+                if (!reached[peer]) {
+                    result.overhead += 2;
+                    reached[peer] = true;
+                    result.reached++;
+                    if (random.nextDouble() < forwardProbability(peer, probability, adaptive)) {
+                        gossipTransmit(peer, node, fanout, random, result, deliveries);
+                    }
+                }
+            }
+            spread(deliveries, reached, probability, fanout, adaptive, random, result);
+        }
+        return result;
+    }
+
+    private void spread(ArrayDeque<int[]> deliveries, boolean[] reached, double probability, int fanout,
+                        boolean adaptive, Random random, Result result) {
+        while (!deliveries.isEmpty()) {
+            int[] delivery = deliveries.poll();
+            int node = delivery[0];
+            if (reached[node]) {
+                continue;
+            }
+            reached[node] = true;
+            result.reached++;
+            if (random.nextDouble() < forwardProbability(node, probability, adaptive)) {
+                gossipTransmit(node, delivery[1], fanout, random, result, deliveries);
+            }
+        }
+    }
+
+    private double forwardProbability(int node, double probability, boolean adaptive) {
+        if (!adaptive) {
+            return probability;
+        }
+        return Math.min(1.0, probability * GossipProtocol.REFERENCE_DEGREE / Math.max(1, adjacency[node].length));
+    }
+
+    private void gossipTransmit(int node, int from, int fanout, Random random, Result result,
+                                ArrayDeque<int[]> deliveries) {
+        int[] candidates = new int[adjacency[node].length];
+        int count = 0;
+        for (int neighbor : adjacency[node]) {
+            if (neighbor != from) {
+                candidates[count++] = neighbor;
+            }
+        }
+        int targets = fanout > 0 ? Math.min(fanout, count) : count;
+        result.transmissions++;
+        for (int i = 0; i < targets; i++) {
+            int j = i + random.nextInt(count - i);
+            int target = candidates[j];
+            candidates[j] = candidates[i];
+            candidates[i] = target;
+            result.copies++;
+            deliveries.add(new int[] {target, node});
+        }
+    }
+
+    /**
+     * Runs one broadcast. Each round delivers the transmissions of the previous one.
+     *
+     * @param relayOnLaterCopy whether a node that declined to relay its first copy may
+     *        relay a later one
+     */
+    Result run(int source, RelayRule rule, boolean relayOnLaterCopy) {
+        int n = adjacency.length;
+        boolean[] reached = new boolean[n];
+        boolean[] transmitted = new boolean[n];
+        Result result = new Result();
+        ArrayDeque<int[]> round = new ArrayDeque<>();
+        reached[source] = true;
+        result.reached = 1;
+        transmit(source, -1, transmitted, result, round);
+        while (!round.isEmpty()) {
+            ArrayDeque<int[]> next = new ArrayDeque<>();
+            for (int[] delivery : round) {
+                int node = delivery[0];
+                int from = delivery[1];
+                boolean first = !reached[node];
+                if (first) {
+                    reached[node] = true;
+                    result.reached++;
+                }
+                if (!transmitted[node] && (first || relayOnLaterCopy) && rule.relays(node, from)) {
+                    transmit(node, from, transmitted, result, next);
+                }
+            }
+            round = next;
+        }
+        return result;
+    }
+
+    private void transmit(int node, int from, boolean[] transmitted, Result result, ArrayDeque<int[]> deliveries) {
+        transmitted[node] = true;
+        result.transmissions++;
+        for (int neighbor : adjacency[node]) {
+            if (neighbor != from) {
+                result.copies++;
+                deliveries.add(new int[] {neighbor, node});
+            }
+        }
+    }
+
+    private static boolean isConnected(int[][] adjacency) {
+        boolean[] seen = new boolean[adjacency.length];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        seen[0] = true;
+        int count = 1;
+        while (!queue.isEmpty()) {
+            for (int neighbor : adjacency[queue.poll()]) {
+                if (!seen[neighbor]) {
+                    seen[neighbor] = true;
+                    count++;
+                    queue.add(neighbor);
+                }
+            }
+        }
+        return count == adjacency.length;
+    }
+
+    interface RelayRule {
+        boolean relays(int node, int from);
+    }
+
+    /**
+     * Outcome of one broadcast.
+     */
+    public static final class Result {
+        int transmissions;
+        int copies;
+        int reached;
+        int overhead;
+
+        public int getTransmissions() {
+            return transmissions;
+        }
+
+        public int getCopies() {
+            return copies;
+        }
+
+        public int getReached() {
+            return reached;
+        }
+
+        /**
+         * Gets the anti-entropy messages sent: digests, requests and repairs.
+         */
+        public int getOverhead() {
+            return overhead;
+        }
+    }
+
+    public static void main(String[] args) {
+        int trials = 20;
+        System.out.printf("%6s %7s %8s | %10s %10s | %10s %10s %8s%n",
+            "nodes", "degree", "mode", "tx", "copies", "tx saved", "copies", "reach");
+        for (int nodes : new int[] {50, 200, 500}) {
+            for (double degree : new double[] {6, 12, 24}) {
+                double floodTx = 0, floodCopies = 0, mprTx = 0, mprCopies = 0, mprReach = 0;
+                for (int trial = 0; trial < trials; trial++) {
+                    BroadcastSimulation network = randomGeometric(nodes, degree, trial);
+                    Result flood = network.flood(0);
+                    Result mpr = network.mpr(0);
+                    floodTx += flood.transmissions;
+                    floodCopies += flood.copies;
+                    mprTx += mpr.transmissions;
+                    mprCopies += mpr.copies;
+                    mprReach += (double) mpr.reached / nodes;
+                }
+                System.out.printf("%6d %7.0f %8s | %10.1f %10.1f |%n", nodes, degree, "flood",
+                    floodTx / trials, floodCopies / trials);
+                System.out.printf("%6d %7.0f %8s | %10.1f %10.1f | %9.1f%% %9.1f%% %7.1f%%%n", nodes, degree, "mpr",
+                    mprTx / trials, mprCopies / trials, 100 * (1 - mprTx / floodTx),
+                    100 * (1 - mprCopies / floodCopies), 100 * mprReach / trials);
+            }
+        }
+        gossipCurves(trials);
+    }
+
+    /**
+     * Prints, for gossip on 200 nodes, the mean delivery ratio, the share of runs that
+     * reached every node, and the messages sent relative to flooding, over probability,
+     * density and repair rounds.
+     */
+    private static void gossipCurves(int trials) {
+        int nodes = 200;
+        System.out.println();
+        System.out.printf("%7s %8s %5s %7s | %8s %8s %8s %8s%n",
+            "degree", "mode", "p", "repair", "reach", "all", "copies", "msgs");
+        for (double degree : new double[] {6, 12, 24}) {
+            for (boolean adaptive : new boolean[] {false, true}) {
+                for (double p : new double[] {0.3, 0.5, 0.65, 0.8, 1.0}) {
+                    for (int repair : new int[] {0, 1, 2}) {
+                        double reach = 0, copies = 0, messages = 0, floodCopies = 0;
+                        int complete = 0;
+                        for (int trial = 0; trial < trials; trial++) {
+                            BroadcastSimulation network = randomGeometric(nodes, degree, trial);
+                            Result gossip = network.gossip(0, p, 0, adaptive, repair, new Random(trial));
+                            floodCopies += network.flood(0).copies;
+                            reach += (double) gossip.reached / nodes;
+                            copies += gossip.copies;
+                            messages += gossip.copies + gossip.overhead;
+                            if (gossip.reached == nodes) {
+                                complete++;
+                            }
+                        }
+                        System.out.printf("%7.0f %8s %5.2f %7d | %7.1f%% %7.0f%% %7.0f%% %7.0f%%%n", degree,
+                            adaptive ? "adaptive" : "fixed", p, repair, 100 * reach / trials,
+                            100.0 * complete / trials, 100 * copies / floodCopies, 100 * messages / floodCopies);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.vrouting.network.socket.core;
+
+import com.vrouting.network.socket.core.RoutingManager.Route;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Next-hop lookups per microsecond for {@code destinations} destinations with
+ * {@code routes} candidate routes each: {@code scored} picks the best candidate at
+ * lookup time, as {@link RoutingManager} did before it kept a {@link ForwardingTable};
+ * {@code forwardingTable} reads a table built from the same candidates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NextHopBenchmark {
+
+    @Param({"100", "10000"})
+    public int destinations;
+
+    @Param({"1", "4"})
+    public int routes;
+
+    private ForwardingTable table;
+    private NodeIdMap<Set<Route>> candidates;
+    private int[] lookups;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ForwardingTable.Builder builder = new ForwardingTable.Builder(destinations);
+        candidates = new NodeIdMap<>();
+        NodeIdRegistry ids = NodeIdRegistry.global();
+        Random random = new Random(42);
+        lookups = new int[destinations];
+        for (int d = 0; d < destinations; d++) {
+            String destination = "bench-dest-" + d;
+            lookups[d] = ids.intern(destination);
+            Set<Route> set = new HashSet<>();
+            for (int r = 0; r < routes; r++) {
+                Route route = new Route(destination, Arrays.asList("bench-hop-" + random.nextInt(32)));
+                route.setHopCount(1 + random.nextInt(6));
+                route.setLatency(random.nextInt(200));
+                route.setBandwidth(random.nextDouble());
+                route.setStability(random.nextDouble());
+                set.add(route);
+            }
+            candidates.put(lookups[d], set);
+            Route best = best(set);
+            builder.put(lookups[d], ids.intern(best.getNextHop()), best.getNextHop(), best);
+        }
+        table = builder.build();
+    }
+
+    @Benchmark
+    public String scored() {
+        Route best = best(candidates.get(nextDestination()));
+        return best != null ? best.getNextHop() : null;
+    }
+
+    @Benchmark
+    public String forwardingTable() {
+        return table.getNextHopName(nextDestination());
+    }
+
+    private static Route best(Set<Route> set) {
+        return set.stream()
+            .max(Comparator.comparingDouble(NextHopBenchmark::score))
+            .orElse(null);
+    }
+
+    private int nextDestination() {
+        next = next + 1 == lookups.length ? 0 : next + 1;
+        return lookups[next];
+    }
+
+    private static double score(Route route) {
+        return 0.3 / (1.0 + route.getLatency()) + 0.2 * route.getBandwidth()
+            + 0.2 / route.getHopCount() + 0.3 * route.getStability();
+    }
+}
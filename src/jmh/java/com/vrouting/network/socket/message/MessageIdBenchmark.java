@@ -0,0 +1,42 @@
+package com.vrouting.network.socket.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message creation throughput with four threads, comparing the {@code UUID.randomUUID()}
+ * string ids messages used to carry with {@link MessageId}. Run with
+ * {@code -PjmhArgs="-t 1"} or other thread counts to see how each scales.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class MessageIdBenchmark {
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public MessageId messageId() {
+        return MessageId.next();
+    }
+
+    @Benchmark
+    public Message createMessage() {
+        return new Message("node-a", "node-b", MessageType.DATA);
+    }
+}
@@ -0,0 +1,37 @@
+package com.vrouting.network.socket.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the executors used by the node's subsystems, so the threading model can be
+ * chosen once in {@link com.vrouting.network.socket.config.NetworkConfig} instead of
+ * being hard-coded in every component.
+ *
+ * <p>Names passed in are used as thread name prefixes. Callers own the returned
+ * executors and shut them down themselves.
+ */
+public interface ExecutorProvider {
+
+    /**
+     * Executor for long-running blocking work such as connection handlers. Pooling
+     * implementations run at most {@code maxThreads} tasks at once; others may ignore it.
+     */
+    ExecutorService newBlockingExecutor(String name, int maxThreads);
+
+    /**
+     * Executor that runs tasks one at a time in submission order.
+     */
+    ExecutorService newSerialExecutor(String name);
+
+    /**
+     * Scheduler for periodic housekeeping and timeouts.
+     */
+    ScheduledExecutorService newScheduler(String name, int threads);
+
+    /**
+     * Thread factory for components that manage their own threads.
+     */
+    ThreadFactory newThreadFactory(String name);
+}
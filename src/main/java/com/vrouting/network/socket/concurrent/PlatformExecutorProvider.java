@@ -0,0 +1,35 @@
+package com.vrouting.network.socket.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Default provider backed by ordinary platform threads: fixed pools for blocking work
+ * and single-threaded schedulers, as the subsystems used before the provider existed.
+ */
+public class PlatformExecutorProvider implements ExecutorProvider {
+
+    @Override
+    public ExecutorService newBlockingExecutor(String name, int maxThreads) {
+        return Executors.newFixedThreadPool(Math.max(1, maxThreads), newThreadFactory(name));
+    }
+
+    @Override
+    public ExecutorService newSerialExecutor(String name) {
+        return Executors.newSingleThreadExecutor(newThreadFactory(name));
+    }
+
+    @Override
+    public ScheduledExecutorService newScheduler(String name, int threads) {
+        return Executors.newScheduledThreadPool(Math.max(1, threads), newThreadFactory(name));
+    }
+
+    @Override
+    public ThreadFactory newThreadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger(0);
+        return runnable -> new Thread(runnable, name + "-" + counter.getAndIncrement());
+    }
+}
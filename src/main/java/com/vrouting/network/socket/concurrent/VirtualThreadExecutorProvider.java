@@ -0,0 +1,119 @@
+package com.vrouting.network.socket.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Provider that runs blocking and serial work on JDK 21+ virtual threads, so blocking
+ * socket handlers cost a few kilobytes each instead of a platform thread and the
+ * connection limit is no longer bounded by a pool size.
+ *
+ * <p>The project compiles for Java 8, so the virtual thread API is looked up
+ * reflectively; check {@link #isSupported()} before constructing one. Schedulers stay
+ * on platform threads since they only dispatch short housekeeping tasks.
+ */
+public class VirtualThreadExecutorProvider implements ExecutorProvider {
+    private static final Method OF_VIRTUAL = lookup(Thread.class, "ofVirtual");
+    private static final Method BUILDER_NAME = lookup(builderClass(), "name", String.class, long.class);
+    private static final Method BUILDER_FACTORY = lookup(builderClass(), "factory");
+    private static final Method THREAD_PER_TASK =
+        lookup(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+    private static final boolean SUPPORTED = probe();
+
+    private final PlatformExecutorProvider platform = new PlatformExecutorProvider();
+
+    /**
+     * @throws UnsupportedOperationException if the running JVM has no virtual threads
+     */
+    public VirtualThreadExecutorProvider() {
+        if (!SUPPORTED) {
+            throw new UnsupportedOperationException(
+                "Virtual threads require Java 21+, running " + System.getProperty("java.version"));
+        }
+    }
+
+    /**
+     * Checks whether the running JVM supports virtual threads.
+     */
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    /**
+     * Returns a virtual thread provider when supported, otherwise the platform one.
+     */
+    public static ExecutorProvider orPlatform() {
+        return SUPPORTED ? new VirtualThreadExecutorProvider() : new PlatformExecutorProvider();
+    }
+
+    /**
+     * Starts one virtual thread per task; {@code maxThreads} is ignored.
+     */
+    @Override
+    public ExecutorService newBlockingExecutor(String name, int maxThreads) {
+        return (ExecutorService) invoke(THREAD_PER_TASK, null, newThreadFactory(name));
+    }
+
+    @Override
+    public ExecutorService newSerialExecutor(String name) {
+        return Executors.newSingleThreadExecutor(newThreadFactory(name));
+    }
+
+    @Override
+    public ScheduledExecutorService newScheduler(String name, int threads) {
+        return platform.newScheduler(name, threads);
+    }
+
+    @Override
+    public ThreadFactory newThreadFactory(String name) {
+        Object builder = invoke(OF_VIRTUAL, null);
+        builder = invoke(BUILDER_NAME, builder, name + "-", 0L);
+        return (ThreadFactory) invoke(BUILDER_FACTORY, builder);
+    }
+
+    private static boolean probe() {
+        if (OF_VIRTUAL == null || BUILDER_NAME == null || BUILDER_FACTORY == null || THREAD_PER_TASK == null) {
+            return false;
+        }
+        try {
+            // Preview builds (JDK 19/20) expose the API but refuse it without --enable-preview
+            OF_VIRTUAL.invoke(null);
+            return true;
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return false;
+        }
+    }
+
+    private static Class<?> builderClass() {
+        try {
+            return Class.forName("java.lang.Thread$Builder");
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method lookup(Class<?> type, String name, Class<?>... parameterTypes) {
+        if (type == null) {
+            return null;
+        }
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.vrouting.network.socket.concurrent;
+
+/**
+ * How a consumer waits when its {@link MpscRingBuffer} is empty, trading CPU for
+ * hand-off latency.
+ */
+public enum WaitStrategy {
+    /**
+     * Polls continuously. Lowest latency, but burns a full core per consumer.
+     */
+    BUSY_SPIN,
+
+    /**
+     * Yields the CPU between polls. Low latency while leaving room for other threads.
+     */
+    YIELD,
+
+    /**
+     * Yields briefly, then parks until a producer wakes it. Idle consumers use no CPU.
+     */
+    PARK;
+
+    /**
+     * Number of empty polls a {@link #PARK} consumer yields through before parking.
+     */
+    public static final int PARK_SPINS = 100;
+}
@@ -0,0 +1,24 @@
+package com.vrouting.network.socket.config;
+
+/**
+ * Selects which nodes re-broadcast a broadcast message.
+ */
+public enum BroadcastMode {
+    /**
+     * Every node re-broadcasts to every peer not yet in the message's route.
+     */
+    FLOOD,
+
+    /**
+     * Each sender names a minimal set of multipoint relays covering its two-hop
+     * neighborhood, and only those relays re-broadcast.
+     */
+    MPR,
+
+    /**
+     * Each node forwards a broadcast it has not seen before with a probability, to a
+     * random subset of its peers, and repairs what gossip missed by exchanging digests
+     * of recent broadcasts with its peers.
+     */
+    GOSSIP
+}
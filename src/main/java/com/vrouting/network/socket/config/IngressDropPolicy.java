@@ -0,0 +1,18 @@
+package com.vrouting.network.socket.config;
+
+/**
+ * Decides what happens to an inbound DATA message when the ingress queue is full.
+ * Control-plane messages (heartbeats, routing, cluster management, acks) are always
+ * queued regardless of the policy.
+ */
+public enum IngressDropPolicy {
+    /**
+     * Evicts the oldest queued DATA message to make room for the new one.
+     */
+    DROP_OLDEST_DATA,
+
+    /**
+     * Refuses the new DATA message and keeps the queued ones.
+     */
+    REJECT
+}
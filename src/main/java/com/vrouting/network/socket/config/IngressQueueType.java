@@ -0,0 +1,19 @@
+package com.vrouting.network.socket.config;
+
+/**
+ * Selects the queue that hands inbound DATA messages from transport threads to the
+ * message handler's lanes.
+ */
+public enum IngressQueueType {
+    /**
+     * Lock-guarded queues with blocking waits. Supports every {@link IngressDropPolicy}.
+     */
+    LOCKED,
+
+    /**
+     * Preallocated lock-free ring buffer waiting according to the configured
+     * {@link com.vrouting.network.socket.concurrent.WaitStrategy}. A full ring always
+     * rejects new DATA, whatever the drop policy.
+     */
+    RING_BUFFER
+}
@@ -1,5 +1,15 @@
 package com.vrouting.network.socket.config;
 
+import com.vrouting.network.socket.concurrent.ExecutorProvider;
+import com.vrouting.network.socket.concurrent.PlatformExecutorProvider;
+import com.vrouting.network.socket.concurrent.VirtualThreadExecutorProvider;
+import com.vrouting.network.socket.concurrent.WaitStrategy;
+import com.vrouting.network.socket.message.MessageType;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * Configuration settings for network operations.
  */
@@ -14,6 +24,43 @@ public class NetworkConfig {
     private final double clusterHeadThreshold;
     private final int maxNetworkDepth;
     private final int maxClusterSize;
+    private final TransportMode transportMode;
+    private final int ioThreads;
+    private final long idleConnectionTimeout;
+    private final int bufferPoolSize;
+    private final boolean bufferLeakDetection;
+    private final long writeCoalesceWindow;
+    private final int writeCoalesceBytes;
+    private final Set<MessageType> immediateFlushTypes;
+    private final boolean multicastHeartbeats;
+    private final String multicastGroup;
+    private final int multicastPort;
+    private final String multicastInterface;
+    private final int multicastTtl;
+    private final ExecutorProvider executorProvider;
+    private final int ingressQueueCapacity;
+    private final IngressDropPolicy ingressDropPolicy;
+    private final int ingressLanes;
+    private final IngressQueueType ingressQueueType;
+    private final WaitStrategy ingressWaitStrategy;
+    private final int messagePoolSize;
+    private final boolean messagePoolDebug;
+    private final int compressionThreshold;
+    private final int streamChunkSize;
+    private final int streamWindow;
+    private final long streamRetransmitTimeout;
+    private final int streamMaxRetransmits;
+    private final int duplicateWindow;
+    private final int duplicateSources;
+    private final BroadcastMode broadcastMode;
+    private final int gossipFanout;
+    private final double gossipProbability;
+    private final boolean gossipAdaptive;
+    private final long gossipDigestInterval;
+    private final int gossipHistorySize;
+    private final long deliveryTimeout;
+    private final long deliveryTickDuration;
+    private final long duplicateRetention;
     
     
     private NetworkConfig(Builder builder) {
@@ -27,6 +74,43 @@ public class NetworkConfig {
         this.clusterHeadThreshold = builder.clusterHeadThreshold;
         this.maxNetworkDepth = builder.maxNetworkDepth;
         this.maxClusterSize = builder.maxClusterSize;
+        this.transportMode = builder.transportMode;
+        this.ioThreads = builder.ioThreads;
+        this.idleConnectionTimeout = builder.idleConnectionTimeout;
+        this.bufferPoolSize = builder.bufferPoolSize;
+        this.bufferLeakDetection = builder.bufferLeakDetection;
+        this.writeCoalesceWindow = builder.writeCoalesceWindow;
+        this.writeCoalesceBytes = builder.writeCoalesceBytes;
+        this.immediateFlushTypes = builder.immediateFlushTypes;
+        this.multicastHeartbeats = builder.multicastHeartbeats;
+        this.multicastGroup = builder.multicastGroup;
+        this.multicastPort = builder.multicastPort;
+        this.multicastInterface = builder.multicastInterface;
+        this.multicastTtl = builder.multicastTtl;
+        this.executorProvider = builder.executorProvider;
+        this.ingressQueueCapacity = builder.ingressQueueCapacity;
+        this.ingressDropPolicy = builder.ingressDropPolicy;
+        this.ingressLanes = builder.ingressLanes;
+        this.ingressQueueType = builder.ingressQueueType;
+        this.ingressWaitStrategy = builder.ingressWaitStrategy;
+        this.messagePoolSize = builder.messagePoolSize;
+        this.messagePoolDebug = builder.messagePoolDebug;
+        this.compressionThreshold = builder.compressionThreshold;
+        this.streamChunkSize = builder.streamChunkSize;
+        this.streamWindow = builder.streamWindow;
+        this.streamRetransmitTimeout = builder.streamRetransmitTimeout;
+        this.streamMaxRetransmits = builder.streamMaxRetransmits;
+        this.duplicateWindow = builder.duplicateWindow;
+        this.duplicateSources = builder.duplicateSources;
+        this.broadcastMode = builder.broadcastMode;
+        this.gossipFanout = builder.gossipFanout;
+        this.gossipProbability = builder.gossipProbability;
+        this.gossipAdaptive = builder.gossipAdaptive;
+        this.gossipDigestInterval = builder.gossipDigestInterval;
+        this.gossipHistorySize = builder.gossipHistorySize;
+        this.deliveryTimeout = builder.deliveryTimeout;
+        this.deliveryTickDuration = builder.deliveryTickDuration;
+        this.duplicateRetention = builder.duplicateRetention;
     }
     
     public static class Builder {
@@ -40,6 +124,46 @@ public class NetworkConfig {
         private double clusterHeadThreshold = 0.7;
         private int maxNetworkDepth = 10;
         private int maxClusterSize = 50;
+        private TransportMode transportMode = TransportMode.BLOCKING;
+        private int ioThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        // Below connectionTimeout on purpose: a blocking peer closes an inbound connection
+        // after connectionTimeout without data, so the sender closes it first, even with
+        // the pool's 5 s health-check delay
+        private long idleConnectionTimeout = 15000;
+        private int bufferPoolSize = 256;
+        private boolean bufferLeakDetection = false;
+        private long writeCoalesceWindow = 1;
+        private int writeCoalesceBytes = 8192;
+        private Set<MessageType> immediateFlushTypes = EnumSet.of(MessageType.ROUTE_REQUEST, MessageType.ROUTE_REPLY);
+        private boolean multicastHeartbeats = false;
+        private String multicastGroup = "239.255.42.99";
+        private int multicastPort = 4446;
+        private String multicastInterface = null;
+        private int multicastTtl = 1;
+        private ExecutorProvider executorProvider = new PlatformExecutorProvider();
+        private int ingressQueueCapacity = 10000;
+        private IngressDropPolicy ingressDropPolicy = IngressDropPolicy.DROP_OLDEST_DATA;
+        private int ingressLanes = 1;
+        private IngressQueueType ingressQueueType = IngressQueueType.LOCKED;
+        private WaitStrategy ingressWaitStrategy = WaitStrategy.PARK;
+        private int messagePoolSize = 0;
+        private boolean messagePoolDebug = false;
+        private int compressionThreshold = 0;
+        private int streamChunkSize = 16 * 1024;
+        private int streamWindow = 32;
+        private long streamRetransmitTimeout = 1000;
+        private int streamMaxRetransmits = 10;
+        private int duplicateWindow = 4096;
+        private int duplicateSources = 1024;
+        private BroadcastMode broadcastMode = BroadcastMode.FLOOD;
+        private int gossipFanout = 0;
+        private double gossipProbability = 0.65;
+        private boolean gossipAdaptive = false;
+        private long gossipDigestInterval = 1000;
+        private int gossipHistorySize = 256;
+        private long deliveryTimeout = 5000;
+        private long deliveryTickDuration = 10;
+        private long duplicateRetention = 2000;
         
         public Builder port(int port) {
             this.port = port;
@@ -91,6 +215,322 @@ public class NetworkConfig {
             return this;
         }
         
+        public Builder transportMode(TransportMode mode) {
+            this.transportMode = mode;
+            return this;
+        }
+        
+        /**
+         * Sets the number of selector event loops used in {@link TransportMode#NIO} mode.
+         */
+        public Builder ioThreads(int threads) {
+            this.ioThreads = Math.max(1, threads);
+            return this;
+        }
+        
+        /**
+         * Sets how long a pooled outbound connection may stay unused before it is closed.
+         * Keep this below the remote side's {@link #connectionTimeout(long)}, which is
+         * also how long its blocking transport waits on a silent inbound connection
+         * before closing it; otherwise writes on an idle connection can race with the
+         * peer closing it. Idle connections are checked every 5 seconds, so leave at
+         * least that much margin.
+         */
+        public Builder idleConnectionTimeout(long idleConnectionTimeout) {
+            this.idleConnectionTimeout = idleConnectionTimeout;
+            return this;
+        }
+        
+        /**
+         * Sets how many {@link #bufferSize(int)} direct buffers the transport keeps pooled.
+         */
+        public Builder bufferPoolSize(int bufferPoolSize) {
+            this.bufferPoolSize = bufferPoolSize;
+            return this;
+        }
+        
+        /**
+         * Tracks every pooled buffer and reports those that are garbage collected
+         * without being released. Intended for debugging; adds a stack trace per acquire.
+         */
+        public Builder bufferLeakDetection(boolean enabled) {
+            this.bufferLeakDetection = enabled;
+            return this;
+        }
+        
+        /**
+         * Sets how long, in milliseconds, outbound messages to one peer may wait to be
+         * coalesced into a single write. 0 writes every message immediately.
+         */
+        public Builder writeCoalesceWindow(long writeCoalesceWindow) {
+            this.writeCoalesceWindow = writeCoalesceWindow;
+            return this;
+        }
+        
+        /**
+         * Sets the byte budget of one coalesced write; a batch is flushed early once it
+         * reaches this size. Capped at {@link #bufferSize(int)}.
+         */
+        public Builder writeCoalesceBytes(int writeCoalesceBytes) {
+            this.writeCoalesceBytes = writeCoalesceBytes;
+            return this;
+        }
+        
+        /**
+         * Sets the latency-sensitive message types that flush their peer's pending batch
+         * immediately instead of waiting for the coalescing window.
+         */
+        public Builder immediateFlushTypes(Set<MessageType> types) {
+            this.immediateFlushTypes = types.isEmpty() ? EnumSet.noneOf(MessageType.class) : EnumSet.copyOf(types);
+            return this;
+        }
+        
+        /**
+         * Sends HEARTBEAT_* messages as one UDP multicast datagram to every neighbor on the
+         * segment instead of unicasting a copy per peer. Unicast remains the fallback.
+         */
+        public Builder multicastHeartbeats(boolean enabled) {
+            this.multicastHeartbeats = enabled;
+            return this;
+        }
+        
+        public Builder multicastGroup(String group) {
+            this.multicastGroup = group;
+            return this;
+        }
+        
+        public Builder multicastPort(int multicastPort) {
+            this.multicastPort = multicastPort;
+            return this;
+        }
+        
+        /**
+         * Sets the name of the network interface used for multicast, e.g. {@code lo} or
+         * {@code eth0}. When unset the system default interface is used.
+         */
+        public Builder multicastInterface(String name) {
+            this.multicastInterface = name;
+            return this;
+        }
+        
+        public Builder multicastTtl(int ttl) {
+            this.multicastTtl = ttl;
+            return this;
+        }
+        
+        /**
+         * Sets how the node's subsystems create threads. Defaults to platform threads;
+         * {@link VirtualThreadExecutorProvider} runs blocking handlers on virtual threads.
+         */
+        public Builder executorProvider(ExecutorProvider provider) {
+            this.executorProvider = provider;
+            return this;
+        }
+        
+        /**
+         * Sets how many DATA messages the ingress queue holds before transports stop
+         * reading from peers and {@link #ingressDropPolicy(IngressDropPolicy)} applies.
+         * The capacity is split evenly across {@link #ingressLanes(int)}.
+         */
+        public Builder ingressQueueCapacity(int capacity) {
+            this.ingressQueueCapacity = Math.max(1, capacity);
+            return this;
+        }
+        
+        public Builder ingressDropPolicy(IngressDropPolicy policy) {
+            this.ingressDropPolicy = policy;
+            return this;
+        }
+        
+        /**
+         * Sets how many worker lanes process inbound messages. Messages are hashed onto
+         * lanes by source node, so order is kept per source while different peers are
+         * processed in parallel. 0 or less sizes the lanes to the available cores.
+         */
+        public Builder ingressLanes(int lanes) {
+            this.ingressLanes = lanes > 0 ? lanes : Runtime.getRuntime().availableProcessors();
+            return this;
+        }
+        
+        public Builder ingressQueueType(IngressQueueType type) {
+            this.ingressQueueType = type;
+            return this;
+        }
+        
+        /**
+         * Sets how idle lane workers wait in {@link IngressQueueType#RING_BUFFER} mode.
+         */
+        public Builder ingressWaitStrategy(WaitStrategy strategy) {
+            this.ingressWaitStrategy = strategy;
+            return this;
+        }
+        
+        /**
+         * Keeps up to this many released messages per thread for reuse on the
+         * forwarding path; 0 disables pooling. See {@link com.vrouting.network.socket.message.MessagePool}.
+         */
+        public Builder messagePoolSize(int messagePoolSize) {
+            this.messagePoolSize = Math.max(0, messagePoolSize);
+            return this;
+        }
+        
+        /**
+         * Never reuses released pooled messages and records where they were
+         * released, so use after release is reported with its origin.
+         */
+        public Builder messagePoolDebug(boolean messagePoolDebug) {
+            this.messagePoolDebug = messagePoolDebug;
+            return this;
+        }
+        
+        /**
+         * Deflates DATA payloads of at least this many encoded bytes before sending;
+         * 0 disables compression. Every peer decodes compressed payloads, so only
+         * senders need this set.
+         */
+        public Builder compressionThreshold(int compressionThreshold) {
+            this.compressionThreshold = Math.max(0, compressionThreshold);
+            return this;
+        }
+        
+        /**
+         * Sets the payload bytes per DATA_FRAGMENT of a data stream.
+         */
+        public Builder streamChunkSize(int streamChunkSize) {
+            this.streamChunkSize = Math.max(1, streamChunkSize);
+            return this;
+        }
+        
+        /**
+         * Sets how many chunks of a stream may be outstanding: the sender keeps at most
+         * this many unacknowledged chunks for retransmission, and the receiver buffers at
+         * most this many chunks ahead of its reader.
+         */
+        public Builder streamWindow(int streamWindow) {
+            this.streamWindow = Math.max(1, streamWindow);
+            return this;
+        }
+        
+        /**
+         * Sets how long, in milliseconds, a stream sender waits for an acknowledgement
+         * before resending its oldest unacknowledged chunk.
+         */
+        public Builder streamRetransmitTimeout(long streamRetransmitTimeout) {
+            this.streamRetransmitTimeout = Math.max(1, streamRetransmitTimeout);
+            return this;
+        }
+        
+        /**
+         * Sets how many retransmit timeouts in a row a stream sender tolerates before
+         * failing the stream with an IOException.
+         */
+        public Builder streamMaxRetransmits(int streamMaxRetransmits) {
+            this.streamMaxRetransmits = Math.max(1, streamMaxRetransmits);
+            return this;
+        }
+        
+        /**
+         * Sets how many sequence numbers behind the newest one seen from a source are
+         * remembered for duplicate suppression, rounded up to a multiple of 64. Older
+         * messages from that source are dropped as duplicates.
+         */
+        public Builder duplicateWindow(int duplicateWindow) {
+            this.duplicateWindow = (Math.max(64, duplicateWindow) + 63) & ~63;
+            return this;
+        }
+        
+        /**
+         * Sets how many sources the duplicate filter tracks at once; the least recently
+         * heard source is forgotten first. Memory is about duplicateWindow / 8 bytes per
+         * source, and up to 16 times that for a source sending fast enough to fill the
+         * duplicateRetention.
+         */
+        public Builder duplicateSources(int duplicateSources) {
+            this.duplicateSources = Math.max(1, duplicateSources);
+            return this;
+        }
+        
+        /**
+         * Sets which nodes re-broadcast broadcast messages.
+         */
+        public Builder broadcastMode(BroadcastMode mode) {
+            this.broadcastMode = mode;
+            return this;
+        }
+        
+        /**
+         * Sets how many randomly chosen peers a gossiping node forwards a broadcast to;
+         * 0 forwards to every peer.
+         */
+        public Builder gossipFanout(int gossipFanout) {
+            this.gossipFanout = Math.max(0, gossipFanout);
+            return this;
+        }
+        
+        /**
+         * Sets the probability that a gossiping node forwards a broadcast it receives. The
+         * originating node always sends.
+         */
+        public Builder gossipProbability(double gossipProbability) {
+            this.gossipProbability = Math.max(0.0, Math.min(1.0, gossipProbability));
+            return this;
+        }
+        
+        /**
+         * Scales the gossip probability by local density: it applies as set to a node with
+         * eight peers, and in inverse proportion to the peer count otherwise, capped at 1.
+         */
+        public Builder gossipAdaptive(boolean gossipAdaptive) {
+            this.gossipAdaptive = gossipAdaptive;
+            return this;
+        }
+        
+        /**
+         * Sets how often, in milliseconds, a gossiping node sends a digest of its recent
+         * broadcasts to a random peer so each can request what it missed; 0 disables repair.
+         */
+        public Builder gossipDigestInterval(long gossipDigestInterval) {
+            this.gossipDigestInterval = Math.max(0, gossipDigestInterval);
+            return this;
+        }
+        
+        /**
+         * Sets how many recent broadcasts a gossiping node keeps for digests and repair.
+         */
+        public Builder gossipHistorySize(int gossipHistorySize) {
+            this.gossipHistorySize = Math.max(1, gossipHistorySize);
+            return this;
+        }
+        
+        /**
+         * Sets how long, in milliseconds, {@link com.vrouting.network.socket.core.Node#sendAsync}
+         * waits for the destination's DATA_ACK before failing the send.
+         */
+        public Builder deliveryTimeout(long deliveryTimeout) {
+            this.deliveryTimeout = Math.max(1, deliveryTimeout);
+            return this;
+        }
+        
+        /**
+         * Sets the tick, in milliseconds, of the timer wheel that expires pending sends.
+         * Timeouts fire up to one tick late.
+         */
+        public Builder deliveryTickDuration(long deliveryTickDuration) {
+            this.deliveryTickDuration = Math.max(1, deliveryTickDuration);
+            return this;
+        }
+        
+        /**
+         * Sets how long, in milliseconds, the duplicate filter keeps a source's older sequence
+         * numbers after they leave its newest duplicateWindow, so a message overtaken by many
+         * newer ones from the same node is still recognised. A source keeps at most 16
+         * windows' worth of sequence numbers however long the retention.
+         */
+        public Builder duplicateRetention(long duplicateRetention) {
+            this.duplicateRetention = Math.max(0, duplicateRetention);
+            return this;
+        }
+        
         public NetworkConfig build() {
             return new NetworkConfig(this);
         }
@@ -137,6 +577,154 @@ public class NetworkConfig {
         return maxClusterSize;
     }
     
+    public TransportMode getTransportMode() {
+        return transportMode;
+    }
+    
+    public int getIoThreads() {
+        return ioThreads;
+    }
+    
+    public long getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+    
+    public int getBufferPoolSize() {
+        return bufferPoolSize;
+    }
+    
+    public boolean isBufferLeakDetection() {
+        return bufferLeakDetection;
+    }
+    
+    public long getWriteCoalesceWindow() {
+        return writeCoalesceWindow;
+    }
+    
+    public int getWriteCoalesceBytes() {
+        return writeCoalesceBytes;
+    }
+    
+    public Set<MessageType> getImmediateFlushTypes() {
+        return Collections.unmodifiableSet(immediateFlushTypes);
+    }
+    
+    public boolean isMulticastHeartbeats() {
+        return multicastHeartbeats;
+    }
+    
+    public String getMulticastGroup() {
+        return multicastGroup;
+    }
+    
+    public int getMulticastPort() {
+        return multicastPort;
+    }
+    
+    public String getMulticastInterface() {
+        return multicastInterface;
+    }
+    
+    public int getMulticastTtl() {
+        return multicastTtl;
+    }
+    
+    public ExecutorProvider getExecutorProvider() {
+        return executorProvider;
+    }
+    
+    public int getIngressQueueCapacity() {
+        return ingressQueueCapacity;
+    }
+    
+    public IngressDropPolicy getIngressDropPolicy() {
+        return ingressDropPolicy;
+    }
+    
+    public int getIngressLanes() {
+        return ingressLanes;
+    }
+    
+    public IngressQueueType getIngressQueueType() {
+        return ingressQueueType;
+    }
+    
+    public WaitStrategy getIngressWaitStrategy() {
+        return ingressWaitStrategy;
+    }
+    
+    public int getMessagePoolSize() {
+        return messagePoolSize;
+    }
+    
+    public boolean isMessagePoolDebug() {
+        return messagePoolDebug;
+    }
+    
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+    
+    public int getStreamChunkSize() {
+        return streamChunkSize;
+    }
+    
+    public int getStreamWindow() {
+        return streamWindow;
+    }
+    
+    public long getStreamRetransmitTimeout() {
+        return streamRetransmitTimeout;
+    }
+    
+    public int getStreamMaxRetransmits() {
+        return streamMaxRetransmits;
+    }
+    
+    public int getDuplicateWindow() {
+        return duplicateWindow;
+    }
+    
+    public int getDuplicateSources() {
+        return duplicateSources;
+    }
+    
+    public BroadcastMode getBroadcastMode() {
+        return broadcastMode;
+    }
+    
+    public int getGossipFanout() {
+        return gossipFanout;
+    }
+    
+    public double getGossipProbability() {
+        return gossipProbability;
+    }
+    
+    public boolean isGossipAdaptive() {
+        return gossipAdaptive;
+    }
+    
+    public long getGossipDigestInterval() {
+        return gossipDigestInterval;
+    }
+    
+    public int getGossipHistorySize() {
+        return gossipHistorySize;
+    }
+    
+    public long getDeliveryTimeout() {
+        return deliveryTimeout;
+    }
+    
+    public long getDeliveryTickDuration() {
+        return deliveryTickDuration;
+    }
+    
+    public long getDuplicateRetention() {
+        return duplicateRetention;
+    }
+    
     public static NetworkConfig getDefault() {
         return new Builder().build();
     }
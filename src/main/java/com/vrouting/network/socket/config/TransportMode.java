@@ -0,0 +1,16 @@
+package com.vrouting.network.socket.config;
+
+/**
+ * Selects the I/O model used by the network interface.
+ */
+public enum TransportMode {
+    /**
+     * Blocking sockets with one pooled thread per connection.
+     */
+    BLOCKING,
+
+    /**
+     * Non-blocking channels multiplexed over a small set of selector event loops.
+     */
+    NIO
+}
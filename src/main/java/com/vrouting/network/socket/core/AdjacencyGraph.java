@@ -0,0 +1,106 @@
+package com.vrouting.network.socket.core;
+
+import java.util.Arrays;
+
+/**
+ * Directed adjacency over interned node ids. Each node's neighbors are kept in a
+ * sorted {@code int[]}, so membership is a binary search and a node with k neighbors
+ * costs 4k bytes instead of a {@code HashSet<String>}.
+ */
+public final class AdjacencyGraph {
+    private static final int[] NONE = new int[0];
+
+    private final NodeIdMap<int[]> rows;
+    private long version;
+
+    public AdjacencyGraph() {
+        this.rows = new NodeIdMap<>();
+    }
+
+    /**
+     * Adds an arc from one node to another, creating both nodes as needed.
+     */
+    public synchronized void addArc(int from, int to) {
+        int[] row = rows.get(from);
+        if (row == null) {
+            row = NONE;
+        }
+        int index = Arrays.binarySearch(row, to);
+        if (index < 0) {
+            int insertAt = -index - 1;
+            int[] grown = new int[row.length + 1];
+            System.arraycopy(row, 0, grown, 0, insertAt);
+            grown[insertAt] = to;
+            System.arraycopy(row, insertAt, grown, insertAt + 1, row.length - insertAt);
+            rows.put(from, grown);
+            version++;
+        }
+        if (!rows.containsKey(to)) {
+            rows.put(to, NONE);
+            version++;
+        }
+    }
+
+    /**
+     * Adds arcs in both directions.
+     */
+    public synchronized void addEdge(int a, int b) {
+        addArc(a, b);
+        addArc(b, a);
+    }
+
+    public synchronized boolean hasArc(int from, int to) {
+        int[] row = rows.get(from);
+        return row != null && Arrays.binarySearch(row, to) >= 0;
+    }
+
+    /**
+     * Gets the sorted neighbors of a node. The array is shared and must not be modified.
+     */
+    public synchronized int[] neighbors(int node) {
+        int[] row = rows.get(node);
+        return row != null ? row : NONE;
+    }
+
+    public synchronized boolean containsNode(int node) {
+        return rows.containsKey(node);
+    }
+
+    /**
+     * Removes a node and every arc pointing at it.
+     */
+    public synchronized void removeNode(int node) {
+        rows.remove(node);
+        version++;
+        rows.forEach((from, row) -> {
+            int index = Arrays.binarySearch(row, node);
+            if (index >= 0) {
+                int[] shrunk = new int[row.length - 1];
+                System.arraycopy(row, 0, shrunk, 0, index);
+                System.arraycopy(row, index + 1, shrunk, index, row.length - index - 1);
+                rows.put(from, shrunk);
+            }
+        });
+    }
+
+    /**
+     * Gets the ids of every node in the graph, sorted.
+     */
+    public synchronized int[] nodes() {
+        int[] nodes = rows.keys();
+        Arrays.sort(nodes);
+        return nodes;
+    }
+
+    /**
+     * Gets a counter that changes whenever an arc or node is added or removed, so
+     * results derived from the graph can be cached until it changes.
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    public synchronized int nodeCount() {
+        return rows.size();
+    }
+}
@@ -0,0 +1,42 @@
+package com.vrouting.network.socket.core;
+
+import com.vrouting.network.socket.message.MessageId;
+
+/**
+ * Confirmation that a message sent with {@link Node#sendAsync} reached its destination.
+ */
+public final class DeliveryReceipt {
+    private final MessageId messageId;
+    private final String destinationNodeId;
+    private final long roundTripNanos;
+
+    public DeliveryReceipt(MessageId messageId, String destinationNodeId, long roundTripNanos) {
+        this.messageId = messageId;
+        this.destinationNodeId = destinationNodeId;
+        this.roundTripNanos = roundTripNanos;
+    }
+
+    /**
+     * Gets the id of the message as it was sent.
+     */
+    public MessageId getMessageId() {
+        return messageId;
+    }
+
+    public String getDestinationNodeId() {
+        return destinationNodeId;
+    }
+
+    /**
+     * Gets the time from sending the message to receiving its DATA_ACK.
+     */
+    public long getRoundTripNanos() {
+        return roundTripNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DeliveryReceipt[id=%s, destination=%s, rtt=%.3fms]",
+            messageId, destinationNodeId, roundTripNanos / 1e6);
+    }
+}
@@ -0,0 +1,227 @@
+package com.vrouting.network.socket.core;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageId;
+import com.vrouting.network.socket.message.MessageType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Correlates DATA_ACKs with the sends of {@link Node#sendAsync} and fails sends that
+ * are not acknowledged in time.
+ *
+ * <p>Each tracked message carries its own id as its receipt id, which survives the
+ * copies made at every hop, and the destination echoes it on its DATA_ACK. Pending
+ * sends are kept in a map by that id for acknowledgements, and in a hashed timer wheel
+ * of {@link #WHEEL_SIZE} buckets of {@link NetworkConfig#getDeliveryTickDuration()}
+ * each for timeouts. Tracking a send or acknowledging one costs a map update and a
+ * queue append whatever the number in flight, and a single timer thread expires them,
+ * so no thread blocks per message.
+ *
+ * <p>Futures complete on the thread that handles the acknowledgement, or on the timer
+ * thread when they time out; slow follow-up work should use the async variants of
+ * {@link CompletableFuture}.
+ */
+public class DeliveryTracker {
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryTracker.class);
+
+    /**
+     * Number of buckets in the timer wheel. Timeouts longer than one revolution wait
+     * for extra rounds in their bucket.
+     */
+    static final int WHEEL_SIZE = 512;
+
+    private final String localNodeId;
+    private final NetworkConfig config;
+    private final long tickNanos;
+    private final Map<MessageId, Pending> pending;
+    private final Queue<Pending> scheduled;
+    private final ArrayDeque<Pending>[] wheel;
+    private final long startNanos;
+    private long tick;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean closed;
+
+    public DeliveryTracker(String localNodeId, NetworkConfig config) {
+        this.localNodeId = localNodeId;
+        this.config = config;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(config.getDeliveryTickDuration());
+        this.pending = new ConcurrentHashMap<>();
+        this.scheduled = new ConcurrentLinkedQueue<>();
+        this.wheel = newWheel();
+        this.startNanos = System.nanoTime();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArrayDeque<Pending>[] newWheel() {
+        ArrayDeque<Pending>[] wheel = (ArrayDeque<Pending>[]) new ArrayDeque[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        return wheel;
+    }
+
+    /**
+     * Starts tracking a message about to be sent, setting its receipt id.
+     *
+     * @return a future completed by the destination's DATA_ACK, or failed with a
+     *         {@link TimeoutException} after {@code timeoutMillis}
+     */
+    public CompletableFuture<DeliveryReceipt> track(Message message, long timeoutMillis) {
+        MessageId id = message.getMessageId();
+        message.setReceiptId(id);
+        Pending entry = new Pending(id, message.getDestinationNodeId(), System.nanoTime(), timeoutMillis);
+        if (closed) {
+            entry.future.completeExceptionally(closedException());
+            return entry.future;
+        }
+        pending.put(id, entry);
+        scheduled.add(entry);
+        ensureStarted();
+        if (closed && pending.remove(id, entry)) {
+            entry.future.completeExceptionally(closedException());
+        }
+        return entry.future;
+    }
+
+    /**
+     * Handles a DATA_ACK addressed to this node.
+     *
+     * @return whether the message was a DATA_ACK
+     */
+    public boolean handle(Message message) {
+        if (message.getType() != MessageType.DATA_ACK) {
+            return false;
+        }
+        MessageId id = message.getReceiptId();
+        Pending entry = id != null ? pending.remove(id) : null;
+        if (entry != null) {
+            entry.future.complete(new DeliveryReceipt(id, entry.destinationNodeId,
+                System.nanoTime() - entry.sentNanos));
+        }
+        return true;
+    }
+
+    /**
+     * Fails every pending send and stops the timer.
+     */
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        }
+        IOException exception = closedException();
+        for (Pending entry : pending.values()) {
+            if (pending.remove(entry.id, entry)) {
+                entry.future.completeExceptionally(exception);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of sends awaiting acknowledgement.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private synchronized void ensureStarted() {
+        if (scheduler == null && !closed) {
+            long tickMillis = config.getDeliveryTickDuration();
+            scheduler = config.getExecutorProvider().newScheduler("delivery-" + localNodeId, 1);
+            scheduler.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Processes every tick up to now. Runs only on the timer thread, which alone
+     * touches the wheel.
+     */
+    private void advance() {
+        try {
+            long now = (System.nanoTime() - startNanos) / tickNanos;
+            while (tick <= now) {
+                transferScheduled();
+                expire(wheel[(int) (tick & (WHEEL_SIZE - 1))]);
+                tick++;
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Delivery timer failed for node {}", localNodeId, e);
+        }
+    }
+
+    /**
+     * Moves newly tracked sends into the bucket of the first tick at or after their
+     * deadline.
+     */
+    private void transferScheduled() {
+        Pending entry;
+        while ((entry = scheduled.poll()) != null) {
+            if (entry.future.isDone()) {
+                continue;
+            }
+            long elapsed = entry.deadlineNanos - startNanos;
+            long deadlineTick = Math.max(tick, (elapsed + tickNanos - 1) / tickNanos);
+            entry.rounds = (deadlineTick - tick) / WHEEL_SIZE;
+            wheel[(int) (deadlineTick & (WHEEL_SIZE - 1))].add(entry);
+        }
+    }
+
+    private void expire(ArrayDeque<Pending> bucket) {
+        Iterator<Pending> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Pending entry = iterator.next();
+            if (entry.future.isDone()) {
+                iterator.remove();
+                pending.remove(entry.id, entry);
+            } else if (entry.rounds > 0) {
+                entry.rounds--;
+            } else {
+                iterator.remove();
+                if (pending.remove(entry.id, entry)) {
+                    entry.future.completeExceptionally(new TimeoutException("No DATA_ACK from "
+                        + entry.destinationNodeId + " for " + entry.id + " within "
+                        + entry.timeoutMillis + " ms"));
+                }
+            }
+        }
+    }
+
+    private IOException closedException() {
+        return new IOException("Delivery tracker for " + localNodeId + " closed");
+    }
+
+    private static final class Pending {
+        final MessageId id;
+        final String destinationNodeId;
+        final long sentNanos;
+        final long deadlineNanos;
+        final long timeoutMillis;
+        final CompletableFuture<DeliveryReceipt> future;
+        long rounds;
+
+        Pending(MessageId id, String destinationNodeId, long sentNanos, long timeoutMillis) {
+            this.id = id;
+            this.destinationNodeId = destinationNodeId;
+            this.sentNanos = sentNanos;
+            this.timeoutMillis = timeoutMillis;
+            this.deadlineNanos = sentNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            this.future = new CompletableFuture<>();
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.vrouting.network.socket.core;
+
+import com.vrouting.network.socket.message.MessageId;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded memory of which message ids have been seen, for dropping flooded and looping
+ * duplicates.
+ *
+ * <p>Compact ids are tracked per source, a source node together with the epoch of
+ * the process that created the id, as a bitmap of sequence numbers, one bit each, in
+ * segments of {@code window} sequences. The segments covering the newest
+ * {@code window} sequences seen from a source are always kept. Older segments are kept
+ * for {@code retention} after a newer one was started, up to {@link #MAX_SEGMENTS} per
+ * source, so a message overtaken by a burst of newer ones from the same node, such as
+ * one whose sending thread was descheduled, is still judged exactly. Keying by node as
+ * well as epoch keeps nodes that share a process, and so an epoch, from pushing each
+ * other's ids out. At most {@code maxSources} sources are tracked; the least recently
+ * heard is forgotten first. Ids kept as text are remembered in two rotating
+ * generations of {@code window} ids each.
+ *
+ * <p>The contract, for {@link #add}:
+ * <ul>
+ *   <li>No false negatives while an id's segment is kept: a repeated id is always
+ *       reported as a duplicate.</li>
+ *   <li>False positives only for ids whose segment was dropped: more than
+ *       {@code window} sequences behind the newest seen from their source, and either
+ *       older than {@code retention} or more than {@code MAX_SEGMENTS * window}
+ *       sequences behind. Those are reported as duplicates without having been seen,
+ *       and counted by {@link #getExpiredCount()}.</li>
+ *   <li>False negatives only once the source has been forgotten, after
+ *       {@code maxSources} other sources were heard more recently, or for a text id
+ *       once two generations of newer text ids have been seen.</li>
+ * </ul>
+ * Memory is bounded by {@code maxSources * MAX_SEGMENTS * window / 8} bytes plus
+ * per-source overhead, and {@code 2 * window} text ids. A source that sends fewer than
+ * {@code window} ids per {@code retention} holds one or two segments.
+ *
+ * <p>Thread-safe. Sources are spread over independently locked stripes.
+ */
+public class DuplicateFilter {
+    /**
+     * Most segments of {@code window} sequences kept per source.
+     */
+    public static final int MAX_SEGMENTS = 16;
+
+    /**
+     * Retention used when none is given, in milliseconds.
+     */
+    public static final long DEFAULT_RETENTION = 2000;
+
+    private static final int MAX_STRIPES = 16;
+
+    private final int window;
+    private final long retentionNanos;
+    private final Stripe[] stripes;
+    private final int textCapacity;
+    private Set<String> currentText;
+    private Set<String> previousText;
+    private final LongAdder expired;
+
+    /**
+     * @param window sequence numbers remembered per source, rounded up to a multiple of 64
+     * @param maxSources most sources tracked at once
+     */
+    public DuplicateFilter(int window, int maxSources) {
+        this(window, maxSources, DEFAULT_RETENTION);
+    }
+
+    /**
+     * @param window sequence numbers per segment, rounded up to a multiple of 64
+     * @param maxSources most sources tracked at once
+     * @param retention how long older segments are kept after a newer one was started,
+     *                  in milliseconds
+     */
+    public DuplicateFilter(int window, int maxSources, long retention) {
+        if (window < 1 || maxSources < 1) {
+            throw new IllegalArgumentException("window and maxSources must be positive");
+        }
+        if (retention < 0) {
+            throw new IllegalArgumentException("retention must not be negative");
+        }
+        this.window = (window + 63) & ~63;
+        this.retentionNanos = TimeUnit.MILLISECONDS.toNanos(retention);
+        int stripeCount = Math.min(MAX_STRIPES, Integer.highestOneBit(maxSources));
+        int perStripe = maxSources / stripeCount;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(perStripe + (i < maxSources % stripeCount ? 1 : 0));
+        }
+        this.textCapacity = this.window;
+        this.currentText = new HashSet<>();
+        this.previousText = new HashSet<>();
+        this.expired = new LongAdder();
+    }
+
+    /**
+     * Records an id.
+     *
+     * @param sourceNodeId node the message came from, or null if unknown
+     * @return true if the id has not been seen before, false if it is a duplicate or too
+     *         old to tell
+     */
+    public boolean add(String sourceNodeId, MessageId id) {
+        if (!id.isCompact()) {
+            return addText(id.toString());
+        }
+        SourceKey key = new SourceKey(sourceNodeId, id.getEpoch());
+        int hash = key.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+        synchronized (stripe) {
+            Window sequences = stripe.get(key);
+            if (sequences == null) {
+                sequences = new Window(window, retentionNanos);
+                stripe.put(key, sequences);
+            }
+            int result = sequences.add(id.getSequence());
+            if (result < 0) {
+                expired.increment();
+            }
+            return result > 0;
+        }
+    }
+
+    /**
+     * Forgets every id.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+        synchronized (this) {
+            currentText.clear();
+            previousText.clear();
+        }
+    }
+
+    /**
+     * Gets the number of sources, each a node and epoch, currently tracked.
+     */
+    public int getTrackedSourceCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of text ids currently remembered.
+     */
+    public synchronized int getTrackedTextIdCount() {
+        return currentText.size() + previousText.size();
+    }
+
+    /**
+     * Gets how many ids were dropped for falling behind what is kept of their source.
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    private synchronized boolean addText(String id) {
+        if (currentText.contains(id) || previousText.contains(id)) {
+            return false;
+        }
+        if (currentText.size() >= textCapacity) {
+            Set<String> recycled = previousText;
+            recycled.clear();
+            previousText = currentText;
+            currentText = recycled;
+        }
+        currentText.add(id);
+        return true;
+    }
+
+    /**
+     * A source node and the epoch of the process that created its ids.
+     */
+    private static final class SourceKey {
+        private final String nodeId;
+        private final long epoch;
+
+        SourceKey(String nodeId, long epoch) {
+            this.nodeId = nodeId;
+            this.epoch = epoch;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SourceKey)) {
+                return false;
+            }
+            SourceKey other = (SourceKey) o;
+            return epoch == other.epoch && Objects.equals(nodeId, other.nodeId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(epoch * 0x9E3779B97F4A7C15L) * 31 + Objects.hashCode(nodeId);
+        }
+    }
+
+    /**
+     * Sources of one stripe in least recently heard order.
+     */
+    private static final class Stripe extends LinkedHashMap<SourceKey, Window> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SourceKey, Window> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /**
+     * Bitmap of the sequences seen from one source, in segments of {@code size}
+     * sequences ordered by index. Segments are created on first use, so gaps in a
+     * source's sequences cost nothing, and dropped oldest first once they no longer
+     * cover the newest {@code size} sequences and are either past the retention or over
+     * {@link #MAX_SEGMENTS}.
+     */
+    private static final class Window {
+        private final int size;
+        private final long retentionNanos;
+        private final List<Segment> segments;
+        private long highest;
+        private boolean empty;
+        // Sequences below this belong to dropped segments
+        private long floor;
+
+        Window(int size, long retentionNanos) {
+            this.size = size;
+            this.retentionNanos = retentionNanos;
+            this.segments = new ArrayList<>(2);
+            this.empty = true;
+            this.floor = Long.MIN_VALUE;
+        }
+
+        /**
+         * @return 1 for a new sequence, 0 for a duplicate, -1 for one whose segment was
+         *         dropped
+         */
+        int add(long sequence) {
+            if (sequence < floor) {
+                return -1;
+            }
+            if (empty || sequence > highest) {
+                highest = sequence;
+                empty = false;
+            }
+            long index = Math.floorDiv(sequence, (long) size);
+            Segment segment = segmentFor(index);
+            if (sequence < floor) {
+                // Created behind everything kept and dropped again straight away
+                return -1;
+            }
+            return segment.set((int) (sequence - index * size)) ? 1 : 0;
+        }
+
+        private Segment segmentFor(long index) {
+            int i = segments.size() - 1;
+            while (i >= 0 && segments.get(i).index > index) {
+                i--;
+            }
+            if (i >= 0 && segments.get(i).index == index) {
+                return segments.get(i);
+            }
+            Segment segment = new Segment(index, size, System.nanoTime());
+            segments.add(i + 1, segment);
+            prune(segment.created);
+            return segment;
+        }
+
+        /**
+         * Drops the oldest segments that no longer cover the newest {@code size}
+         * sequences, once the segment after them has been around for the retention or
+         * there are too many.
+         */
+        private void prune(long now) {
+            long start = highest - (size - 1);
+            if (start > highest) {
+                // Underflow
+                start = Long.MIN_VALUE;
+            }
+            long windowIndex = Math.floorDiv(start, (long) size);
+            while (segments.size() > 1) {
+                Segment oldest = segments.get(0);
+                if (oldest.index >= windowIndex) {
+                    return;
+                }
+                boolean stale = now - segments.get(1).created >= retentionNanos;
+                if (!stale && segments.size() <= MAX_SEGMENTS) {
+                    return;
+                }
+                segments.remove(0);
+                floor = oldest.index * size + size;
+            }
+        }
+    }
+
+    /**
+     * Bits for the sequences {@code index * size} up to {@code (index + 1) * size}.
+     */
+    private static final class Segment {
+        private final long index;
+        private final long[] bits;
+        private final long created;
+
+        Segment(long index, int size, long created) {
+            this.index = index;
+            this.bits = new long[size >>> 6];
+            this.created = created;
+        }
+
+        private boolean set(int slot) {
+            long mask = 1L << slot;
+            long word = bits[slot >>> 6];
+            if ((word & mask) != 0) {
+                return false;
+            }
+            bits[slot >>> 6] = word | mask;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.vrouting.network.socket.core;
+
+import com.vrouting.network.socket.core.RoutingManager.Route;
+
+import java.util.Arrays;
+
+/**
+ * Immutable forwarding information base: the chosen route per destination, computed
+ * by the control plane and published whole. Lookups probe an open-addressed
+ * {@code int[]} of interned destination ids without locking or scoring, so the data
+ * plane pays one hash probe per packet.
+ *
+ * <p>Built with {@link Builder}; a table is never changed after {@link Builder#build()}.
+ * {@link #with} derives a table that differs in one entry, copying the arrays but
+ * sharing every other entry's route.
+ */
+public final class ForwardingTable {
+    private static final int EMPTY = -1;
+
+    /**
+     * Table with no entries.
+     */
+    public static final ForwardingTable EMPTY_TABLE = new Builder(0).build();
+
+    private final int[] destinations;
+    private final int[] nextHops;
+    private final String[] nextHopNames;
+    private final Route[] routes;
+    private final int size;
+
+    private ForwardingTable(int[] destinations, int[] nextHops, String[] nextHopNames, Route[] routes, int size) {
+        this.destinations = destinations;
+        this.nextHops = nextHops;
+        this.nextHopNames = nextHopNames;
+        this.routes = routes;
+        this.size = size;
+    }
+
+    /**
+     * Gets the interned next hop toward a destination, or {@link NodeIdRegistry#UNKNOWN}.
+     */
+    public int getNextHop(int destination) {
+        int slot = find(destination);
+        return slot >= 0 ? nextHops[slot] : NodeIdRegistry.UNKNOWN;
+    }
+
+    /**
+     * Gets the name of the next hop toward a destination, or null.
+     */
+    public String getNextHopName(int destination) {
+        int slot = find(destination);
+        return slot >= 0 ? nextHopNames[slot] : null;
+    }
+
+    /**
+     * Gets the route chosen for a destination, or null.
+     */
+    public Route getRoute(int destination) {
+        int slot = find(destination);
+        return slot >= 0 ? routes[slot] : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Creates a table with the route toward one destination set, replacing any earlier
+     * one. This table is unchanged.
+     */
+    public ForwardingTable with(int destination, int nextHop, String nextHopName, Route route) {
+        int needed = find(destination) >= 0 ? size : size + 1;
+        Builder builder;
+        if (needed * 2 > destinations.length) {
+            // Grow with headroom so a run of new destinations rehashes rarely
+            builder = new Builder(needed * 2);
+            for (int slot = 0; slot < destinations.length; slot++) {
+                if (destinations[slot] != EMPTY) {
+                    builder.put(destinations[slot], nextHops[slot], nextHopNames[slot], routes[slot]);
+                }
+            }
+        } else {
+            builder = new Builder(this);
+        }
+        return builder.put(destination, nextHop, nextHopName, route).build();
+    }
+
+    private int find(int destination) {
+        if (destination < 0) {
+            return -1;
+        }
+        int mask = destinations.length - 1;
+        for (int slot = mix(destination) & mask; ; slot = (slot + 1) & mask) {
+            int candidate = destinations[slot];
+            if (candidate == destination) {
+                return slot;
+            }
+            if (candidate == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Collects entries for a new table. The table shares the builder's arrays, so a
+     * builder can be built only once.
+     */
+    public static final class Builder {
+        private final int[] destinations;
+        private final int[] nextHops;
+        private final String[] nextHopNames;
+        private final Route[] routes;
+        private int size;
+        private boolean built;
+
+        /**
+         * @param capacity the most destinations the table will hold
+         */
+        public Builder(int capacity) {
+            int slots = 2;
+            while (slots < capacity * 2) {
+                slots <<= 1;
+            }
+            destinations = new int[slots];
+            Arrays.fill(destinations, EMPTY);
+            nextHops = new int[slots];
+            nextHopNames = new String[slots];
+            routes = new Route[slots];
+        }
+
+        private Builder(ForwardingTable table) {
+            destinations = table.destinations.clone();
+            nextHops = table.nextHops.clone();
+            nextHopNames = table.nextHopNames.clone();
+            routes = table.routes.clone();
+            size = table.size;
+        }
+
+        /**
+         * Sets the route toward a destination, replacing any earlier one.
+         */
+        public Builder put(int destination, int nextHop, String nextHopName, Route route) {
+            if (built) {
+                throw new IllegalStateException("Forwarding table already built");
+            }
+            if (destination < 0) {
+                throw new IllegalArgumentException("Negative node id " + destination);
+            }
+            int mask = destinations.length - 1;
+            int slot = mix(destination) & mask;
+            while (destinations[slot] != EMPTY && destinations[slot] != destination) {
+                slot = (slot + 1) & mask;
+            }
+            if (destinations[slot] == EMPTY) {
+                if ((size + 1) * 2 > destinations.length) {
+                    throw new IllegalStateException("Forwarding table capacity exceeded");
+                }
+                size++;
+            }
+            destinations[slot] = destination;
+            nextHops[slot] = nextHop;
+            nextHopNames[slot] = nextHopName;
+            routes[slot] = route;
+            return this;
+        }
+
+        public ForwardingTable build() {
+            built = true;
+            return new ForwardingTable(destinations, nextHops, nextHopNames, routes, size);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.vrouting.network.socket.core;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forwarding decisions and anti-entropy repair for
+ * {@link com.vrouting.network.socket.config.BroadcastMode#GOSSIP}.
+ *
+ * <p>A broadcast keeps one id across all hops, stamped by its origin under
+ * {@link #BROADCAST_ID}. Each node remembers the last
+ * {@link NetworkConfig#getGossipHistorySize()} broadcasts it has seen; a repeat is
+ * ignored, and a first sighting is forwarded with {@link #forwardProbability(int)} to up
+ * to {@link NetworkConfig#getGossipFanout()} random peers.
+ *
+ * <p>Gossip alone leaves some nodes out. To repair that, every
+ * {@link NetworkConfig#getGossipDigestInterval()} a node sends a
+ * {@link MessageType#GOSSIP_DIGEST} listing the broadcasts it remembers to one random
+ * peer. The peer answers with a {@link MessageType#GOSSIP_REQUEST} for those it has not
+ * seen and receives them as ordinary broadcast copies, which it then gossips onward.
+ */
+public class GossipProtocol {
+    private static final Logger logger = LoggerFactory.getLogger(GossipProtocol.class);
+
+    /**
+     * Payload key of the id a broadcast keeps across hops.
+     */
+    public static final String BROADCAST_ID = "broadcastId";
+
+    /**
+     * Payload key of the broadcast ids in a digest or request.
+     */
+    public static final String IDS = "ids";
+
+    /**
+     * Peer count at which an adaptive node forwards with the configured probability.
+     */
+    static final int REFERENCE_DEGREE = 8;
+
+    private final Node node;
+    private final NetworkConfig config;
+    private final Random random;
+    private final Map<String, Message> history;
+    private ScheduledExecutorService scheduler;
+
+    public GossipProtocol(Node node) {
+        this(node, new Random());
+    }
+
+    GossipProtocol(Node node, Random random) {
+        this.node = node;
+        this.config = node.getConfig();
+        this.random = random;
+        int capacity = config.getGossipHistorySize();
+        this.history = new LinkedHashMap<String, Message>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Message> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Starts sending periodic digests, unless repair is disabled.
+     */
+    public synchronized void start() {
+        long interval = config.getGossipDigestInterval();
+        if (scheduler == null && interval > 0) {
+            scheduler = config.getExecutorProvider().newScheduler("gossip-" + node.getNodeId(), 1);
+            scheduler.scheduleAtFixedRate(this::sendDigest, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        synchronized (history) {
+            history.clear();
+        }
+    }
+
+    /**
+     * Records a broadcast, stamping it with its broadcast id if it has none yet.
+     *
+     * @return false if the broadcast was seen before
+     */
+    public boolean record(Message message) {
+        String id = message.getPayload(BROADCAST_ID, String.class);
+        if (id == null) {
+            id = message.getId();
+            message.setPayload(BROADCAST_ID, id);
+        }
+        synchronized (history) {
+            if (history.containsKey(id)) {
+                return false;
+            }
+            history.put(id, message.copy());
+            return true;
+        }
+    }
+
+    /**
+     * Gets the probability of forwarding a first sighting for a node with the given
+     * number of peers.
+     */
+    public double forwardProbability(int degree) {
+        double probability = config.getGossipProbability();
+        if (config.isGossipAdaptive()) {
+            probability = Math.min(1.0, probability * REFERENCE_DEGREE / Math.max(1, degree));
+        }
+        return probability;
+    }
+
+    /**
+     * Decides at random whether to forward a first sighting.
+     */
+    public boolean shouldForward(int degree) {
+        return random.nextDouble() < forwardProbability(degree);
+    }
+
+    /**
+     * Picks the peers to forward to: all candidates, or a random
+     * {@link NetworkConfig#getGossipFanout()} of them.
+     */
+    public int[] selectTargets(int[] candidates) {
+        int fanout = config.getGossipFanout();
+        if (fanout == 0 || fanout >= candidates.length) {
+            return candidates;
+        }
+        int[] shuffled = candidates.clone();
+        for (int i = 0; i < fanout; i++) {
+            int j = i + random.nextInt(shuffled.length - i);
+            int swap = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = swap;
+        }
+        int[] targets = new int[fanout];
+        System.arraycopy(shuffled, 0, targets, 0, fanout);
+        return targets;
+    }
+
+    /**
+     * Handles a digest or repair request addressed to this node.
+     *
+     * @return whether the message was a gossip message
+     */
+    public boolean handle(Message message) {
+        if (message.getType() == MessageType.GOSSIP_DIGEST) {
+            handleDigest(message);
+            return true;
+        }
+        if (message.getType() == MessageType.GOSSIP_REQUEST) {
+            handleRequest(message);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Creates a digest of the remembered broadcasts for a peer.
+     */
+    public Message createDigest(String peerId) {
+        Message digest = new Message(node.getNodeId(), peerId, MessageType.GOSSIP_DIGEST);
+        synchronized (history) {
+            digest.setPayload(IDS, history.keySet().toArray(new String[0]));
+        }
+        return digest;
+    }
+
+    /**
+     * Gets the number of remembered broadcasts.
+     */
+    public int getHistorySize() {
+        synchronized (history) {
+            return history.size();
+        }
+    }
+
+    private void sendDigest() {
+        try {
+            int[] peers = node.getPeerDirectory().getInternedPeerIds();
+            if (peers.length == 0 || getHistorySize() == 0) {
+                return;
+            }
+            int peer = peers[random.nextInt(peers.length)];
+            node.sendMessage(createDigest(NodeIdRegistry.global().nameOf(peer)));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to send gossip digest from {}", node.getNodeId(), e);
+        }
+    }
+
+    private void handleDigest(Message digest) {
+        String[] ids = digest.getPayload(IDS, String[].class);
+        if (ids == null) {
+            return;
+        }
+        List<String> missing = new ArrayList<>();
+        synchronized (history) {
+            for (String id : ids) {
+                if (!history.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            Message request = new Message(node.getNodeId(), digest.getSourceNodeId(), MessageType.GOSSIP_REQUEST);
+            request.setPayload(IDS, missing.toArray(new String[0]));
+            node.sendMessage(request);
+        }
+    }
+
+    private void handleRequest(Message request) {
+        String[] ids = request.getPayload(IDS, String[].class);
+        if (ids == null) {
+            return;
+        }
+        List<Message> repairs = new ArrayList<>();
+        synchronized (history) {
+            for (String id : ids) {
+                Message broadcast = history.get(id);
+                if (broadcast != null) {
+                    Message copy = broadcast.copy();
+                    copy.setDestinationNodeId(request.getSourceNodeId());
+                    repairs.add(copy);
+                }
+            }
+        }
+        for (Message repair : repairs) {
+            node.sendMessage(repair);
+        }
+        logger.debug("Repaired {} broadcast(s) for {}", repairs.size(), request.getSourceNodeId());
+    }
+}
@@ -2,12 +2,14 @@ package com.vrouting.network.socket.core;
 
 import com.vrouting.network.socket.message.Message;
 import com.vrouting.network.socket.message.MessageType;
+import com.vrouting.network.socket.message.NodeStatus;
+import com.vrouting.network.socket.transport.MulticastHeartbeatChannel;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.Map;
 import java.util.HashMap;
+import java.io.IOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,6 +21,7 @@ public class HeartbeatManager {
     private Phase currentPhase;
     private long currentInterval;
     private final AtomicInteger heartbeatCount;
+    private volatile MulticastHeartbeatChannel multicastChannel;
     
     // Constants for heartbeat phases
     private static final long INITIAL_INTERVAL = 1000; // 1 second
@@ -29,7 +32,7 @@ public class HeartbeatManager {
     
     public HeartbeatManager(Node node) {
         this.node = node;
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.scheduler = newScheduler();
         this.phaseIntervals = new HashMap<>();
         this.heartbeatCount = new AtomicInteger(0);
         
@@ -38,6 +41,10 @@ public class HeartbeatManager {
         this.currentInterval = INITIAL_INTERVAL;
     }
     
+    private ScheduledExecutorService newScheduler() {
+        return node.getConfig().getExecutorProvider().newScheduler("heartbeat-" + node.getNodeId(), 1);
+    }
+    
     private void initializePhaseIntervals() {
         phaseIntervals.put(Phase.DISCOVERY, INITIAL_INTERVAL);
         phaseIntervals.put(Phase.STABILIZATION, STABLE_INTERVAL);
@@ -46,9 +53,20 @@ public class HeartbeatManager {
     
     public void start() {
         logger.info("Starting heartbeat manager with initial interval: {} ms", currentInterval);
+        if (node.getConfig().isMulticastHeartbeats() && multicastChannel == null) {
+            openMulticastChannel();
+        }
         scheduler.scheduleAtFixedRate(this::sendHeartbeat, 0, currentInterval, TimeUnit.MILLISECONDS);
     }
     
+    private void openMulticastChannel() {
+        try {
+            multicastChannel = new MulticastHeartbeatChannel(node.getConfig(), node.getNodeId(), node::processMessage);
+        } catch (IOException e) {
+            logger.warn("Multicast heartbeats unavailable, using unicast: {}", e.getMessage());
+        }
+    }
+    
     private void sendHeartbeat() {
         try {
             MessageType heartbeatType;
@@ -66,9 +84,12 @@ public class HeartbeatManager {
                     heartbeatType = MessageType.HEARTBEAT_STABLE;
             }
             
-            // Create and send heartbeat message
+            // Create and send heartbeat message, one datagram for all neighbors when possible
             Message heartbeat = new Message(node.getNodeId(), "broadcast", heartbeatType);
-            node.broadcast(heartbeat);
+            MulticastHeartbeatChannel multicast = multicastChannel;
+            if (multicast == null || !multicast.send(heartbeat)) {
+                node.broadcast(heartbeat);
+            }
             
             // Update phase based on heartbeat count
             updatePhase();
@@ -105,7 +126,7 @@ public class HeartbeatManager {
             logger.warn("Interrupted while shutting down heartbeat scheduler", e);
         }
         
-        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler = newScheduler();
         start();
         
         // Notify node of phase change
@@ -118,9 +139,7 @@ public class HeartbeatManager {
         
         // Create and return heartbeat response
         Message response = new Message(node.getNodeId(), message.getSourceNodeId(), MessageType.HEARTBEAT_RESPONSE);
-        response.setPhase(currentPhase);
-        response.setDepth(node.getDepth());
-        response.setMetrics(node.getMetrics());
+        response.setNodeStatus(new NodeStatus(currentPhase, node.getDepth(), node.getMetrics()));
         return response;
     }
     
@@ -141,12 +160,24 @@ public class HeartbeatManager {
             Thread.currentThread().interrupt();
             logger.warn("Interrupted while stopping heartbeat manager", e);
         }
+        if (multicastChannel != null) {
+            multicastChannel.close();
+            multicastChannel = null;
+        }
     }
     
     public Phase getCurrentPhase() {
         return currentPhase;
     }
     
+    /**
+     * Checks whether heartbeats are currently going out over multicast.
+     */
+    public boolean isMulticastActive() {
+        MulticastHeartbeatChannel multicast = multicastChannel;
+        return multicast != null && multicast.isOpen();
+    }
+    
     public long getCurrentInterval() {
         return currentInterval;
     }
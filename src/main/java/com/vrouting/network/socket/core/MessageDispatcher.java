@@ -1,30 +1,76 @@
 package com.vrouting.network.socket.core;
 
 import com.vrouting.network.socket.message.Message;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import com.vrouting.network.socket.config.BroadcastMode;
+import com.vrouting.network.socket.message.MessageId;
+import com.vrouting.network.socket.message.MessagePool;
+import com.vrouting.network.socket.message.MessageType;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 /**
  * Handles message routing and dispatching to appropriate handlers.
+ *
+ * <p>Duplicates are dropped by a {@link DuplicateFilter} sized by
+ * {@link com.vrouting.network.socket.config.NetworkConfig#getDuplicateWindow()},
+ * {@link com.vrouting.network.socket.config.NetworkConfig#getDuplicateSources()} and
+ * {@link com.vrouting.network.socket.config.NetworkConfig#getDuplicateRetention()}, so
+ * the memory spent on them stays bounded however long the node runs.
+ *
+ * <p>Only broadcasts of {@link #isFlooded flooded} types travel beyond the sender's
+ * neighbors; heartbeats go one hop. With {@link BroadcastMode#MPR}, each flooded
+ * broadcast names the sender's multipoint relays under {@link #RELAYS} and keeps its
+ * origin's id under {@link GossipProtocol#BROADCAST_ID} across hops. A node delivers
+ * a broadcast the first time it sees that id from that origin, and re-broadcasts it at
+ * most once, on the first copy whose sender named it as a relay. Broadcasts without a
+ * relay list, such as those from nodes still flooding, are always re-broadcast. With
+ * {@link BroadcastMode#GOSSIP} forwarding and repair are decided by a
+ * {@link GossipProtocol}, and a broadcast is likewise delivered once.
+ *
+ * <p>DATA addressed to this node that carries a receipt id is answered with a DATA_ACK
+ * echoing it, and DATA_ACKs are handed to the node's {@link DeliveryTracker}.
  */
 public class MessageDispatcher {
     private static final Logger logger = Logger.getLogger(MessageDispatcher.class.getName());
     
+    /**
+     * Payload key of the relays a broadcast's sender chose, as an array of node ids.
+     */
+    public static final String RELAYS = "relays";
+    
     private final Node node;
-    private final Set<String> processedMessages;
+    private final DuplicateFilter processedMessages;
+    private final DuplicateFilter seenBroadcasts;
+    private final DuplicateFilter relayedBroadcasts;
+    private final MessagePool messagePool;
+    private final BroadcastMode broadcastMode;
+    private final GossipProtocol gossip;
+    private volatile RelaySet relays;
     
     public MessageDispatcher(Node node) {
         this.node = node;
-        this.processedMessages = ConcurrentHashMap.newKeySet();
+        this.processedMessages = new DuplicateFilter(node.getConfig().getDuplicateWindow(),
+            node.getConfig().getDuplicateSources(), node.getConfig().getDuplicateRetention());
+        this.seenBroadcasts = new DuplicateFilter(node.getConfig().getDuplicateWindow(),
+            node.getConfig().getDuplicateSources(), node.getConfig().getDuplicateRetention());
+        this.relayedBroadcasts = new DuplicateFilter(node.getConfig().getDuplicateWindow(),
+            node.getConfig().getDuplicateSources(), node.getConfig().getDuplicateRetention());
+        int poolSize = node.getConfig().getMessagePoolSize();
+        this.messagePool = poolSize > 0 ? new MessagePool(poolSize, node.getConfig().isMessagePoolDebug()) : null;
+        this.broadcastMode = node.getConfig().getBroadcastMode();
+        this.gossip = new GossipProtocol(node);
     }
     
     public void start() {
-        // Nothing to start - this is event-driven
+        // Event-driven, apart from gossip repair
+        if (broadcastMode == BroadcastMode.GOSSIP) {
+            gossip.start();
+        }
     }
     
     public void stop() {
-        processedMessages.clear();
+        gossip.stop();
+        cleanup();
     }
     
     public void dispatch(Message message) {
@@ -35,8 +81,22 @@ public class MessageDispatcher {
         String destinationId = message.getDestinationNodeId();
         
         if (node.getNodeId().equals(destinationId)) {
-            // Message is for us
-            node.processMessage(message);
+            // Message is for us; stream fragments are reassembled here
+            if (isBroadcastCopy(message)) {
+                boolean first = recordSighting(message);
+                if (first) {
+                    node.processMessage(message);
+                } else {
+                    logger.fine("Not delivering repeated broadcast: " + message.getId());
+                }
+                relay(message, first);
+            } else if (!node.getStreamManager().handle(message) && !gossip.handle(message)
+                && !node.getDeliveryTracker().handle(message)) {
+                node.processMessage(message);
+                if (message.getType() == MessageType.DATA && message.getReceiptId() != null) {
+                    acknowledge(message);
+                }
+            }
         } else if (destinationId == null) {
             // Broadcast message
             broadcast(message);
@@ -53,15 +113,145 @@ public class MessageDispatcher {
         
         // Add ourselves to the routing history
         message.addToRoute(node.getNodeId());
+        boolean flooded = isFlooded(message.getType());
+        if (flooded && broadcastMode == BroadcastMode.MPR) {
+            // Recorded as seen and relayed, so copies coming back are ignored
+            recordSighting(message);
+            markRelayed(message);
+            message.setPayload(RELAYS, relayNames());
+        }
         
         // Send to all peers except those in routing history
-        node.getPeerDirectory().getAllPeers().stream()
-            .filter(peerId -> !message.hasVisited(peerId))
-            .forEach(peerId -> {
-                Message copy = message.copy();
-                copy.setDestinationNodeId(peerId);
-                node.sendMessage(copy);
-            });
+        int[] peers = node.getPeerDirectory().getInternedPeerIds();
+        int[] targets = new int[peers.length];
+        int count = 0;
+        for (int peerId : peers) {
+            if (!message.hasVisited(peerId)) {
+                targets[count++] = peerId;
+            }
+        }
+        targets = Arrays.copyOf(targets, count);
+        if (flooded && broadcastMode == BroadcastMode.GOSSIP) {
+            gossip.record(message);
+            targets = gossip.selectTargets(targets);
+        }
+        NodeIdRegistry nodeIds = NodeIdRegistry.global();
+        for (int peerId : targets) {
+            Message copy = copyForSend(message);
+            copy.setDestinationNodeId(nodeIds.nameOf(peerId));
+            node.sendMessage(copy);
+        }
+    }
+    
+    /**
+     * Re-broadcasts a broadcast received from a neighbor: with gossip, the first time
+     * it is seen and with the gossip probability; otherwise if this node is one of the
+     * relays its sender chose, or if the sender named none, and it has not relayed the
+     * broadcast yet.
+     */
+    public void relayBroadcast(Message message) {
+        relay(message, recordSighting(message));
+    }
+    
+    private void relay(Message message, boolean first) {
+        if (broadcastMode == BroadcastMode.GOSSIP) {
+            int degree = node.getPeerDirectory().getInternedPeerIds().length;
+            if (!first || !gossip.shouldForward(degree)) {
+                return;
+            }
+        } else if (!isRelayFor(message) || !markRelayed(message)) {
+            return;
+        }
+        Message onward = message.copy();
+        onward.setDestinationNodeId(null);
+        broadcast(onward);
+    }
+    
+    /**
+     * Answers a DATA message with a DATA_ACK carrying its receipt id back to the sender.
+     */
+    private void acknowledge(Message message) {
+        Message ack = new Message(node.getNodeId(), message.getSourceNodeId(), MessageType.DATA_ACK);
+        ack.setReceiptId(message.getReceiptId());
+        node.sendMessage(ack);
+    }
+    
+    /**
+     * Records a broadcast copy under its origin and broadcast id, stamping the id at the
+     * origin.
+     *
+     * @return false if the broadcast was seen before
+     */
+    private boolean recordSighting(Message message) {
+        if (broadcastMode == BroadcastMode.GOSSIP) {
+            return gossip.record(message);
+        }
+        String id = message.getPayload(GossipProtocol.BROADCAST_ID, String.class);
+        if (id == null) {
+            id = message.getId();
+            message.setPayload(GossipProtocol.BROADCAST_ID, id);
+        }
+        return seenBroadcasts.add(message.getSourceNodeId(), MessageId.parse(id));
+    }
+    
+    /**
+     * @return false if this node has already relayed the broadcast
+     */
+    private boolean markRelayed(Message message) {
+        String id = message.getPayload(GossipProtocol.BROADCAST_ID, String.class);
+        return id == null || relayedBroadcasts.add(message.getSourceNodeId(), MessageId.parse(id));
+    }
+    
+    /**
+     * Returns whether a message addressed to this node is one copy of a broadcast.
+     */
+    private boolean isBroadcastCopy(Message message) {
+        return isFlooded(message.getType())
+            && (message.getPayload(RELAYS, String[].class) != null
+                || message.getPayload(GossipProtocol.BROADCAST_ID, String.class) != null);
+    }
+    
+    /**
+     * Returns whether broadcasts of a type are relayed beyond the sender's neighbors.
+     * Heartbeats only describe direct links, and data is routed rather than flooded.
+     */
+    public static boolean isFlooded(MessageType type) {
+        return !type.isData() && !type.isHeartbeat();
+    }
+    
+    /**
+     * Returns whether this node should re-broadcast a received broadcast.
+     */
+    public boolean isRelayFor(Message message) {
+        String[] named = message.getPayload(RELAYS, String[].class);
+        return named == null || Arrays.asList(named).contains(node.getNodeId());
+    }
+    
+    /**
+     * Gets this node's current multipoint relays, recomputed only when the observed
+     * topology has changed.
+     */
+    public String[] getRelays() {
+        return relayNames().clone();
+    }
+    
+    private String[] relayNames() {
+        PeerDirectory peers = node.getPeerDirectory();
+        AdjacencyGraph graph = peers.getAdjacencyGraph();
+        long version = graph.version();
+        int[] neighbors = peers.getInternedPeerIds();
+        RelaySet current = relays;
+        if (current == null || current.version != version || current.peerCount != neighbors.length) {
+            NodeIdRegistry nodeIds = NodeIdRegistry.global();
+            int[] chosen = MprSelector.select(nodeIds.intern(node.getNodeId()), neighbors, graph::neighbors);
+            String[] names = new String[chosen.length];
+            for (int i = 0; i < chosen.length; i++) {
+                names[i] = nodeIds.nameOf(chosen[i]);
+            }
+            current = new RelaySet(version, neighbors.length, names);
+            relays = current;
+        }
+        return current.names;
     }
     
     public Message handleData(Message message) {
@@ -86,7 +276,7 @@ public class MessageDispatcher {
     }
     
     private boolean isValidMessage(Message message) {
-        if (!processedMessages.add(message.getId())) {
+        if (!processedMessages.add(message.getSourceNodeId(), message.getMessageId())) {
             logger.fine("Dropping duplicate message: " + message.getId());
             return false;
         }
@@ -107,7 +297,7 @@ public class MessageDispatcher {
         String nextHop = node.getRoutingManager().getNextHop(message.getDestinationNodeId());
         
         if (nextHop != null) {
-            Message copy = message.copy();
+            Message copy = copyForSend(message);
             copy.setDestinationNodeId(nextHop);
             node.sendMessage(copy);
         } else {
@@ -115,7 +305,53 @@ public class MessageDispatcher {
         }
     }
     
+    /**
+     * Copies a message for one recipient, from the pool when pooling is enabled. The
+     * copy is owned by {@link Node#sendMessage}, which passes it on to the transport.
+     */
+    private Message copyForSend(Message message) {
+        return messagePool != null ? messagePool.copyOf(message) : message.copy();
+    }
+    
+    /**
+     * Gets the gossip state used with {@link BroadcastMode#GOSSIP}.
+     */
+    public GossipProtocol getGossipProtocol() {
+        return gossip;
+    }
+    
+    /**
+     * Gets the pool used for outgoing copies, or null when pooling is disabled.
+     */
+    public MessagePool getMessagePool() {
+        return messagePool;
+    }
+    
+    /**
+     * Gets the filter used to drop duplicate messages.
+     */
+    public DuplicateFilter getDuplicateFilter() {
+        return processedMessages;
+    }
+    
     public void cleanup() {
         processedMessages.clear();
+        seenBroadcasts.clear();
+        relayedBroadcasts.clear();
+    }
+    
+    /**
+     * Relays chosen for one version of the topology.
+     */
+    private static final class RelaySet {
+        final long version;
+        final int peerCount;
+        final String[] names;
+        
+        RelaySet(long version, int peerCount, String[] names) {
+            this.version = version;
+            this.peerCount = peerCount;
+            this.names = names;
+        }
     }
 }
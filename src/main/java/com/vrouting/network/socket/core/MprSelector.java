@@ -0,0 +1,123 @@
+package com.vrouting.network.socket.core;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Chooses multipoint relays: a small subset of a node's one-hop neighbors such that
+ * every two-hop neighbor is adjacent to at least one of them. If only the relays
+ * re-broadcast what a node sends, a broadcast still reaches every node of a connected
+ * network while most nodes stay silent.
+ *
+ * <p>Uses the greedy heuristic of RFC 3626, section 8.3.1: first every neighbor that is
+ * the only way to reach some two-hop neighbor, then repeatedly the neighbor covering
+ * the most two-hop neighbors not yet covered, preferring the higher degree on a tie.
+ * The result is not always minimal but is within a logarithmic factor of it.
+ */
+public final class MprSelector {
+    private MprSelector() {
+    }
+
+    /**
+     * Selects relays among {@code neighbors}.
+     *
+     * @param localId the selecting node, excluded from the two-hop neighborhood
+     * @param neighbors the one-hop neighbors
+     * @param neighborsOf gives the neighbors of a one-hop neighbor
+     * @return the sorted ids of the chosen relays
+     */
+    public static int[] select(int localId, int[] neighbors, IntFunction<int[]> neighborsOf) {
+        int[] oneHop = neighbors.clone();
+        Arrays.sort(oneHop);
+
+        // Two-hop neighbors, and for each neighbor the indexes of those it reaches
+        NodeIdMap<Integer> twoHopIndex = new NodeIdMap<>();
+        int[][] reaches = new int[oneHop.length][];
+        int[] coverCount = new int[0];
+        for (int i = 0; i < oneHop.length; i++) {
+            int[] adjacent = neighborsOf.apply(oneHop[i]);
+            int[] reached = new int[adjacent.length];
+            int count = 0;
+            for (int node : adjacent) {
+                if (node == localId || Arrays.binarySearch(oneHop, node) >= 0) {
+                    continue;
+                }
+                Integer index = twoHopIndex.get(node);
+                if (index == null) {
+                    index = twoHopIndex.size();
+                    twoHopIndex.put(node, index);
+                    if (index == coverCount.length) {
+                        coverCount = Arrays.copyOf(coverCount, Math.max(8, index * 2));
+                    }
+                }
+                coverCount[index]++;
+                reached[count++] = index;
+            }
+            reaches[i] = Arrays.copyOf(reached, count);
+        }
+
+        int twoHopCount = twoHopIndex.size();
+        boolean[] covered = new boolean[twoHopCount];
+        boolean[] chosen = new boolean[oneHop.length];
+        int uncovered = twoHopCount;
+        int chosenCount = 0;
+
+        // Neighbors that are the sole way to reach some two-hop neighbor
+        for (int i = 0; i < oneHop.length; i++) {
+            for (int index : reaches[i]) {
+                if (coverCount[index] == 1) {
+                    chosen[i] = true;
+                    break;
+                }
+            }
+            if (chosen[i]) {
+                chosenCount++;
+                uncovered -= cover(reaches[i], covered);
+            }
+        }
+
+        // Then greedily by how many uncovered two-hop neighbors each adds
+        while (uncovered > 0) {
+            int best = -1;
+            int bestGain = 0;
+            for (int i = 0; i < oneHop.length; i++) {
+                if (chosen[i]) {
+                    continue;
+                }
+                int gain = 0;
+                for (int index : reaches[i]) {
+                    if (!covered[index]) {
+                        gain++;
+                    }
+                }
+                if (gain > bestGain || (gain == bestGain && gain > 0 && reaches[i].length > reaches[best].length)) {
+                    best = i;
+                    bestGain = gain;
+                }
+            }
+            chosen[best] = true;
+            chosenCount++;
+            uncovered -= cover(reaches[best], covered);
+        }
+
+        int[] relays = new int[chosenCount];
+        int next = 0;
+        for (int i = 0; i < oneHop.length; i++) {
+            if (chosen[i]) {
+                relays[next++] = oneHop[i];
+            }
+        }
+        return relays;
+    }
+
+    private static int cover(int[] reached, boolean[] covered) {
+        int newlyCovered = 0;
+        for (int index : reached) {
+            if (!covered[index]) {
+                covered[index] = true;
+                newlyCovered++;
+            }
+        }
+        return newlyCovered;
+    }
+}
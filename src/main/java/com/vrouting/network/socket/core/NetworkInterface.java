@@ -1,31 +1,65 @@
 package com.vrouting.network.socket.core;
 
 import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.config.TransportMode;
 import com.vrouting.network.socket.message.Message;
 import com.vrouting.network.socket.message.MessageHandler;
+import com.vrouting.network.socket.transport.BufferPool;
+import com.vrouting.network.socket.transport.ConnectionPool;
+import com.vrouting.network.socket.transport.FrameCodec;
+import com.vrouting.network.socket.transport.FrameDecoder;
+import com.vrouting.network.socket.transport.NioTransport;
+import com.vrouting.network.socket.transport.PeerConnection;
+import com.vrouting.network.socket.transport.StreamPeerConnection;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.concurrent.*;
 
 /**
  * Handles network communication and socket operations.
+ * Uses blocking sockets by default; {@link TransportMode#NIO} switches to the
+ * selector-based {@link NioTransport}. Outbound messages in either mode go through a
+ * {@link ConnectionPool} of long-lived per-peer connections.
  */
 public class NetworkInterface {
     private final NetworkConfig config;
     private final ExecutorService executor;
+    private final ExecutorService outboundReaders;
     private final MessageHandler messageHandler;
+    private final BufferPool bufferPool;
+    private final ConnectionPool connectionPool;
+    private NioTransport nioTransport;
     private ServerSocket serverSocket;
     private volatile boolean running;
     
     public NetworkInterface(NetworkConfig config, MessageHandler messageHandler) {
         this.config = config;
         this.messageHandler = messageHandler;
-        this.executor = Executors.newFixedThreadPool(config.getMaxConnections());
+        this.executor = config.getTransportMode() == TransportMode.NIO
+            ? null
+            : config.getExecutorProvider().newBlockingExecutor("network-interface", config.getMaxConnections());
+        // Pooled outbound connections watch for their peer closing on separate threads,
+        // so they never take threads from inbound connections
+        this.outboundReaders = config.getTransportMode() == TransportMode.NIO
+            ? null
+            : config.getExecutorProvider().newBlockingExecutor("network-interface-outbound", config.getMaxConnections());
+        this.bufferPool = new BufferPool(config);
+        this.connectionPool = new ConnectionPool(config, this::openConnection, bufferPool);
         this.running = false;
     }
     
     public void start() throws IOException {
+        if (config.getTransportMode() == TransportMode.NIO) {
+            nioTransport = new NioTransport(config, messageHandler, bufferPool);
+            nioTransport.start();
+            running = true;
+            return;
+        }
+        
         serverSocket = new ServerSocket(config.getPort());
         running = true;
         
@@ -52,6 +86,8 @@ public class NetworkInterface {
             try {
                 socket.setSoTimeout((int) config.getConnectionTimeout());
                 processClientMessages(socket);
+            } catch (EOFException e) {
+                // Peer closed the connection
             } catch (IOException e) {
                 // TODO: Implement proper error handling
                 e.printStackTrace();
@@ -66,44 +102,48 @@ public class NetworkInterface {
     }
     
     private void processClientMessages(Socket socket) throws IOException {
-        // TODO: Implement proper message serialization/deserialization
-        try (ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
-             ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream())) {
+        FrameDecoder decoder = new FrameDecoder(bufferPool);
+        try (ReadableByteChannel in = Channels.newChannel(socket.getInputStream());
+             WritableByteChannel out = Channels.newChannel(socket.getOutputStream())) {
             
             while (running) {
-                try {
-                    Message message = (Message) in.readObject();
-                    Message response = messageHandler.handleMessage(message);
-                    if (response != null) {
-                        out.writeObject(response);
-                        out.flush();
-                    }
-                } catch (ClassNotFoundException e) {
-                    // TODO: Implement proper error handling
-                    break;
+                // Stop reading from the socket while the handler is saturated
+                messageHandler.awaitCapacity();
+                Message message = decoder.readFrame(in);
+                Message response = messageHandler.handleMessage(message);
+                if (response != null && response != message) {
+                    FrameCodec.write(out, response, bufferPool);
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            decoder.release();
         }
     }
     
     public void sendMessage(String targetAddress, int targetPort, Message message) {
-        executor.submit(() -> {
-            try (Socket socket = new Socket(targetAddress, targetPort);
-                 ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream())) {
-                
-                socket.setSoTimeout((int) config.getConnectionTimeout());
-                out.writeObject(message);
-                out.flush();
-                
-            } catch (IOException e) {
-                // TODO: Implement proper error handling and retry logic
-                e.printStackTrace();
+        connectionPool.send(new InetSocketAddress(targetAddress, targetPort), message);
+    }
+    
+    private PeerConnection openConnection(InetSocketAddress address) throws IOException {
+        if (config.getTransportMode() == TransportMode.NIO) {
+            if (nioTransport == null) {
+                throw new IOException("NIO transport has not been started");
             }
-        });
+            return nioTransport.connect(address);
+        }
+        return StreamPeerConnection.open(address, config, outboundReaders);
     }
     
     public void shutdown() {
         running = false;
+        connectionPool.shutdown();
+        if (nioTransport != null) {
+            nioTransport.shutdown();
+            return;
+        }
+        outboundReaders.shutdownNow();
         executor.shutdown();
         try {
             if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -121,7 +161,18 @@ public class NetworkInterface {
         return running;
     }
     
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+    
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+    
     public int getPort() {
+        if (nioTransport != null) {
+            return nioTransport.getPort();
+        }
         return serverSocket != null ? serverSocket.getLocalPort() : -1;
     }
 }
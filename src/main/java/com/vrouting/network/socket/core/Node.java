@@ -6,8 +6,12 @@ import com.vrouting.network.socket.message.MessageHandler;
 import com.vrouting.network.socket.message.MessageHandlerImpl;
 import com.vrouting.network.socket.message.MessageType;
 import com.vrouting.network.socket.cluster.CentralityCalculator;
+import com.vrouting.network.socket.stream.FragmentOutputStream;
+import com.vrouting.network.socket.stream.StreamListener;
+import com.vrouting.network.socket.stream.StreamManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
 
 public abstract class Node {
@@ -23,6 +27,8 @@ public abstract class Node {
     private final RoutingManager routingManager;
     private final MessageDispatcher messageDispatcher;
     private final CentralityCalculator centralityCalculator;
+    private final StreamManager streamManager;
+    private final DeliveryTracker deliveryTracker;
     private NodeMetrics metrics;
     private boolean isClusterHead;
     
@@ -37,6 +43,8 @@ public abstract class Node {
         this.routingManager = new RoutingManager(this);
         this.messageDispatcher = new MessageDispatcher(this);
         this.centralityCalculator = new CentralityCalculator(this, peerDirectory);
+        this.streamManager = new StreamManager(nodeId, config, this::sendMessage);
+        this.deliveryTracker = new DeliveryTracker(nodeId, config);
         this.metrics = new NodeMetrics();
         this.isClusterHead = false;
     }
@@ -55,6 +63,8 @@ public abstract class Node {
         heartbeatManager.stop();
         routingManager.stop();
         messageDispatcher.stop();
+        streamManager.close();
+        deliveryTracker.close();
         onStop();
         logger.info("Node {} stopped", nodeId);
     }
@@ -67,6 +77,45 @@ public abstract class Node {
         messageDispatcher.dispatch(message);
     }
     
+    /**
+     * Sends a DATA message and tracks its delivery without blocking. The destination
+     * answers with a DATA_ACK, which completes the returned future; if none arrives
+     * within {@link NetworkConfig#getDeliveryTimeout()} the future fails with a
+     * {@link java.util.concurrent.TimeoutException}.
+     */
+    public CompletableFuture<DeliveryReceipt> sendAsync(Message message) {
+        return sendAsync(message, config.getDeliveryTimeout());
+    }
+    
+    /**
+     * Sends a DATA message as {@link #sendAsync(Message)} does, with its own timeout in
+     * milliseconds.
+     */
+    public CompletableFuture<DeliveryReceipt> sendAsync(Message message, long timeoutMillis) {
+        if (message.getType() != MessageType.DATA) {
+            throw new IllegalArgumentException("Only DATA messages are acknowledged, not " + message.getType());
+        }
+        CompletableFuture<DeliveryReceipt> receipt = deliveryTracker.track(message, timeoutMillis);
+        try {
+            sendMessage(message);
+        } catch (RuntimeException e) {
+            receipt.completeExceptionally(e);
+        }
+        return receipt;
+    }
+    
+    /**
+     * Opens a stream of DATA_FRAGMENT messages to another node for a transfer too large
+     * to send as one DATA message.
+     */
+    public FragmentOutputStream openDataStream(String destinationNodeId) {
+        return streamManager.open(destinationNodeId);
+    }
+    
+    public void setStreamListener(StreamListener listener) {
+        streamManager.setStreamListener(listener);
+    }
+    
     public Message processMessage(Message message) {
         return messageHandler.handleMessage(message);
     }
@@ -116,6 +165,14 @@ public abstract class Node {
         return centralityCalculator;
     }
     
+    public StreamManager getStreamManager() {
+        return streamManager;
+    }
+    
+    public DeliveryTracker getDeliveryTracker() {
+        return deliveryTracker;
+    }
+    
     public NodeMetrics getMetrics() {
         return metrics;
     }
@@ -161,7 +218,12 @@ public abstract class Node {
 
     public Message handleData(Message message) {
         Message result = messageDispatcher.handleData(message);
-        return result != null ? result : new Message(nodeId, message.getSourceNodeId(), MessageType.DATA_ACK);
+        if (result != null) {
+            return result;
+        }
+        Message ack = new Message(nodeId, message.getSourceNodeId(), MessageType.DATA_ACK);
+        ack.setReceiptId(message.getReceiptId());
+        return ack;
     }
 
     public int getDepth() {
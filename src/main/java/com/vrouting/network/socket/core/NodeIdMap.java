@@ -0,0 +1,229 @@
+package com.vrouting.network.socket.core;
+
+import java.util.function.IntFunction;
+
+/**
+ * Map from interned node ids to values, using open addressing over an {@code int[]}
+ * so lookups hash an int and compare ints, with no boxing or per-entry objects.
+ *
+ * <p>All methods are synchronized; the structure is meant for per-node tables that
+ * see many reads and occasional writes.
+ */
+public final class NodeIdMap<V> {
+    private static final int EMPTY = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    public NodeIdMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public NodeIdMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public synchronized V get(int key) {
+        int slot = find(key);
+        return slot >= 0 ? value(slot) : null;
+    }
+
+    public synchronized boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return the previous value, or null
+     */
+    public synchronized V put(int key, V value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative node id " + key);
+        }
+        int slot = find(key);
+        if (slot >= 0) {
+            V previous = value(slot);
+            values[slot] = value;
+            return previous;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        insert(key, value);
+        size++;
+        return null;
+    }
+
+    public synchronized V computeIfAbsent(int key, IntFunction<? extends V> factory) {
+        V value = get(key);
+        if (value == null) {
+            value = factory.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * @return the removed value, or null
+     */
+    public synchronized V remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V previous = value(slot);
+        deleteSlot(slot);
+        size--;
+        return previous;
+    }
+
+    /**
+     * Removes every entry whose value matches the predicate.
+     *
+     * @return the number of entries removed
+     */
+    public synchronized int removeIf(EntryPredicate<? super V> predicate) {
+        int removed = 0;
+        int slot = 0;
+        while (slot < keys.length) {
+            // Deleting shifts later entries back into this slot, so only advance on keep
+            if (keys[slot] != EMPTY && predicate.test(keys[slot], value(slot))) {
+                deleteSlot(slot);
+                size--;
+                removed++;
+            } else {
+                slot++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized void forEach(EntryConsumer<? super V> consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                consumer.accept(keys[slot], value(slot));
+            }
+        }
+    }
+
+    /**
+     * Gets a snapshot of the keys, in no particular order.
+     */
+    public synchronized int[] keys() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int key : keys) {
+            if (key != EMPTY) {
+                result[count++] = key;
+            }
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    public synchronized void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            int candidate = keys[slot];
+            if (candidate == key) {
+                return slot;
+            }
+            if (candidate == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private void insert(int key, Object value) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    /**
+     * Empties a slot and shifts back following entries of the same probe run, so
+     * lookups never need tombstones.
+     */
+    private void deleteSlot(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        values[gap] = null;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        java.util.Arrays.fill(keys, EMPTY);
+        values = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int slot) {
+        return (V) values[slot];
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Callback for {@link #forEach}.
+     */
+    public interface EntryConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    /**
+     * Filter for {@link #removeIf}.
+     */
+    public interface EntryPredicate<V> {
+        boolean test(int key, V value);
+    }
+}
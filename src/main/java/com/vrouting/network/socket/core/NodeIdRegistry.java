@@ -0,0 +1,150 @@
+package com.vrouting.network.socket.core;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps node id strings to dense ints so the routing structures can hash and compare
+ * plain ints instead of walking strings.
+ *
+ * <p>Ids are assigned in order of first sight, starting at 0, and never reused. The
+ * {@link #global()} registry is shared by every node in the JVM, so an int taken from
+ * a {@link com.vrouting.network.socket.message.Message} route means the same node to
+ * every in-process component. Strings only cross into ints at the edges: the wire
+ * codec and the String-based public APIs.
+ *
+ * <p>Since ids are never reclaimed, ids read from received messages go through
+ * {@link #internRemote}, which stops assigning new ids once the registry holds its
+ * remote limit. That covers ids decoded from the wire and those taken from heartbeats
+ * and route payloads, so peers sending made-up node ids cannot grow it without bound.
+ * Only ids the node itself chooses, such as its own, always intern.
+ */
+public final class NodeIdRegistry {
+    /**
+     * Returned by {@link #lookup} for ids that have never been interned.
+     */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Default number of ids past which {@link #internRemote} assigns no new ones.
+     */
+    public static final int DEFAULT_REMOTE_LIMIT = 1 << 16;
+
+    private static final NodeIdRegistry GLOBAL = new NodeIdRegistry();
+
+    private final Map<String, Integer> ids;
+    private volatile int remoteLimit;
+    private volatile String[] names;
+    private int size;
+
+    public NodeIdRegistry() {
+        this(DEFAULT_REMOTE_LIMIT);
+    }
+
+    /**
+     * @param remoteLimit number of interned ids past which {@link #internRemote}
+     *                    only resolves ids that are already known
+     */
+    public NodeIdRegistry(int remoteLimit) {
+        this.ids = new ConcurrentHashMap<>();
+        this.remoteLimit = remoteLimit;
+        this.names = new String[64];
+    }
+
+    /**
+     * Changes the number of interned ids past which {@link #internRemote} assigns no
+     * new ones. Ids already assigned are kept.
+     */
+    public void setRemoteLimit(int remoteLimit) {
+        this.remoteLimit = remoteLimit;
+    }
+    
+    /**
+     * Gets the registry shared by the whole JVM.
+     */
+    public static NodeIdRegistry global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Gets the int for a node id, assigning the next free one on first use.
+     */
+    public int intern(String nodeId) {
+        Integer id = ids.get(nodeId);
+        return id != null ? id : register(nodeId, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the int for a node id read from a received message, assigning a new one only
+     * while the registry holds fewer than its remote limit.
+     *
+     * @return the id, or {@link #UNKNOWN} if the id is new and the limit is reached
+     */
+    public int internRemote(String nodeId) {
+        if (nodeId == null) {
+            throw new NullPointerException("nodeId");
+        }
+        Integer id = ids.get(nodeId);
+        return id != null ? id : register(nodeId, remoteLimit);
+    }
+
+    private synchronized int register(String nodeId, int limit) {
+        Integer existing = ids.get(nodeId);
+        if (existing != null) {
+            return existing;
+        }
+        if (nodeId == null) {
+            throw new NullPointerException("nodeId");
+        }
+        if (size >= limit) {
+            return UNKNOWN;
+        }
+        int id = size;
+        String[] current = names;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = nodeId;
+        // Publish the name before the id so any reader holding the id can resolve it
+        names = current;
+        size = id + 1;
+        ids.put(nodeId, id);
+        return id;
+    }
+
+    /**
+     * Gets the int for a node id without assigning one.
+     *
+     * @return the id, or {@link #UNKNOWN}
+     */
+    public int lookup(String nodeId) {
+        if (nodeId == null) {
+            return UNKNOWN;
+        }
+        Integer id = ids.get(nodeId);
+        return id != null ? id : UNKNOWN;
+    }
+
+    /**
+     * Gets the node id string for an interned int.
+     */
+    public String nameOf(int id) {
+        String[] current = names;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            throw new IllegalArgumentException("Unknown node id " + id);
+        }
+        return current[id];
+    }
+
+    public int getRemoteLimit() {
+        return remoteLimit;
+    }
+    
+    /**
+     * Gets the number of interned node ids.
+     */
+    public int size() {
+        return ids.size();
+    }
+}
@@ -5,8 +5,11 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.Serializable;
 
-public class NodeMetrics {
+public class NodeMetrics implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
     private double batteryLevel;
     private double processingCapacity;
     private double networkStrength;
@@ -19,6 +22,13 @@ public class NodeMetrics {
         this.reliability = 1.0;
     }
     
+    public NodeMetrics(NodeMetrics other) {
+        this.batteryLevel = other.batteryLevel;
+        this.processingCapacity = other.processingCapacity;
+        this.networkStrength = other.networkStrength;
+        this.reliability = other.reliability;
+    }
+    
     public byte[] serialize() {
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
              DataOutputStream dos = new DataOutputStream(baos)) {
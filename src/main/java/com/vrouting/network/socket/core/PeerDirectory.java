@@ -1,16 +1,21 @@
 package com.vrouting.network.socket.core;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.NodeStatus;
 
+/**
+ * Tracks known peers and the observed topology. Peers and adjacency are keyed by
+ * {@link NodeIdRegistry#global()} ids; the String-based methods convert at the edge.
+ */
 public class PeerDirectory {
     private final Node node;
-    private final Map<String, PeerInfo> peers;
-    private final Map<String, Set<String>> adjacencyMatrix;
+    private final NodeIdRegistry nodeIds;
+    private final int localId;
+    private final NodeIdMap<PeerInfo> peers;
+    private final AdjacencyGraph adjacency;
     private final ScheduledExecutorService scheduler;
     private NodeState state;
     
@@ -21,9 +26,11 @@ public class PeerDirectory {
     
     public PeerDirectory(Node node) {
         this.node = node;
-        this.peers = new ConcurrentHashMap<>();
-        this.adjacencyMatrix = new ConcurrentHashMap<>();
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.nodeIds = NodeIdRegistry.global();
+        this.localId = nodeIds.intern(node.getNodeId());
+        this.peers = new NodeIdMap<>();
+        this.adjacency = new AdjacencyGraph();
+        this.scheduler = node.getConfig().getExecutorProvider().newScheduler("peer-directory-" + node.getNodeId(), 1);
         this.state = NodeState.DISCOVERY;
         
         // Schedule periodic cleanup
@@ -35,14 +42,28 @@ public class PeerDirectory {
         );
     }
     
+    /**
+     * Records a message from a peer. Ignored if the peer is new and the node id
+     * registry has no room for it.
+     */
     public void updatePeer(String peerId, Message message) {
-        PeerInfo info = peers.computeIfAbsent(peerId, k -> new PeerInfo(peerId));
+        int id = nodeIds.internRemote(peerId);
+        if (id == NodeIdRegistry.UNKNOWN) {
+            return;
+        }
+        PeerInfo info = peers.computeIfAbsent(id, k -> new PeerInfo(peerId));
         info.setLastSeen(System.currentTimeMillis());
         info.setMessage(message);
         info.addToRouteHistory(message);
+        NodeStatus status = message.getNodeStatus();
+        if (status != null) {
+            info.setPhase(status.getPhase());
+            info.setDepth(status.getDepth());
+            info.setMetrics(status.getMetrics());
+        }
         
         // Update adjacency matrix
-        updateAdjacencyMatrix(peerId, message);
+        updateAdjacency(id, message);
         
         // Check if we should recalculate centrality
         if (shouldRecalculateCentrality()) {
@@ -58,74 +79,98 @@ public class PeerDirectory {
     }
     
     public void updatePeer(String peerId, Phase phase, int depth, long timestamp) {
-        PeerInfo info = peers.computeIfAbsent(peerId, k -> new PeerInfo(peerId));
+        int id = nodeIds.internRemote(peerId);
+        if (id == NodeIdRegistry.UNKNOWN) {
+            return;
+        }
+        PeerInfo info = peers.computeIfAbsent(id, k -> new PeerInfo(peerId));
         info.setLastSeen(timestamp);
         info.setPhase(phase);
         info.setDepth(depth);
     }
     
     public void updatePeerMetrics(String peerId, NodeMetrics metrics) {
-        PeerInfo info = peers.get(peerId);
+        PeerInfo info = getPeerInfo(peerId);
         if (info != null) {
             info.setMetrics(metrics);
         }
     }
     
     public Set<String> getAllPeers() {
-        return new HashSet<>(peers.keySet());
+        return toNames(peers.keys());
     }
     
     public Set<String> getAllPeerIds() {
-        return new HashSet<>(peers.keySet());
+        return toNames(peers.keys());
+    }
+    
+    /**
+     * Gets the interned ids of all known peers.
+     */
+    public int[] getInternedPeerIds() {
+        return peers.keys();
     }
     
     public PeerInfo getPeerInfo(String peerId) {
+        int id = nodeIds.lookup(peerId);
+        return id != NodeIdRegistry.UNKNOWN ? peers.get(id) : null;
+    }
+    
+    public PeerInfo getPeerInfo(int peerId) {
         return peers.get(peerId);
     }
     
     public void removePeer(String peerId) {
-        peers.remove(peerId);
-        adjacencyMatrix.remove(peerId);
-        adjacencyMatrix.values().forEach(connections -> connections.remove(peerId));
+        int id = nodeIds.lookup(peerId);
+        if (id != NodeIdRegistry.UNKNOWN) {
+            peers.remove(id);
+            adjacency.removeNode(id);
+        }
     }
     
     public void updateAdjacencyMatrix(String peerId, Message message) {
-        Set<String> connections = adjacencyMatrix.computeIfAbsent(peerId, k -> new HashSet<>());
-        connections.add(node.getNodeId());
-        
+        int id = nodeIds.internRemote(peerId);
+        if (id != NodeIdRegistry.UNKNOWN) {
+            updateAdjacency(id, message);
+        }
+    }
+    
+    private void updateAdjacency(int peerId, Message message) {
         // Add bidirectional connection
-        Set<String> myConnections = adjacencyMatrix.computeIfAbsent(node.getNodeId(), k -> new HashSet<>());
-        myConnections.add(peerId);
+        adjacency.addEdge(peerId, localId);
         
         // Update connections based on message route history
-        if (message.getRouteHistory() != null) {
-            for (int i = 0; i < message.getRouteHistory().size() - 1; i++) {
-                String source = message.getRouteHistory().get(i);
-                String target = message.getRouteHistory().get(i + 1);
-                
-                Set<String> sourceConns = adjacencyMatrix.computeIfAbsent(source, k -> new HashSet<>());
-                sourceConns.add(target);
-                
-                Set<String> targetConns = adjacencyMatrix.computeIfAbsent(target, k -> new HashSet<>());
-                targetConns.add(source);
-            }
+        int length = message.getRouteLength();
+        for (int i = 0; i < length - 1; i++) {
+            adjacency.addEdge(message.getRouteId(i), message.getRouteId(i + 1));
         }
     }
     
     public Map<String, Set<String>> getAdjacencyMatrix() {
-        return new HashMap<>(adjacencyMatrix);
+        Map<String, Set<String>> matrix = new HashMap<>();
+        for (int id : adjacency.nodes()) {
+            matrix.put(nodeIds.nameOf(id), toNames(adjacency.neighbors(id)));
+        }
+        return matrix;
+    }
+    
+    /**
+     * Gets the adjacency structure keyed by interned ids.
+     */
+    public AdjacencyGraph getAdjacencyGraph() {
+        return adjacency;
     }
     
     public double[][] getAdjacencyMatrixAsArray() {
-        List<String> nodeIds = new ArrayList<>(adjacencyMatrix.keySet());
-        int size = nodeIds.size();
+        int[] nodeIdArray = adjacency.nodes();
+        int size = nodeIdArray.length;
         double[][] matrix = new double[size][size];
         
         for (int i = 0; i < size; i++) {
-            Set<String> connections = adjacencyMatrix.get(nodeIds.get(i));
-            if (connections != null) {
-                for (int j = 0; j < size; j++) {
-                    matrix[i][j] = connections.contains(nodeIds.get(j)) ? 1.0 : 0.0;
+            for (int neighbor : adjacency.neighbors(nodeIdArray[i])) {
+                int j = Arrays.binarySearch(nodeIdArray, neighbor);
+                if (j >= 0) {
+                    matrix[i][j] = 1.0;
                 }
             }
         }
@@ -134,12 +179,27 @@ public class PeerDirectory {
     }
     
     public Set<String> getConnectedPeers(String nodeId) {
-        return adjacencyMatrix.getOrDefault(nodeId, new HashSet<>());
+        int id = nodeIds.lookup(nodeId);
+        return id != NodeIdRegistry.UNKNOWN ? toNames(adjacency.neighbors(id)) : new HashSet<>();
     }
     
+    /**
+     * Gets the sorted interned ids of a node's neighbors. The array must not be modified.
+     */
+    public int[] getConnectedPeers(int nodeId) {
+        return adjacency.neighbors(nodeId);
+    }
+    
+    /**
+     * Gets the row of a node in {@link #getAdjacencyMatrixAsArray()}, or -1.
+     */
     public int getNodeIndex(String nodeId) {
-        List<String> nodeIds = new ArrayList<>(adjacencyMatrix.keySet());
-        return nodeIds.indexOf(nodeId);
+        int id = nodeIds.lookup(nodeId);
+        if (id == NodeIdRegistry.UNKNOWN) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(adjacency.nodes(), id);
+        return index >= 0 ? index : -1;
     }
     
     public void updatePeerInfo(String nodeId, Message message) {
@@ -148,14 +208,18 @@ public class PeerDirectory {
     
     public void cleanupStaleEntries(long maxAge) {
         long now = System.currentTimeMillis();
-        peers.entrySet().removeIf(entry -> 
-            now - entry.getValue().getLastSeen() > maxAge
-        );
+        peers.removeIf((id, info) -> now - info.getLastSeen() > maxAge);
         
         // Clean up route history
-        peers.values().forEach(peer -> 
-            peer.cleanupRouteHistory(ROUTE_HISTORY_MAX_AGE)
-        );
+        peers.forEach((id, peer) -> peer.cleanupRouteHistory(ROUTE_HISTORY_MAX_AGE));
+    }
+    
+    private Set<String> toNames(int[] ids) {
+        Set<String> names = new HashSet<>(Math.max(4, ids.length * 2));
+        for (int id : ids) {
+            names.add(nodeIds.nameOf(id));
+        }
+        return names;
     }
     
     public void stop() {
@@ -183,12 +247,10 @@ public class PeerDirectory {
         }
         
         public void addToRouteHistory(Message message) {
-            if (message.getRouteHistory() != null) {
-                routeHistory.add(new RouteHistoryEntry(
-                    message.getRouteHistory(),
-                    System.currentTimeMillis()
-                ));
-            }
+            routeHistory.add(new RouteHistoryEntry(
+                message.getRouteIds(),
+                System.currentTimeMillis()
+            ));
         }
         
         public void cleanupRouteHistory(long maxAge) {
@@ -212,15 +274,15 @@ public class PeerDirectory {
     }
     
     private static class RouteHistoryEntry {
-        private final List<String> route;
+        private final int[] route;
         private final long timestamp;
         
-        public RouteHistoryEntry(List<String> route, long timestamp) {
-            this.route = new ArrayList<>(route);
+        public RouteHistoryEntry(int[] route, long timestamp) {
+            this.route = route;
             this.timestamp = timestamp;
         }
         
-        public List<String> getRoute() { return route; }
+        public int[] getRoute() { return route; }
         public long getTimestamp() { return timestamp; }
     }
 }
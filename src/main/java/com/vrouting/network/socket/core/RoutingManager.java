@@ -2,20 +2,30 @@ package com.vrouting.network.socket.core;
 
 import com.vrouting.network.socket.message.Message;
 import com.vrouting.network.socket.message.MessageType;
+import java.io.Serializable;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Keeps the candidate routes per destination and the forwarding table built from them.
+ *
+ * <p>Route replies and expiry are control-plane events: they update the candidates,
+ * score them, and publish a new immutable {@link ForwardingTable} through a volatile
+ * reference. A reply rescores only its own destination and replaces that one entry;
+ * expiry, which can drop many, rebuilds the whole table. Next-hop lookups on the data
+ * plane read the current table without locking or scoring.
+ */
 public class RoutingManager {
     private static final Logger logger = LoggerFactory.getLogger(RoutingManager.class);
     private final Node node;
-    private final Map<String, RoutingTable> routingTables;
+    private final NodeIdRegistry nodeIds;
+    private final NodeIdMap<RoutingTable> routingTables;
     private final ScheduledExecutorService scheduler;
-    private final Map<String, Double> routeMetrics;
+    private final NodeIdMap<Double> routeMetrics;
+    private volatile ForwardingTable forwardingTable = ForwardingTable.EMPTY_TABLE;
     
     // Constants for route management
     private static final long ROUTE_UPDATE_INTERVAL = 300000; // 5 minutes
@@ -27,9 +37,10 @@ public class RoutingManager {
     
     public RoutingManager(Node node) {
         this.node = node;
-        this.routingTables = new ConcurrentHashMap<>();
-        this.routeMetrics = new ConcurrentHashMap<>();
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.nodeIds = NodeIdRegistry.global();
+        this.routingTables = new NodeIdMap<>();
+        this.routeMetrics = new NodeIdMap<>();
+        this.scheduler = node.getConfig().getExecutorProvider().newScheduler("routing-" + node.getNodeId(), 1);
     }
     
     public void start() {
@@ -88,35 +99,101 @@ public class RoutingManager {
     }
     
     public String getNextHop(String destinationId) {
-        Route route = findBestRoute(destinationId);
-        return route != null ? route.getNextHop() : null;
+        int destination = destinationId != null ? nodeIds.lookup(destinationId) : NodeIdRegistry.UNKNOWN;
+        return forwardingTable.getNextHopName(destination);
+    }
+    
+    /**
+     * Gets the interned next hop toward a destination, or {@link NodeIdRegistry#UNKNOWN}.
+     */
+    public int getNextHop(int destinationId) {
+        return forwardingTable.getNextHop(destinationId);
+    }
+    
+    /**
+     * Gets the forwarding table currently used for next-hop lookups.
+     */
+    public ForwardingTable getForwardingTable() {
+        return forwardingTable;
     }
     
     private void updateRoutingTables() {
-        long currentTime = System.currentTimeMillis();
-        routingTables.values().forEach(table -> 
-            table.removeExpiredRoutes(currentTime - MAX_ROUTE_AGE)
-        );
+        removeExpiredRoutes(System.currentTimeMillis());
+    }
+    
+    /**
+     * Drops routes not updated for {@value #MAX_ROUTE_AGE} ms before {@code now}, and
+     * rebuilds the forwarding table if any were dropped.
+     */
+    synchronized void removeExpiredRoutes(long now) {
+        boolean[] removed = new boolean[1];
+        routingTables.forEach((destination, table) -> {
+            if (table.removeExpiredRoutes(now, MAX_ROUTE_AGE)) {
+                removed[0] = true;
+            }
+        });
+        if (removed[0]) {
+            routingTables.removeIf((destination, table) -> table.isEmpty());
+            rebuildForwardingTable();
+        }
     }
     
     private Route findBestRoute(String destinationId) {
-        RoutingTable table = routingTables.get(destinationId);
-        return table != null ? table.getBestRoute() : null;
+        int destination = destinationId != null ? nodeIds.lookup(destinationId) : NodeIdRegistry.UNKNOWN;
+        return forwardingTable.getRoute(destination);
     }
     
-    private void updateRoute(Route route) {
-        String destinationId = route.getDestinationId();
+    private synchronized void updateRoute(Route route) {
+        int destinationId = nodeIds.internRemote(route.getDestinationId());
+        String nextHop = route.getNextHop();
+        if (destinationId == NodeIdRegistry.UNKNOWN
+            || (nextHop != null && nodeIds.internRemote(nextHop) == NodeIdRegistry.UNKNOWN)) {
+            logger.debug("Node id registry full, ignoring route to {}", route.getDestinationId());
+            return;
+        }
         RoutingTable table = routingTables.computeIfAbsent(
             destinationId,
             k -> new RoutingTable()
         );
         table.updateRoute(route);
-        updateRouteMetric(route);
+        updateRouteMetric(destinationId, route);
+        updateForwardingEntry(destinationId, table);
     }
     
-    private void updateRouteMetric(Route route) {
+    /**
+     * Scores the candidates of one destination and publishes a table with its winner,
+     * sharing every other entry with the current table. Called with the lock held.
+     */
+    private void updateForwardingEntry(int destination, RoutingTable table) {
+        Route best = table.getBestRoute();
+        String nextHop = best != null ? best.getNextHop() : null;
+        if (nextHop != null) {
+            forwardingTable = forwardingTable.with(destination, nodeIds.lookup(nextHop), nextHop, new Route(best));
+        } else if (forwardingTable.getRoute(destination) != null) {
+            // The winner lost its next hop; dropping an entry needs a full rebuild
+            rebuildForwardingTable();
+        }
+    }
+    
+    /**
+     * Scores the candidates of every destination and publishes the winners as a new
+     * forwarding table. Called with the lock held after candidates were removed.
+     */
+    private void rebuildForwardingTable() {
+        ForwardingTable.Builder builder = new ForwardingTable.Builder(routingTables.size());
+        routingTables.forEach((destination, table) -> {
+            Route best = table.getBestRoute();
+            String nextHop = best != null ? best.getNextHop() : null;
+            if (nextHop != null) {
+                builder.put(destination, nodeIds.lookup(nextHop), nextHop, new Route(best));
+            }
+        });
+        forwardingTable = builder.build();
+    }
+    
+    private void updateRouteMetric(int destinationId, Route route) {
         double metric = calculateRouteMetric(route);
-        routeMetrics.put(route.getDestinationId(), metric);
+        routeMetrics.put(destinationId, metric);
     }
     
     private double calculateRouteMetric(Route route) {
@@ -132,7 +209,8 @@ public class RoutingManager {
     }
     
     // Inner class for Route
-    public static class Route {
+    public static class Route implements Serializable {
+        private static final long serialVersionUID = 1L;
         private final String id;
         private final String destinationId;
         private final List<String> hops;
@@ -149,6 +227,24 @@ public class RoutingManager {
             this.lastUpdated = System.currentTimeMillis();
         }
         
+        /**
+         * Rebuilds a route with its original identity, e.g. when decoded from the wire.
+         */
+        public Route(String id, String destinationId, List<String> hops, long lastUpdated) {
+            this.id = id;
+            this.destinationId = destinationId;
+            this.hops = new ArrayList<>(hops);
+            this.lastUpdated = lastUpdated;
+        }
+        
+        public Route(Route other) {
+            this(other.id, other.destinationId, other.hops, other.lastUpdated);
+            this.latency = other.latency;
+            this.bandwidth = other.bandwidth;
+            this.hopCount = other.hopCount;
+            this.stability = other.stability;
+        }
+        
         public String getId() { return id; }
         public String getDestinationId() { return destinationId; }
         public List<String> getHops() { return Collections.unmodifiableList(hops); }
@@ -201,8 +297,15 @@ public class RoutingManager {
             routes.add(route);
         }
         
-        public void removeExpiredRoutes(long maxAge) {
-            routes.removeIf(route -> (System.currentTimeMillis() - route.getLastUpdated()) > maxAge);
+        public boolean isEmpty() {
+            return routes.isEmpty();
+        }
+        
+        /**
+         * @return whether any route was removed
+         */
+        public boolean removeExpiredRoutes(long now, long maxAge) {
+            return routes.removeIf(route -> now - route.getLastUpdated() > maxAge);
         }
         
         public Route getBestRoute() {
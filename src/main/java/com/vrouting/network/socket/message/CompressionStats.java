@@ -0,0 +1,98 @@
+package com.vrouting.network.socket.message;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for {@link MessageCodec} payload compression in this process: how many
+ * payloads were compressed, relayed still compressed or inflated, the bytes before and
+ * after compression and the time spent deflating and inflating.
+ */
+public final class CompressionStats {
+    private final LongAdder compressedMessages = new LongAdder();
+    private final LongAdder uncompressibleMessages = new LongAdder();
+    private final LongAdder relayedMessages = new LongAdder();
+    private final LongAdder inflatedMessages = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder deflateNanos = new LongAdder();
+    private final LongAdder inflateNanos = new LongAdder();
+
+    CompressionStats() {
+    }
+
+    void recordCompressed(int raw, int compressed, long nanos) {
+        compressedMessages.increment();
+        rawBytes.add(raw);
+        compressedBytes.add(compressed);
+        deflateNanos.add(nanos);
+    }
+
+    void recordUncompressible(long nanos) {
+        uncompressibleMessages.increment();
+        deflateNanos.add(nanos);
+    }
+
+    void recordRelayed() {
+        relayedMessages.increment();
+    }
+
+    void recordInflated(long nanos) {
+        inflatedMessages.increment();
+        inflateNanos.add(nanos);
+    }
+
+    /**
+     * Gets the number of payloads sent compressed after deflating them here.
+     */
+    public long getCompressedCount() {
+        return compressedMessages.sum();
+    }
+
+    /**
+     * Gets the number of payloads over the threshold that did not shrink and were sent raw.
+     */
+    public long getUncompressibleCount() {
+        return uncompressibleMessages.sum();
+    }
+
+    /**
+     * Gets the number of compressed payloads re-encoded from their received bytes.
+     */
+    public long getRelayedCount() {
+        return relayedMessages.sum();
+    }
+
+    public long getInflatedCount() {
+        return inflatedMessages.sum();
+    }
+
+    /**
+     * Gets compressed bytes over raw bytes for the payloads compressed here, or 1.0 if
+     * none were.
+     */
+    public double getCompressionRatio() {
+        long raw = rawBytes.sum();
+        return raw == 0 ? 1.0 : (double) compressedBytes.sum() / raw;
+    }
+
+    /**
+     * Gets the mean time spent deflating per payload considered for compression.
+     */
+    public double getDeflateNanosPerMessage() {
+        long messages = compressedMessages.sum() + uncompressibleMessages.sum();
+        return messages == 0 ? 0.0 : (double) deflateNanos.sum() / messages;
+    }
+
+    public double getInflateNanosPerMessage() {
+        long messages = inflatedMessages.sum();
+        return messages == 0 ? 0.0 : (double) inflateNanos.sum() / messages;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompressionStats[compressed=%d, uncompressible=%d, relayed=%d, inflated=%d, "
+                + "ratio=%.3f, deflate=%.0fns, inflate=%.0fns]",
+            getCompressedCount(), getUncompressibleCount(), getRelayedCount(), getInflatedCount(),
+            getCompressionRatio(), getDeflateNanosPerMessage(), getInflateNanosPerMessage());
+    }
+}
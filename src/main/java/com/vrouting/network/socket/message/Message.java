@@ -1,42 +1,121 @@
 package com.vrouting.network.socket.message;
 
 import com.vrouting.network.socket.core.Phase;
+import com.vrouting.network.socket.core.NodeIdRegistry;
 import com.vrouting.network.socket.core.NodeMetrics;
+import com.vrouting.network.socket.core.RoutingManager.Route;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.*;
 import com.google.gson.Gson;
 
 /**
  * Represents a message in the V-Routing Protocol.
  * Messages contain routing information, payload data, and metadata for network management.
+ *
+ * <p>Payload values are kept in typed slots: booleans, integral numbers (as {@code Long}),
+ * floating point numbers (as {@code Double}), strings, {@link Phase}, {@link NodeMetrics},
+ * {@link Route} and {@code byte[]} are stored natively, so reading them back costs no
+ * parsing. Any other value is stored as JSON and decoded on first read, then cached until
+ * the slot is written again; such decoded values are shared between reads and must not be
+ * modified. {@link NodeMetrics}, {@link Route} and byte arrays are copied on the way in
+ * and out, so a message never shares mutable state with its callers.
+ *
+ * <p>The route is kept as {@link NodeIdRegistry#global()} ids; strings are only
+ * produced for the String-based accessors and by the wire codec. A 64-bit Bloom
+ * summary of the route answers most {@link #hasVisited(int)} checks without scanning
+ * it; only summary hits fall back to the exact scan.
+ *
+ * <p>{@link #copy()} produces a lightweight envelope that shares the route and payload
+ * containers with the original. Whichever message first changes a shared container
+ * copies it, so fan-out to many recipients costs one small object each.
+ *
+ * <p>A data payload received from the wire stays as its encoded bytes until first
+ * accessed, compressed or not, and those bytes are sent again as long as the payload is
+ * not modified. Relays therefore forward data without decoding, recompressing or
+ * re-encoding its payload.
+ *
+ * <p>Messages taken from a {@link MessagePool} are recycled: whoever holds one owns it
+ * until it is handed to a transport send, which releases it once encoded, or until
+ * {@link #release()} is called. A released message must not be touched again; doing so
+ * throws {@link IllegalStateException}.
  */
 public class Message implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final Gson gson = new Gson();
+    private static final NodeIdRegistry NODE_IDS = NodeIdRegistry.global();
+    private static final int[] NO_ROUTE = new int[0];
     
-    private final String id;
-    private final String sourceNodeId;
+    private MessageId id;
+    private String sourceNodeId;
     private String destinationNodeId; 
-    private final MessageType type;
-    private final List<String> routeHistory;
-    private final Map<String, String> payload;
+    private MessageType type;
+    private transient int[] route;
+    private transient int routeLength;
+    private transient boolean routeShared;
+    private transient long visitedFilter;
+    private Map<String, Object> payload;
+    private transient boolean payloadShared;
+    private transient byte[] packedPayload;
+    private transient int packedLength;
+    private transient ByteBuffer rawPayload;
+    private NodeStatus status;
+    private MessageId receiptId;
     private int hopCount;
+    private transient MessagePool pool;
+    private transient boolean released;
+    private transient Throwable releasedAt;
     private static final int MAX_HOPS = 10;
     
     /**
      * Creates a new message with the specified parameters.
      */
     public Message(String sourceNodeId, String destinationNodeId, MessageType type) {
-        this.id = UUID.randomUUID().toString();
+        this.id = MessageId.next();
         this.sourceNodeId = sourceNodeId;
         this.destinationNodeId = destinationNodeId;
         this.type = type;
-        this.routeHistory = new ArrayList<>();
+        this.route = NO_ROUTE;
         this.payload = new HashMap<>();
         this.hopCount = 0;
     }
     
+    /**
+     * Rebuilds a message received from the wire, keeping its original identity.
+     */
+    Message(String id, String sourceNodeId, String destinationNodeId, MessageType type,
+            int[] route, Map<String, Object> payload, int hopCount) {
+        this(MessageId.parse(id), sourceNodeId, destinationNodeId, type, route, payload, hopCount);
+    }
+    
+    Message(MessageId id, String sourceNodeId, String destinationNodeId, MessageType type,
+            int[] route, Map<String, Object> payload, int hopCount) {
+        this.id = id;
+        this.sourceNodeId = sourceNodeId;
+        this.destinationNodeId = destinationNodeId;
+        this.type = type;
+        this.route = route;
+        this.routeLength = route.length;
+        this.visitedFilter = visitedFilterOf(route, route.length);
+        this.payload = payload;
+        this.hopCount = hopCount;
+    }
+    
+    /**
+     * Creates an empty, released message owned by a pool.
+     */
+    Message(MessagePool pool) {
+        this.pool = pool;
+        this.route = NO_ROUTE;
+        this.payload = new HashMap<>();
+        this.released = true;
+    }
+    
     public static Message createHeartbeat(String sourceNodeId, MessageType type) {
         if (!isHeartbeatType(type)) {
             throw new IllegalArgumentException("Invalid heartbeat message type: " + type);
@@ -51,49 +130,119 @@ public class Message implements Serializable {
         return response;
     }
     
-    private static boolean isHeartbeatType(MessageType type) {
+    public static boolean isHeartbeatType(MessageType type) {
         return type == MessageType.HEARTBEAT_DISCOVERY ||
                type == MessageType.HEARTBEAT_STABLE ||
                type == MessageType.HEARTBEAT_UPDATE;
     }
     
     public String getId() {
+        checkLive();
+        return id.toString();
+    }
+    
+    public MessageId getMessageId() {
+        checkLive();
         return id;
     }
     
     public String getSourceNodeId() {
+        checkLive();
         return sourceNodeId;
     }
     
     public String getSource() { 
-        return sourceNodeId; 
+        return getSourceNodeId(); 
     }  
     
     public String getDestinationNodeId() {
+        checkLive();
         return destinationNodeId;
     }
     
     public void setDestinationNodeId(String destinationNodeId) {
+        checkLive();
         this.destinationNodeId = destinationNodeId;
     }
     
     public MessageType getType() {
+        checkLive();
         return type;
     }
     
+    /**
+     * Gets a read-only view of the route as node id strings.
+     */
     public List<String> getRouteHistory() {
-        return Collections.unmodifiableList(routeHistory);
+        checkLive();
+        final int[] hops = route;
+        final int length = routeLength;
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (index >= length) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+                }
+                return NODE_IDS.nameOf(hops[index]);
+            }
+            
+            @Override
+            public int size() {
+                return length;
+            }
+        };
+    }
+    
+    /**
+     * Gets the route as {@link NodeIdRegistry#global()} ids.
+     */
+    public int[] getRouteIds() {
+        checkLive();
+        return Arrays.copyOf(route, routeLength);
+    }
+    
+    /**
+     * Gets the number of hops recorded in the route.
+     */
+    public int getRouteLength() {
+        checkLive();
+        return routeLength;
+    }
+    
+    /**
+     * Gets the interned id of one hop of the route.
+     */
+    public int getRouteId(int index) {
+        checkLive();
+        if (index >= routeLength) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + routeLength);
+        }
+        return route[index];
     }
     
     public void addToRoute(String nodeId) {
-        if (routeHistory.size() >= MAX_HOPS) {
+        addToRoute(NODE_IDS.intern(nodeId));
+    }
+    
+    /**
+     * Appends a hop given as a {@link NodeIdRegistry#global()} id.
+     */
+    public void addToRoute(int nodeId) {
+        checkLive();
+        if (routeLength >= MAX_HOPS) {
             throw new IllegalStateException("Maximum hop count exceeded");
         }
-        routeHistory.add(nodeId);
+        if (routeShared || routeLength == route.length) {
+            route = Arrays.copyOf(route, Math.max(4, routeLength * 2));
+            routeShared = false;
+        }
+        route[routeLength++] = nodeId;
+        visitedFilter |= visitedBits(nodeId);
         hopCount++;
     }
     
     public int getHopCount() {
+        checkLive();
         return hopCount;
     }
     
@@ -102,32 +251,276 @@ public class Message implements Serializable {
     }
     
     public <T> void setPayload(String key, T value) {
-        payload.put(key, gson.toJson(value));
+        writablePayload().put(key, toSlot(value));
     }
     
     public <T> T getPayload(String key, Class<T> type) {
-        String json = payload.get(key);
-        return json != null ? gson.fromJson(json, type) : null;
+        return fromSlot(slots().get(key), type);
+    }
+    
+    /**
+     * Gets the payload slots for the wire codec. Values are those produced by
+     * {@link #toSlot}; the map may be shared with copies and must not be modified.
+     */
+    Map<String, Object> getPayloadSlots() {
+        return slots();
+    }
+    
+    /**
+     * Gets the compressed payload as received, or null if the payload is not compressed
+     * or has been modified since. The array must not be modified.
+     */
+    byte[] getPackedPayload() {
+        checkLive();
+        return packedPayload;
+    }
+    
+    /**
+     * Gets the uncompressed length of {@link #getPackedPayload()}.
+     */
+    int getPackedPayloadLength() {
+        return packedLength;
+    }
+    
+    /**
+     * Gets the encoded payload section as received, or null if the payload was not
+     * received uncompressed or has been modified since. The buffer is read-only and
+     * shared with copies; callers must read it through a duplicate.
+     */
+    ByteBuffer getRawPayload() {
+        checkLive();
+        return rawPayload;
+    }
+    
+    /**
+     * Sets the payload to an encoded payload section that is decoded on first access.
+     */
+    void setRawPayload(ByteBuffer section) {
+        this.payload = null;
+        this.payloadShared = false;
+        this.rawPayload = section;
+    }
+    
+    /**
+     * Returns whether the payload has been decoded into slots.
+     */
+    boolean isPayloadDecoded() {
+        return payload != null;
+    }
+    
+    /**
+     * Sets the payload to compressed bytes that are inflated on first access.
+     */
+    void setPackedPayload(byte[] packed, int uncompressedLength) {
+        this.payload = null;
+        this.payloadShared = false;
+        this.packedPayload = packed;
+        this.packedLength = uncompressedLength;
+    }
+    
+    private Map<String, Object> slots() {
+        checkLive();
+        Map<String, Object> slots = payload;
+        if (slots == null) {
+            try {
+                slots = rawPayload != null
+                    ? MessageCodec.decodePayload(rawPayload.duplicate())
+                    : MessageCodec.unpackPayload(packedPayload, packedLength);
+            } catch (IOException e) {
+                throw new IllegalStateException("Corrupt payload in message " + id, e);
+            }
+            payload = slots;
+            payloadShared = false;
+        }
+        return slots;
+    }
+    
+    /**
+     * Gets the JSON form of one payload value, or null if the key is absent.
+     */
+    String getPayloadJson(String key) {
+        Map<String, Object> slots = slots();
+        if (!slots.containsKey(key)) {
+            return null;
+        }
+        Object slot = slots.get(key);
+        return slot instanceof JsonValue ? ((JsonValue) slot).json : gson.toJson(slot);
+    }
+    
+    /**
+     * Converts a value to its slot representation: natively for the supported types,
+     * JSON text otherwise.
+     */
+    static Object toSlot(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean
+            || value instanceof Long || value instanceof Double || value instanceof Phase) {
+            return value;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float) {
+            return ((Float) value).doubleValue();
+        }
+        if (value instanceof NodeMetrics) {
+            return new NodeMetrics((NodeMetrics) value);
+        }
+        if (value instanceof Route) {
+            return new Route((Route) value);
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        }
+        return new JsonValue(gson.toJson(value));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> T fromSlot(Object slot, Class<T> type) {
+        if (slot == null) {
+            return null;
+        }
+        if (slot instanceof JsonValue) {
+            return ((JsonValue) slot).decode(type);
+        }
+        if (slot instanceof NodeMetrics && type == NodeMetrics.class) {
+            return (T) new NodeMetrics((NodeMetrics) slot);
+        }
+        if (slot instanceof Route && type == Route.class) {
+            return (T) new Route((Route) slot);
+        }
+        if (slot instanceof byte[] && type == byte[].class) {
+            return (T) ((byte[]) slot).clone();
+        }
+        if (type.isInstance(slot)) {
+            return (T) slot;
+        }
+        if (slot instanceof Number) {
+            Object converted = convertNumber((Number) slot, type);
+            if (converted != null) {
+                return (T) converted;
+            }
+        }
+        // Cross-type read, e.g. a number as String: go through JSON like the sender would
+        return gson.fromJson(gson.toJson(slot), type);
+    }
+    
+    /**
+     * Converts between numeric slot types where no precision is lost, returning null
+     * when the conversion would be lossy or the target is not numeric.
+     */
+    private static Object convertNumber(Number number, Class<?> type) {
+        if (type == Integer.class || type == int.class) {
+            long value = number.longValue();
+            return number instanceof Long && value == (int) value ? (int) value : null;
+        }
+        if (type == Long.class || type == long.class) {
+            return number instanceof Long ? number : null;
+        }
+        if (type == Double.class || type == double.class) {
+            return number.doubleValue();
+        }
+        if (type == Float.class || type == float.class) {
+            return number.floatValue();
+        }
+        if (type == Short.class || type == short.class) {
+            long value = number.longValue();
+            return number instanceof Long && value == (short) value ? (short) value : null;
+        }
+        if (type == Byte.class || type == byte.class) {
+            long value = number.longValue();
+            return number instanceof Long && value == (byte) value ? (byte) value : null;
+        }
+        return null;
     }
     
     public boolean hasVisited(String nodeId) {
-        return routeHistory.contains(nodeId);
+        int id = NODE_IDS.lookup(nodeId);
+        return id != NodeIdRegistry.UNKNOWN && hasVisited(id);
+    }
+    
+    public boolean hasVisited(int nodeId) {
+        checkLive();
+        long bits = visitedBits(nodeId);
+        if ((visitedFilter & bits) != bits) {
+            return false;
+        }
+        for (int i = 0; i < routeLength; i++) {
+            if (route[i] == nodeId) {
+                return true;
+            }
+        }
+        return false;
     }
     
     public void setPhase(Phase phase) {
-        payload.put("phase", gson.toJson(phase));
+        writablePayload().put("phase", phase);
     }
     
     public void setDepth(int depth) {
-        payload.put("depth", gson.toJson(depth));
+        writablePayload().put("depth", (long) depth);
     }
     
     public void setMetrics(NodeMetrics metrics) {
-        payload.put("metrics", gson.toJson(metrics));
+        writablePayload().put("metrics", toSlot(metrics));
+    }
+    
+    private Map<String, Object> writablePayload() {
+        slots();
+        packedPayload = null;
+        rawPayload = null;
+        if (payloadShared) {
+            payload = new HashMap<>(payload);
+            payloadShared = false;
+        }
+        return payload;
+    }
+    
+    /**
+     * Attaches the sender's phase, depth and metrics as a fixed binary block, which
+     * {@link #getPhase()}, {@link #getDepth()} and {@link #getMetrics()} fall back to
+     * when the payload has no such entries.
+     */
+    public void setNodeStatus(NodeStatus status) {
+        checkLive();
+        this.status = status;
+    }
+    
+    public NodeStatus getNodeStatus() {
+        checkLive();
+        return status;
+    }
+    
+    /**
+     * Asks the destination to answer with a DATA_ACK naming this id. Copies keep the
+     * id, so it identifies the original send however many hops the message takes. On a
+     * DATA_ACK, this is the id being acknowledged.
+     */
+    public void setReceiptId(MessageId receiptId) {
+        checkLive();
+        this.receiptId = receiptId;
+    }
+    
+    /**
+     * Gets the id the destination should acknowledge, or null if no receipt was asked for.
+     */
+    public MessageId getReceiptId() {
+        checkLive();
+        return receiptId;
     }
     
     public int getDepth() {
-        return gson.fromJson(payload.get("depth"), Integer.class);
+        Integer depth = getPayload("depth", Integer.class);
+        return depth == null && status != null ? status.getDepth() : depth;
+    }
+    
+    public Phase getPhase() {
+        Phase phase = getPayload("phase", Phase.class);
+        return phase == null && status != null ? status.getPhase() : phase;
+    }
+    
+    public NodeMetrics getMetrics() {
+        NodeMetrics metrics = getPayload("metrics", NodeMetrics.class);
+        return metrics == null && status != null ? status.getMetrics() : metrics;
     }
     
     @Override
@@ -140,7 +533,7 @@ public class Message implements Serializable {
     
     @Override
     public int hashCode() {
-        return java.util.Objects.hash(id);
+        return id.hashCode();
     }
     
     @Override
@@ -149,11 +542,215 @@ public class Message implements Serializable {
                            id, type, sourceNodeId, destinationNodeId, hopCount);
     }
     
+    /**
+     * Creates a copy with a new id that shares the route and payload with this
+     * message until either side modifies them.
+     */
     public Message copy() {
-        Message copy = new Message(sourceNodeId, destinationNodeId, type);
-        copy.routeHistory.addAll(this.routeHistory);
-        copy.payload.putAll(this.payload);
-        copy.hopCount = this.hopCount;
+        checkLive();
+        Message copy = new Message(MessageId.next(), sourceNodeId, destinationNodeId,
+            type, route, payload, hopCount);
+        copy.packedPayload = packedPayload;
+        copy.packedLength = packedLength;
+        copy.rawPayload = rawPayload;
+        copy.status = status;
+        copy.receiptId = receiptId;
+        shareBodyWith(copy);
         return copy;
     }
+    
+    /**
+     * Initializes a released pooled message as a copy of this one, sharing the body
+     * as {@link #copy()} does.
+     */
+    void copyInto(Message target) {
+        checkLive();
+        target.reset(MessageId.next(), sourceNodeId, destinationNodeId, type);
+        target.route = route;
+        target.payload = payload;
+        target.hopCount = hopCount;
+        target.packedPayload = packedPayload;
+        target.packedLength = packedLength;
+        target.rawPayload = rawPayload;
+        target.status = status;
+        target.receiptId = receiptId;
+        shareBodyWith(target);
+    }
+    
+    private void shareBodyWith(Message copy) {
+        copy.routeLength = this.routeLength;
+        copy.visitedFilter = this.visitedFilter;
+        copy.routeShared = true;
+        copy.payloadShared = true;
+        this.routeShared = true;
+        this.payloadShared = true;
+    }
+    
+    /**
+     * Returns whether this message belongs to a {@link MessagePool}.
+     */
+    public boolean isPooled() {
+        return pool != null;
+    }
+    
+    /**
+     * Returns a pooled message to its pool. The caller gives up ownership and must
+     * not use the message afterwards. Does nothing for messages not from a pool.
+     *
+     * @throws IllegalStateException if the message was already released
+     */
+    public void release() {
+        if (pool != null) {
+            pool.release(this);
+        }
+    }
+    
+    /**
+     * Makes a released pooled message live again with a new identity and empty body.
+     */
+    void reset(MessageId id, String sourceNodeId, String destinationNodeId, MessageType type) {
+        this.id = id;
+        this.sourceNodeId = sourceNodeId;
+        this.destinationNodeId = destinationNodeId;
+        this.type = type;
+        this.hopCount = 0;
+        this.released = false;
+        this.releasedAt = null;
+    }
+    
+    /**
+     * Marks this message released and drops its body, keeping the containers for
+     * reuse when no copy shares them.
+     *
+     * @param trace where the release happened, kept for use-after-release reports
+     */
+    void markReleased(Throwable trace) {
+        checkLive();
+        released = true;
+        releasedAt = trace;
+        if (routeShared) {
+            route = NO_ROUTE;
+            routeShared = false;
+        }
+        routeLength = 0;
+        visitedFilter = 0;
+        packedPayload = null;
+        rawPayload = null;
+        status = null;
+        receiptId = null;
+        if (payloadShared || payload == null) {
+            payload = new HashMap<>();
+            payloadShared = false;
+        } else {
+            payload.clear();
+        }
+        sourceNodeId = null;
+        destinationNodeId = null;
+    }
+    
+    boolean isReleased() {
+        return released;
+    }
+    
+    private void checkLive() {
+        if (released) {
+            throw new IllegalStateException("Message used after release to its pool", releasedAt);
+        }
+    }
+    
+    /**
+     * Returns whether this message still shares its route or payload with a copy.
+     */
+    boolean isSharingBody() {
+        return routeShared || payloadShared;
+    }
+    
+    /**
+     * Writes the route as node id strings, since interned ids are only meaningful
+     * inside one JVM.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        slots();
+        out.defaultWriteObject();
+        out.writeInt(routeLength);
+        for (int i = 0; i < routeLength; i++) {
+            out.writeUTF(NODE_IDS.nameOf(route[i]));
+        }
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        routeLength = in.readInt();
+        route = new int[routeLength];
+        for (int i = 0; i < routeLength; i++) {
+            String hop = in.readUTF();
+            route[i] = NODE_IDS.internRemote(hop);
+            if (route[i] == NodeIdRegistry.UNKNOWN) {
+                throw new InvalidObjectException("Node id registry full, rejecting unknown node " + hop);
+            }
+        }
+        visitedFilter = visitedFilterOf(route, routeLength);
+    }
+    
+    /**
+     * Gets the two summary bits of a node id, taken from a multiplicative hash so that
+     * consecutive ids spread over the word.
+     */
+    private static long visitedBits(int nodeId) {
+        long h = nodeId * 0x9E3779B97F4A7C15L;
+        return (1L << (h >>> 58)) | (1L << ((h >>> 52) & 63));
+    }
+    
+    private static long visitedFilterOf(int[] route, int length) {
+        long filter = 0;
+        for (int i = 0; i < length; i++) {
+            filter |= visitedBits(route[i]);
+        }
+        return filter;
+    }
+    
+    /**
+     * Payload value kept as JSON, decoded on first read. The decoded value is cached
+     * per requested type; writing the slot replaces the whole holder, which drops it.
+     */
+    static final class JsonValue implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        final String json;
+        private transient volatile Decoded cache;
+        
+        JsonValue(String json) {
+            this.json = json;
+        }
+        
+        @SuppressWarnings("unchecked")
+        <T> T decode(Class<T> type) {
+            Decoded decoded = cache;
+            if (decoded == null || decoded.type != type) {
+                decoded = new Decoded(type, gson.fromJson(json, type));
+                cache = decoded;
+            }
+            return (T) decoded.value;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof JsonValue && json.equals(((JsonValue) o).json);
+        }
+        
+        @Override
+        public int hashCode() {
+            return json.hashCode();
+        }
+        
+        private static final class Decoded {
+            final Class<?> type;
+            final Object value;
+            
+            Decoded(Class<?> type, Object value) {
+                this.type = type;
+                this.value = value;
+            }
+        }
+    }
 }
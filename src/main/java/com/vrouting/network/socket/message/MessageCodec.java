@@ -0,0 +1,818 @@
+package com.vrouting.network.socket.message;
+
+import com.vrouting.network.socket.core.NodeIdRegistry;
+import com.vrouting.network.socket.core.NodeMetrics;
+import com.vrouting.network.socket.core.Phase;
+import com.vrouting.network.socket.core.RoutingManager.Route;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary wire format for {@link Message}, replacing Java serialization.
+ *
+ * <p>Layout of version 1:
+ * <pre>
+ * byte    version
+ * byte    flags           (FLAG_TEXT_ID when the id is free text, FLAG_COMPRESSED_PAYLOAD,
+ *                         FLAG_NODE_STATUS, FLAG_RECEIPT_ID)
+ * byte    type            (MessageType ordinal)
+ * byte    hop count
+ * 16 byte id              (epoch and sequence longs, or a string when FLAG_TEXT_ID is set)
+ * 11 byte node status     (only with FLAG_NODE_STATUS; see {@link NodeStatus})
+ * id      receipt id      (only with FLAG_RECEIPT_ID: byte 0 and two longs, or byte 1
+ *                         and a string for a free-text id)
+ * string  source          (nullable)
+ * string  destination     (nullable)
+ * varint  route length, then one entry per hop
+ * varint  payload size, then key string, tag byte and value per entry; or, with
+ *         FLAG_COMPRESSED_PAYLOAD, varint uncompressed length, varint compressed
+ *         length and the deflated bytes of that same section
+ * </pre>
+ * Strings are a varint byte length followed by UTF-8; nullable strings store length + 1
+ * so that 0 means null. Route entries are a varint reference into the strings seen so
+ * far (source, destination, earlier hops), or 0 followed by a new string, so repeated
+ * node ids cost one byte. Payload values are written from the message's typed slots:
+ * integers (zigzag varint), doubles, booleans, null, strings, {@link Phase} (ordinal),
+ * {@link NodeMetrics} (four doubles), routes and byte arrays (varint length and bytes)
+ * are stored natively, and anything else as its JSON text.
+ *
+ * <p>When encoding with a compression threshold, the payload section of a
+ * {@link MessageType#isData() data} message at least that long is deflated, and sent compressed
+ * if that makes it smaller. Decoders always accept compressed payloads, so the threshold
+ * only needs to be set on senders.
+ *
+ * <p>The payload section of a decoded data message is not parsed: decoding walks over
+ * it to find its end and keeps a private copy of its bytes, which
+ * {@link Message} parses on first access. Until the payload is modified, encoding
+ * writes those bytes back unchanged, so a relay only decodes and re-encodes the header
+ * (ids, hop count and route) and moves the payload as one bulk copy. The copy is needed
+ * because frames are decoded out of pooled receive buffers that are reused.
+ */
+public final class MessageCodec {
+    public static final byte VERSION = 1;
+
+    static final int FLAG_TEXT_ID = 0x01;
+    static final int FLAG_COMPRESSED_PAYLOAD = 0x02;
+    static final int FLAG_NODE_STATUS = 0x04;
+    static final int FLAG_RECEIPT_ID = 0x08;
+
+    /**
+     * Offset of the node status block when the id is compact.
+     */
+    static final int NODE_STATUS_OFFSET = 20;
+
+    /**
+     * Compression threshold meaning payloads are never compressed.
+     */
+    public static final int NO_COMPRESSION = 0;
+
+    private static final int MAX_PAYLOAD_SIZE = 16 * 1024 * 1024;
+
+    private static final byte TAG_JSON = 0;
+    private static final byte TAG_INT = 1;
+    private static final byte TAG_TRUE = 2;
+    private static final byte TAG_FALSE = 3;
+    private static final byte TAG_NULL = 4;
+    private static final byte TAG_STRING = 5;
+    private static final byte TAG_DOUBLE = 6;
+    private static final byte TAG_PHASE = 7;
+    private static final byte TAG_METRICS = 8;
+    private static final byte TAG_ROUTE = 9;
+    private static final byte TAG_BYTES = 10;
+
+    private static final MessageType[] TYPES = MessageType.values();
+    private static final Phase[] PHASES = Phase.values();
+    private static final NodeIdRegistry NODE_IDS = NodeIdRegistry.global();
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private static final ThreadLocal<ByteBuffer> SCRATCH =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocate(INITIAL_BUFFER_SIZE));
+
+    /**
+     * Staging array for strings read from direct buffers, so decoding straight from a
+     * pooled frame does not allocate an array per string.
+     */
+    private static final ThreadLocal<byte[]> STRING_SCRATCH = ThreadLocal.withInitial(() -> new byte[64]);
+
+    private static final ThreadLocal<Deflater> DEFLATER =
+        ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    /**
+     * Scratch arrays for deflating: uncompressed input and compressed output.
+     */
+    private static final ThreadLocal<byte[][]> DEFLATE_SCRATCH =
+        ThreadLocal.withInitial(() -> new byte[][] {new byte[0], new byte[0]});
+
+    private static final CompressionStats STATS = new CompressionStats();
+
+    private MessageCodec() {
+    }
+
+    /**
+     * Gets the compression counters of this process.
+     */
+    public static CompressionStats getCompressionStats() {
+        return STATS;
+    }
+
+    /**
+     * Encodes a message into a new byte array.
+     */
+    public static byte[] encode(Message message) {
+        return encode(message, NO_COMPRESSION);
+    }
+
+    /**
+     * Encodes a message into a new byte array, compressing a DATA payload section of at
+     * least {@code compressionThreshold} bytes.
+     */
+    public static byte[] encode(Message message, int compressionThreshold) {
+        ByteBuffer buffer = SCRATCH.get();
+        while (true) {
+            buffer.clear();
+            try {
+                encode(message, buffer, compressionThreshold);
+                break;
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                SCRATCH.set(buffer);
+            }
+        }
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Encodes a message at the buffer's position.
+     *
+     * @return the number of bytes written
+     * @throws BufferOverflowException if the message does not fit; the buffer position
+     *         is then undefined and the caller should retry with a larger buffer
+     */
+    public static int encode(Message message, ByteBuffer out) {
+        return encode(message, out, NO_COMPRESSION);
+    }
+
+    /**
+     * Encodes a message at the buffer's position, compressing a DATA payload section of
+     * at least {@code compressionThreshold} bytes; {@link #NO_COMPRESSION} disables it.
+     * A payload that arrived compressed is always sent on compressed.
+     *
+     * @return the number of bytes written
+     * @throws BufferOverflowException if the message does not fit
+     */
+    public static int encode(Message message, ByteBuffer out, int compressionThreshold) {
+        int start = out.position();
+        MessageId id = message.getMessageId();
+        NodeStatus status = message.getNodeStatus();
+        MessageId receiptId = message.getReceiptId();
+        int flags = (id.isCompact() ? 0 : FLAG_TEXT_ID) | (status != null ? FLAG_NODE_STATUS : 0)
+            | (receiptId != null ? FLAG_RECEIPT_ID : 0);
+
+        out.put(VERSION);
+        out.put((byte) flags);
+        out.put((byte) message.getType().ordinal());
+        out.put((byte) message.getHopCount());
+        if (id.isCompact()) {
+            out.putLong(id.getEpoch());
+            out.putLong(id.getSequence());
+        } else {
+            writeString(out, id.toString());
+        }
+        if (status != null) {
+            status.writeTo(out);
+        }
+        if (receiptId != null) {
+            if (receiptId.isCompact()) {
+                out.put((byte) 0);
+                out.putLong(receiptId.getEpoch());
+                out.putLong(receiptId.getSequence());
+            } else {
+                out.put((byte) 1);
+                writeString(out, receiptId.toString());
+            }
+        }
+
+        String source = message.getSourceNodeId();
+        String destination = message.getDestinationNodeId();
+        writeNullableString(out, source);
+        writeNullableString(out, destination);
+
+        // Back-reference table of interned ids; node id strings are only touched for new hops
+        int routeLength = message.getRouteLength();
+        int[] table = new int[routeLength + 2];
+        int tableSize = 0;
+        table[tableSize++] = NODE_IDS.lookup(source);
+        table[tableSize++] = NODE_IDS.lookup(destination);
+        writeVarint(out, routeLength);
+        for (int i = 0; i < routeLength; i++) {
+            int hop = message.getRouteId(i);
+            int ref = indexOf(table, tableSize, hop);
+            if (ref >= 0) {
+                writeVarint(out, ref + 1);
+            } else {
+                writeVarint(out, 0);
+                writeString(out, NODE_IDS.nameOf(hop));
+                table[tableSize++] = hop;
+            }
+        }
+
+        byte[] packed = message.getPackedPayload();
+        ByteBuffer raw = message.getRawPayload();
+        if (packed != null) {
+            out.put(start + 1, (byte) (flags | FLAG_COMPRESSED_PAYLOAD));
+            writeVarint(out, message.getPackedPayloadLength());
+            writeVarint(out, packed.length);
+            out.put(packed);
+            STATS.recordRelayed();
+        } else {
+            int payloadStart = out.position();
+            if (raw != null) {
+                out.put(raw.duplicate());
+            } else {
+                writePayload(out, message.getPayloadSlots());
+            }
+            int rawLength = out.position() - payloadStart;
+            if (compressionThreshold > NO_COMPRESSION && rawLength >= compressionThreshold
+                && message.getType().isData()
+                && compressPayload(out, payloadStart, rawLength)) {
+                out.put(start + 1, (byte) (flags | FLAG_COMPRESSED_PAYLOAD));
+            }
+        }
+        return out.position() - start;
+    }
+
+    /**
+     * Reads the node status block of an encoded message starting at the buffer's
+     * position, without decoding the rest or moving the position.
+     *
+     * @return the status, or null if the message carries none
+     */
+    public static NodeStatus peekNodeStatus(ByteBuffer frame) throws IOException {
+        ByteBuffer in = frame.duplicate();
+        try {
+            if (in.get() != VERSION) {
+                throw new IOException("Unsupported wire version " + frame.get(frame.position()));
+            }
+            int flags = in.get();
+            if ((flags & FLAG_NODE_STATUS) == 0) {
+                return null;
+            }
+            if ((flags & FLAG_TEXT_ID) == 0) {
+                in.position(frame.position() + NODE_STATUS_OFFSET);
+            } else {
+                in.position(in.position() + 2);
+                int length = readVarint(in);
+                in.position(in.position() + length);
+            }
+            return NodeStatus.readFrom(in);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated message", e);
+        }
+    }
+
+    private static void writePayload(ByteBuffer out, Map<String, Object> payload) {
+        writeVarint(out, payload.size());
+        for (Map.Entry<String, Object> entry : payload.entrySet()) {
+            writeString(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private static Map<String, Object> readPayload(ByteBuffer in) throws IOException {
+        int payloadSize = readVarint(in);
+        if (payloadSize > in.remaining()) {
+            throw new IOException("Payload size " + payloadSize + " exceeds remaining " + in.remaining());
+        }
+        Map<String, Object> payload = new HashMap<>(Math.max(4, payloadSize * 2));
+        for (int i = 0; i < payloadSize; i++) {
+            String key = readString(in);
+            payload.put(key, readValue(in));
+        }
+        return payload;
+    }
+
+    /**
+     * Copies out the payload section at the buffer's position without parsing its
+     * values, leaving the position just after it.
+     *
+     * @return a read-only buffer over the copied section
+     */
+    private static ByteBuffer slicePayload(ByteBuffer in) throws IOException {
+        int start = in.position();
+        int payloadSize = readVarint(in);
+        if (payloadSize > in.remaining()) {
+            throw new IOException("Payload size " + payloadSize + " exceeds remaining " + in.remaining());
+        }
+        for (int i = 0; i < payloadSize; i++) {
+            skip(in, readVarint(in));
+            skipValue(in);
+        }
+        int end = in.position();
+        byte[] section = new byte[end - start];
+        in.position(start);
+        in.get(section);
+        return ByteBuffer.wrap(section).asReadOnlyBuffer();
+    }
+
+    /**
+     * Decodes a payload section kept by {@link #slicePayload}.
+     */
+    static Map<String, Object> decodePayload(ByteBuffer section) throws IOException {
+        try {
+            return readPayload(section);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated payload", e);
+        }
+    }
+
+    private static void skipValue(ByteBuffer in) throws IOException {
+        byte tag = in.get();
+        switch (tag) {
+            case TAG_JSON:
+            case TAG_STRING:
+            case TAG_BYTES:
+                skip(in, readVarint(in));
+                break;
+            case TAG_INT:
+                readVarLong(in);
+                break;
+            case TAG_TRUE:
+            case TAG_FALSE:
+            case TAG_NULL:
+                break;
+            case TAG_DOUBLE:
+                skip(in, 8);
+                break;
+            case TAG_PHASE:
+                skip(in, 1);
+                break;
+            case TAG_METRICS:
+                skip(in, 32);
+                break;
+            case TAG_ROUTE:
+                skip(in, readVarint(in));
+                int marker = readVarint(in);
+                skip(in, Math.max(0, marker - 1));
+                int hopTotal = readVarint(in);
+                for (int i = 0; i < hopTotal; i++) {
+                    skip(in, readVarint(in));
+                }
+                readVarLong(in);
+                readVarLong(in);
+                skip(in, 24);
+                break;
+            default:
+                throw new IOException("Unknown payload tag " + tag);
+        }
+    }
+
+    private static void skip(ByteBuffer in, int length) throws IOException {
+        if (length > in.remaining()) {
+            throw new IOException("Length " + length + " exceeds remaining " + in.remaining());
+        }
+        in.position(in.position() + length);
+    }
+
+    /**
+     * Replaces the raw payload section just written at {@code payloadStart} with its
+     * compressed form, if that is smaller.
+     *
+     * @return false, with the raw section left in place, if compression did not help
+     */
+    private static boolean compressPayload(ByteBuffer out, int payloadStart, int rawLength) {
+        long began = System.nanoTime();
+        byte[][] scratch = DEFLATE_SCRATCH.get();
+        if (scratch[0].length < rawLength) {
+            scratch[0] = new byte[rawLength];
+            scratch[1] = new byte[rawLength];
+        }
+        ByteBuffer raw = out.duplicate();
+        raw.position(payloadStart).limit(payloadStart + rawLength);
+        raw.get(scratch[0], 0, rawLength);
+
+        // Worth sending only if the lengths and compressed bytes fit in the raw section
+        int budget = rawLength - varintSize(rawLength) - varintSize(rawLength);
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(scratch[0], 0, rawLength);
+        deflater.finish();
+        int compressedLength = budget > 0 ? deflater.deflate(scratch[1], 0, budget) : 0;
+        if (budget <= 0 || !deflater.finished()) {
+            STATS.recordUncompressible(System.nanoTime() - began);
+            return false;
+        }
+
+        out.position(payloadStart);
+        writeVarint(out, rawLength);
+        writeVarint(out, compressedLength);
+        out.put(scratch[1], 0, compressedLength);
+        STATS.recordCompressed(rawLength, compressedLength, System.nanoTime() - began);
+        return true;
+    }
+
+    /**
+     * Inflates and decodes a payload section received compressed.
+     */
+    static Map<String, Object> unpackPayload(byte[] packed, int rawLength) throws IOException {
+        long began = System.nanoTime();
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(packed);
+        try {
+            int length = inflater.inflate(raw);
+            if (length != rawLength || !inflater.finished()) {
+                throw new IOException("Compressed payload inflated to " + length + " bytes, expected " + rawLength);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed payload", e);
+        }
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        try {
+            Map<String, Object> payload = readPayload(in);
+            if (in.hasRemaining()) {
+                throw new IOException(in.remaining() + " trailing bytes after compressed payload");
+            }
+            STATS.recordInflated(System.nanoTime() - began);
+            return payload;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated compressed payload", e);
+        }
+    }
+
+    /**
+     * Decodes a message from a byte array.
+     */
+    public static Message decode(byte[] bytes) throws IOException {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Decodes one message starting at the buffer's position, leaving the position just
+     * after it.
+     */
+    public static Message decode(ByteBuffer in) throws IOException {
+        try {
+            byte version = in.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported wire version " + version);
+            }
+            int flags = in.get();
+            int typeOrdinal = in.get() & 0xFF;
+            if (typeOrdinal >= TYPES.length) {
+                throw new IOException("Unknown message type " + typeOrdinal);
+            }
+            int hopCount = in.get() & 0xFF;
+            MessageId id = (flags & FLAG_TEXT_ID) != 0
+                ? MessageId.parse(readString(in))
+                : new MessageId(in.getLong(), in.getLong());
+            NodeStatus status = (flags & FLAG_NODE_STATUS) != 0 ? NodeStatus.readFrom(in) : null;
+            MessageId receiptId = null;
+            if ((flags & FLAG_RECEIPT_ID) != 0) {
+                receiptId = in.get() == 0
+                    ? new MessageId(in.getLong(), in.getLong())
+                    : MessageId.parse(readString(in));
+            }
+
+            String source = readNullableString(in);
+            String destination = readNullableString(in);
+
+            int routeLength = readVarint(in);
+            if (routeLength > in.remaining()) {
+                throw new IOException("Route length " + routeLength + " exceeds remaining " + in.remaining());
+            }
+            int[] table = new int[routeLength + 2];
+            int tableSize = 0;
+            // Source and destination are only interned once a hop refers to them
+            table[tableSize++] = NodeIdRegistry.UNKNOWN;
+            table[tableSize++] = NodeIdRegistry.UNKNOWN;
+            int[] route = new int[routeLength];
+            for (int i = 0; i < routeLength; i++) {
+                int ref = readVarint(in);
+                if (ref == 0) {
+                    int hop = internRemote(readString(in));
+                    table[tableSize++] = hop;
+                    route[i] = hop;
+                } else if (ref <= tableSize) {
+                    if (table[ref - 1] == NodeIdRegistry.UNKNOWN) {
+                        String endpoint = ref == 1 ? source : destination;
+                        if (ref > 2 || endpoint == null) {
+                            throw new IOException("Invalid route reference " + ref);
+                        }
+                        table[ref - 1] = internRemote(endpoint);
+                    }
+                    route[i] = table[ref - 1];
+                } else {
+                    throw new IOException("Invalid route reference " + ref);
+                }
+            }
+
+            if ((flags & FLAG_COMPRESSED_PAYLOAD) != 0) {
+                int rawLength = readVarint(in);
+                int packedLength = readVarint(in);
+                if (rawLength > MAX_PAYLOAD_SIZE || packedLength > in.remaining()) {
+                    throw new IOException("Invalid compressed payload of " + packedLength + " bytes");
+                }
+                byte[] packed = new byte[packedLength];
+                in.get(packed);
+                Message message = new Message(id, source, destination, TYPES[typeOrdinal], route, null, hopCount);
+                message.setPackedPayload(packed, rawLength);
+                message.setNodeStatus(status);
+                message.setReceiptId(receiptId);
+                return message;
+            }
+            MessageType type = TYPES[typeOrdinal];
+            if (type.isData()) {
+                Message message = new Message(id, source, destination, type, route, null, hopCount);
+                message.setRawPayload(slicePayload(in));
+                message.setNodeStatus(status);
+                message.setReceiptId(receiptId);
+                return message;
+            }
+            Map<String, Object> payload = readPayload(in);
+            Message message = new Message(id, source, destination, type, route, payload, hopCount);
+            message.setNodeStatus(status);
+            message.setReceiptId(receiptId);
+            return message;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated message", e);
+        }
+    }
+
+    private static void writeValue(ByteBuffer out, Object value) {
+        if (value == null) {
+            out.put(TAG_NULL);
+        } else if (value instanceof Boolean) {
+            out.put((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Long) {
+            out.put(TAG_INT);
+            writeVarLong(out, zigZag((Long) value));
+        } else if (value instanceof String) {
+            out.put(TAG_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Double) {
+            out.put(TAG_DOUBLE);
+            out.putDouble((Double) value);
+        } else if (value instanceof Phase) {
+            out.put(TAG_PHASE);
+            out.put((byte) ((Phase) value).ordinal());
+        } else if (value instanceof NodeMetrics) {
+            NodeMetrics metrics = (NodeMetrics) value;
+            out.put(TAG_METRICS);
+            out.putDouble(metrics.getBatteryLevel());
+            out.putDouble(metrics.getProcessingCapacity());
+            out.putDouble(metrics.getNetworkStrength());
+            out.putDouble(metrics.getReliability());
+        } else if (value instanceof Route) {
+            out.put(TAG_ROUTE);
+            writeRoute(out, (Route) value);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            out.put(TAG_BYTES);
+            writeVarint(out, bytes.length);
+            out.put(bytes);
+        } else {
+            out.put(TAG_JSON);
+            writeString(out, ((Message.JsonValue) value).json);
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) throws IOException {
+        byte tag = in.get();
+        switch (tag) {
+            case TAG_JSON:
+                return new Message.JsonValue(readString(in));
+            case TAG_INT:
+                return unZigZag(readVarLong(in));
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return readString(in);
+            case TAG_DOUBLE:
+                return in.getDouble();
+            case TAG_PHASE:
+                int ordinal = in.get() & 0xFF;
+                if (ordinal >= PHASES.length) {
+                    throw new IOException("Unknown phase " + ordinal);
+                }
+                return PHASES[ordinal];
+            case TAG_METRICS:
+                NodeMetrics metrics = new NodeMetrics();
+                metrics.setBatteryLevel(in.getDouble());
+                metrics.setProcessingCapacity(in.getDouble());
+                metrics.setNetworkStrength(in.getDouble());
+                metrics.setReliability(in.getDouble());
+                return metrics;
+            case TAG_ROUTE:
+                return readRoute(in);
+            case TAG_BYTES:
+                int length = readVarint(in);
+                if (length > in.remaining()) {
+                    throw new IOException("Byte array length " + length + " exceeds remaining " + in.remaining());
+                }
+                byte[] bytes = new byte[length];
+                in.get(bytes);
+                return bytes;
+            default:
+                throw new IOException("Unknown payload tag " + tag);
+        }
+    }
+
+    private static void writeRoute(ByteBuffer out, Route route) {
+        writeString(out, route.getId());
+        writeNullableString(out, route.getDestinationId());
+        List<String> hops = route.getHops();
+        writeVarint(out, hops.size());
+        for (String hop : hops) {
+            writeString(out, hop);
+        }
+        writeVarLong(out, route.getLastUpdated());
+        writeVarLong(out, zigZag(route.getHopCount()));
+        out.putDouble(route.getLatency());
+        out.putDouble(route.getBandwidth());
+        out.putDouble(route.getStability());
+    }
+
+    private static Route readRoute(ByteBuffer in) throws IOException {
+        String id = readString(in);
+        String destination = readNullableString(in);
+        int hopTotal = readVarint(in);
+        List<String> hops = new ArrayList<>(Math.min(hopTotal, 64));
+        for (int i = 0; i < hopTotal; i++) {
+            hops.add(readString(in));
+        }
+        Route route = new Route(id, destination, hops, readVarLong(in));
+        route.setHopCount((int) unZigZag(readVarLong(in)));
+        route.setLatency(in.getDouble());
+        route.setBandwidth(in.getDouble());
+        route.setStability(in.getDouble());
+        return route;
+    }
+
+    private static int indexOf(int[] table, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (table[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static void writeVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static int readVarint(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Negative varint");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static void writeVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeString(ByteBuffer out, String value) {
+        writeString(out, value, 0);
+    }
+
+    private static void writeNullableString(ByteBuffer out, String value) {
+        if (value == null) {
+            writeVarint(out, 0);
+        } else {
+            writeString(out, value, 1);
+        }
+    }
+
+    /**
+     * Writes the byte length plus {@code bias}, then the UTF-8 bytes. ASCII strings,
+     * which covers node ids in practice, are written without an intermediate array.
+     */
+    private static void writeString(ByteBuffer out, String value, int bias) {
+        int length = value.length();
+        if (isAscii(value)) {
+            writeVarint(out, length + bias);
+            for (int i = 0; i < length; i++) {
+                out.put((byte) value.charAt(i));
+            }
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length + bias);
+            out.put(bytes);
+        }
+    }
+
+    static String readString(ByteBuffer in) throws IOException {
+        return readString(in, readVarint(in));
+    }
+
+    /**
+     * Interns a node id read from the wire, which fails once the registry is at its
+     * remote limit so made-up ids cannot grow it without bound. Only the message is
+     * rejected; its frame has been read in full.
+     */
+    private static int internRemote(String nodeId) throws RejectedMessageException {
+        int id = NODE_IDS.internRemote(nodeId);
+        if (id == NodeIdRegistry.UNKNOWN) {
+            throw new RejectedMessageException("Node id registry full, rejecting unknown node " + nodeId);
+        }
+        return id;
+    }
+
+    private static String readNullableString(ByteBuffer in) throws IOException {
+        int marker = readVarint(in);
+        return marker == 0 ? null : readString(in, marker - 1);
+    }
+
+    private static String readString(ByteBuffer in, int length) throws IOException {
+        if (length > in.remaining()) {
+            throw new IOException("String length " + length + " exceeds remaining " + in.remaining());
+        }
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        byte[] scratch = STRING_SCRATCH.get();
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+            STRING_SCRATCH.set(scratch);
+        }
+        in.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -19,7 +19,31 @@ public interface MessageHandler {
     /**
      * Handles an incoming message.
      * @param message The message to handle
-     * @return The processed message
+     * @return The processed message. Transports write a result back to the sender only
+     *         when it is a different message, so returning the message itself never
+     *         produces a reply
      */
     Message handleMessage(Message message);
+
+    /**
+     * Checks whether the handler has room for more inbound messages. Transports stop
+     * reading from peers while this returns false.
+     */
+    default boolean isAcceptingMessages() {
+        return true;
+    }
+
+    /**
+     * Blocks until {@link #isAcceptingMessages()} would return true. Used by blocking
+     * transports before reading the next frame.
+     */
+    default void awaitCapacity() throws InterruptedException {
+    }
+
+    /**
+     * Registers a callback run whenever the handler starts accepting messages again
+     * after having refused them.
+     */
+    default void addCapacityListener(Runnable listener) {
+    }
 }
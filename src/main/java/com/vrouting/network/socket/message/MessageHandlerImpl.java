@@ -1,39 +1,95 @@
 package com.vrouting.network.socket.message;
 
+import com.vrouting.network.socket.concurrent.MpscRingBuffer;
+import com.vrouting.network.socket.concurrent.WaitStrategy;
+import com.vrouting.network.socket.config.IngressDropPolicy;
+import com.vrouting.network.socket.config.IngressQueueType;
+import com.vrouting.network.socket.config.NetworkConfig;
 import com.vrouting.network.socket.core.Node;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
 /**
  * Implementation of MessageHandler interface.
+ *
+ * <p>Inbound messages are hashed by source node onto {@link NetworkConfig#getIngressLanes()}
+ * lanes, each drained by its own worker, so messages from one source are processed in
+ * order while different peers are processed in parallel.
+ *
+ * <p>Within a lane, control-plane messages go to an unbounded queue and are always
+ * taken first. DATA messages go to a queue bounded by the lane's share of
+ * {@link NetworkConfig#getIngressQueueCapacity()}; once any lane is full the handler
+ * stops accepting until that lane has drained to three quarters, so transports can
+ * stop reading from sockets, and DATA arriving anyway is handled by
+ * {@link NetworkConfig#getIngressDropPolicy()}.
+ *
+ * <p>With {@link IngressQueueType#RING_BUFFER} the DATA queue of each lane is a
+ * lock-free {@link MpscRingBuffer} instead, and a full ring always rejects.
  */
 public class MessageHandlerImpl implements MessageHandler {
     private static final Logger logger = Logger.getLogger(MessageHandlerImpl.class.getName());
     
     private final Node node;
-    private final BlockingQueue<Message> messageQueue;
+    private final Lane[] lanes;
+    private final IngressDropPolicy dropPolicy;
+    private final ReentrantLock capacityLock;
+    private final Condition capacityRestored;
+    private final List<Runnable> capacityListeners;
+    private final AtomicInteger fullLanes;
+    private final AtomicLong droppedCount;
+    private final AtomicLong rejectedCount;
     private final ExecutorService executor;
     private final AtomicBoolean isRunning;
     
     public MessageHandlerImpl(Node node) {
+        NetworkConfig config = node.getConfig();
         this.node = node;
-        this.messageQueue = new LinkedBlockingQueue<>();
-        this.executor = Executors.newSingleThreadExecutor();
+        int laneCount = config.getIngressLanes();
+        int laneCapacity = Math.max(1, (config.getIngressQueueCapacity() + laneCount - 1) / laneCount);
+        this.lanes = new Lane[laneCount];
+        this.dropPolicy = config.getIngressDropPolicy();
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = config.getIngressQueueType() == IngressQueueType.RING_BUFFER
+                ? new RingLane(new MpscRingBuffer<>(laneCapacity), config.getIngressWaitStrategy())
+                : new LockedLane(laneCapacity);
+        }
+        this.capacityLock = new ReentrantLock();
+        this.capacityRestored = capacityLock.newCondition();
+        this.capacityListeners = new CopyOnWriteArrayList<>();
+        this.fullLanes = new AtomicInteger(0);
+        this.droppedCount = new AtomicLong(0);
+        this.rejectedCount = new AtomicLong(0);
+        this.executor = config.getExecutorProvider()
+            .newBlockingExecutor("message-handler-" + node.getNodeId(), laneCount);
         this.isRunning = new AtomicBoolean(false);
     }
     
     @Override
     public void start() {
         if (isRunning.compareAndSet(false, true)) {
-            executor.submit(this::processMessages);
-            logger.info("Message handler started for node " + node.getNodeId());
+            for (Lane lane : lanes) {
+                executor.submit(lane);
+            }
+            logger.info("Message handler started for node " + node.getNodeId() + " with " + lanes.length + " lane(s)");
         }
     }
     
     @Override
     public void stop() {
         if (isRunning.compareAndSet(true, false)) {
+            for (Lane lane : lanes) {
+                lane.wakeUp();
+            }
+            signalCapacity();
             executor.shutdown();
             try {
                 if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
@@ -47,29 +103,68 @@ public class MessageHandlerImpl implements MessageHandler {
         }
     }
     
+    /**
+     * Queues a message on its source's lane.
+     *
+     * @return the message, or null if the handler is not running or the message was
+     *         rejected because the lane's DATA queue is full
+     */
     @Override
     public Message handleMessage(Message message) {
-        if (isRunning.get()) {
-            messageQueue.offer(message);
-            return message; // Return the message after offering it to the queue
+        if (!isRunning.get()) {
+            return null; // Return null if the handler is not running
+        }
+        return laneFor(message.getSourceNodeId()).offer(message) ? message : null;
+    }
+    
+    @Override
+    public boolean isAcceptingMessages() {
+        return fullLanes.get() == 0 || !isRunning.get();
+    }
+    
+    @Override
+    public void awaitCapacity() throws InterruptedException {
+        if (isAcceptingMessages()) {
+            return;
+        }
+        capacityLock.lockInterruptibly();
+        try {
+            while (!isAcceptingMessages()) {
+                capacityRestored.await();
+            }
+        } finally {
+            capacityLock.unlock();
+        }
+    }
+    
+    @Override
+    public void addCapacityListener(Runnable listener) {
+        capacityListeners.add(listener);
+    }
+    
+    private Lane laneFor(String sourceNodeId) {
+        if (lanes.length == 1 || sourceNodeId == null) {
+            return lanes[0];
         }
-        return null; // Return null if the handler is not running
+        int hash = sourceNodeId.hashCode();
+        return lanes[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % lanes.length];
     }
     
-    private void processMessages() {
-        while (isRunning.get()) {
+    /**
+     * Wakes blocked readers and capacity listeners once no lane is full any more.
+     */
+    private void signalCapacity() {
+        capacityLock.lock();
+        try {
+            capacityRestored.signalAll();
+        } finally {
+            capacityLock.unlock();
+        }
+        for (Runnable listener : capacityListeners) {
             try {
-                Message message = messageQueue.poll(100, TimeUnit.MILLISECONDS);
-                if (message != null) {
-                    try {
-                        node.processMessage(message);
-                    } catch (Exception e) {
-                        logger.warning("Error processing message: " + e.getMessage());
-                    }
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+                listener.run();
+            } catch (RuntimeException e) {
+                logger.warning("Capacity listener failed: " + e.getMessage());
             }
         }
     }
@@ -78,7 +173,69 @@ public class MessageHandlerImpl implements MessageHandler {
      * Gets the current queue size.
      */
     public int getQueueSize() {
-        return messageQueue.size();
+        return getControlQueueSize() + getDataQueueSize();
+    }
+    
+    /**
+     * Gets the number of queued control-plane messages.
+     */
+    public int getControlQueueSize() {
+        int size = 0;
+        for (Lane lane : lanes) {
+            size += lane.controlSize();
+        }
+        return size;
+    }
+    
+    /**
+     * Gets the number of queued DATA messages.
+     */
+    public int getDataQueueSize() {
+        int size = 0;
+        for (Lane lane : lanes) {
+            size += lane.dataSize();
+        }
+        return size;
+    }
+    
+    /**
+     * Gets the number of messages queued on one lane.
+     */
+    public int getLaneQueueSize(int lane) {
+        return lanes[lane].controlSize() + lanes[lane].dataSize();
+    }
+    
+    /**
+     * Gets the number of worker lanes.
+     */
+    public int getLaneCount() {
+        return lanes.length;
+    }
+    
+    /**
+     * Gets the total capacity of the DATA queues.
+     */
+    public int getCapacity() {
+        int capacity = 0;
+        for (Lane lane : lanes) {
+            capacity += lane.capacity;
+        }
+        return capacity;
+    }
+    
+    /**
+     * Gets the number of queued DATA messages evicted under
+     * {@link IngressDropPolicy#DROP_OLDEST_DATA}.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+    
+    /**
+     * Gets the number of DATA messages refused under {@link IngressDropPolicy#REJECT}.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
     }
     
     /**
@@ -87,4 +244,269 @@ public class MessageHandlerImpl implements MessageHandler {
     public boolean isRunning() {
         return isRunning.get();
     }
+    
+    /**
+     * One worker's queues. Only its own worker takes from it.
+     */
+    private abstract class Lane implements Runnable {
+        final int capacity;
+        final int resumeThreshold;
+        
+        Lane(int capacity) {
+            this.capacity = capacity;
+            this.resumeThreshold = capacity - Math.max(1, capacity / 4);
+        }
+        
+        /**
+         * Queues a message. Returns false if it was refused.
+         */
+        abstract boolean offer(Message message);
+        
+        /**
+         * Waits for the next message, control-plane first. Returns null once stopped.
+         */
+        abstract Message take() throws InterruptedException;
+        
+        abstract void wakeUp();
+        
+        abstract int controlSize();
+        
+        abstract int dataSize();
+        
+        @Override
+        public void run() {
+            while (isRunning.get()) {
+                try {
+                    Message message = take();
+                    if (message != null) {
+                        try {
+                            node.processMessage(message);
+                        } catch (Exception e) {
+                            logger.warning("Error processing message: " + e.getMessage());
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Lane backed by lock-guarded queues and a condition the worker blocks on.
+     */
+    private final class LockedLane extends Lane {
+        private final Queue<Message> controlQueue;
+        private final Queue<Message> dataQueue;
+        private final ReentrantLock lock;
+        private final Condition notEmpty;
+        private boolean full;
+        
+        LockedLane(int capacity) {
+            super(capacity);
+            this.controlQueue = new ArrayDeque<>();
+            this.dataQueue = new ArrayDeque<>();
+            this.lock = new ReentrantLock();
+            this.notEmpty = lock.newCondition();
+        }
+        
+        @Override
+        boolean offer(Message message) {
+            lock.lock();
+            try {
+                if (!message.getType().isData()) {
+                    controlQueue.add(message);
+                } else if (dataQueue.size() < capacity) {
+                    dataQueue.add(message);
+                } else if (dropPolicy == IngressDropPolicy.DROP_OLDEST_DATA) {
+                    dataQueue.poll();
+                    dataQueue.add(message);
+                    droppedCount.incrementAndGet();
+                } else {
+                    rejectedCount.incrementAndGet();
+                    return false;
+                }
+                if (!full && dataQueue.size() >= capacity) {
+                    full = true;
+                    fullLanes.incrementAndGet();
+                }
+                notEmpty.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        @Override
+        Message take() throws InterruptedException {
+            boolean resumed = false;
+            Message message;
+            lock.lockInterruptibly();
+            try {
+                while (controlQueue.isEmpty() && dataQueue.isEmpty()) {
+                    if (!isRunning.get()) {
+                        return null;
+                    }
+                    notEmpty.await();
+                }
+                message = controlQueue.poll();
+                if (message == null) {
+                    message = dataQueue.poll();
+                    if (full && dataQueue.size() <= resumeThreshold) {
+                        full = false;
+                        resumed = fullLanes.decrementAndGet() == 0;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (resumed) {
+                signalCapacity();
+            }
+            return message;
+        }
+        
+        @Override
+        void wakeUp() {
+            lock.lock();
+            try {
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        @Override
+        int controlSize() {
+            lock.lock();
+            try {
+                return controlQueue.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        @Override
+        int dataSize() {
+            lock.lock();
+            try {
+                return dataQueue.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Lane whose DATA queue is a preallocated {@link MpscRingBuffer}; producers never
+     * take a lock. Control-plane messages use an unbounded lock-free queue so they are
+     * never refused. The worker waits according to the configured {@link WaitStrategy}.
+     */
+    private final class RingLane extends Lane {
+        private final Queue<Message> controlQueue;
+        private final MpscRingBuffer<Message> dataRing;
+        private final WaitStrategy waitStrategy;
+        private final AtomicBoolean full;
+        private volatile Thread parkedWorker;
+        
+        RingLane(MpscRingBuffer<Message> dataRing, WaitStrategy waitStrategy) {
+            super(dataRing.capacity());
+            this.controlQueue = new ConcurrentLinkedQueue<>();
+            this.dataRing = dataRing;
+            this.waitStrategy = waitStrategy;
+            this.full = new AtomicBoolean(false);
+        }
+        
+        @Override
+        boolean offer(Message message) {
+            boolean accepted;
+            if (!message.getType().isData()) {
+                accepted = controlQueue.offer(message);
+            } else {
+                accepted = dataRing.offer(message);
+                if (!accepted) {
+                    rejectedCount.incrementAndGet();
+                }
+                if ((!accepted || dataRing.size() >= capacity) && full.compareAndSet(false, true)) {
+                    fullLanes.incrementAndGet();
+                }
+            }
+            Thread worker = parkedWorker;
+            if (worker != null) {
+                LockSupport.unpark(worker);
+            }
+            return accepted;
+        }
+        
+        @Override
+        Message take() {
+            int idle = 0;
+            while (true) {
+                Message message = controlQueue.poll();
+                if (message == null) {
+                    message = dataRing.poll();
+                }
+                checkResume();
+                if (message != null) {
+                    return message;
+                }
+                if (!isRunning.get()) {
+                    return null;
+                }
+                switch (waitStrategy) {
+                    case BUSY_SPIN:
+                        break;
+                    case YIELD:
+                        Thread.yield();
+                        break;
+                    default:
+                        if (idle++ < WaitStrategy.PARK_SPINS) {
+                            Thread.yield();
+                        } else {
+                            park();
+                        }
+                }
+            }
+        }
+        
+        /**
+         * Parks until a producer or {@link #wakeUp()} unparks this worker. Publishing
+         * the worker before re-checking the tail and the full flag pairs with producers
+         * reading it after their CAS, so neither a message nor a pending resume of a
+         * full lane can be missed.
+         */
+        private void park() {
+            parkedWorker = Thread.currentThread();
+            if (controlQueue.isEmpty() && dataRing.isEmpty() && !full.get() && isRunning.get()) {
+                LockSupport.park(this);
+            }
+            parkedWorker = null;
+        }
+        
+        private void checkResume() {
+            if (full.get() && dataRing.size() <= resumeThreshold && full.compareAndSet(true, false)
+                && fullLanes.decrementAndGet() == 0) {
+                signalCapacity();
+            }
+        }
+        
+        @Override
+        void wakeUp() {
+            Thread worker = parkedWorker;
+            if (worker != null) {
+                LockSupport.unpark(worker);
+            }
+        }
+        
+        @Override
+        int controlSize() {
+            return controlQueue.size();
+        }
+        
+        @Override
+        int dataSize() {
+            return dataRing.size();
+        }
+    }
 }
@@ -0,0 +1,133 @@
+package com.vrouting.network.socket.message;
+
+import java.io.Serializable;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Identifier of a {@link Message}: a 64-bit process epoch and a 64-bit sequence number.
+ *
+ * <p>The epoch is drawn once per JVM from the start time (high 32 bits) and a
+ * {@link SecureRandom} value (low 32 bits), so two processes, or one process restarted,
+ * never share an epoch in practice. Sequence numbers come from a single
+ * {@link AtomicLong}, so they are unique within the epoch and increase in the order ids
+ * are created, across all threads. Receivers rely on that order: the
+ * {@code DuplicateFilter} remembers the newest sequences of each sender and epoch, and
+ * older ones only for a bounded time.
+ *
+ * <p>Ids received with a non-canonical string form, such as those assigned by hand,
+ * keep that string and compare by it. {@link #toString()} is the canonical UUID form
+ * of the two longs, computed on first use.
+ */
+public final class MessageId implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final long EPOCH = newEpoch();
+    private static final AtomicLong NEXT_SEQUENCE = new AtomicLong(1);
+
+    private final long epoch;
+    private final long sequence;
+    private final boolean compact;
+    private String text;
+
+    MessageId(long epoch, long sequence) {
+        this.epoch = epoch;
+        this.sequence = sequence;
+        this.compact = true;
+    }
+
+    private MessageId(String text) {
+        this.epoch = 0;
+        this.sequence = 0;
+        this.compact = false;
+        this.text = text;
+    }
+
+    /**
+     * Creates the next id of this process.
+     */
+    public static MessageId next() {
+        return new MessageId(EPOCH, NEXT_SEQUENCE.getAndIncrement());
+    }
+
+    /**
+     * Parses an id string. Canonical UUID strings become compact ids; anything else
+     * is kept as text.
+     */
+    public static MessageId parse(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Message id must not be null");
+        }
+        if (id.length() == 36) {
+            try {
+                UUID uuid = UUID.fromString(id);
+                if (uuid.toString().equals(id)) {
+                    MessageId parsed = new MessageId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+                    parsed.text = id;
+                    return parsed;
+                }
+            } catch (IllegalArgumentException e) {
+                // Not a UUID, keep as text
+            }
+        }
+        return new MessageId(id);
+    }
+
+    /**
+     * Gets the epoch of this process, shared by every id it creates.
+     */
+    public static long localEpoch() {
+        return EPOCH;
+    }
+
+    /**
+     * Returns whether this id is the epoch/sequence pair rather than free text.
+     */
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MessageId)) return false;
+        MessageId other = (MessageId) o;
+        if (compact != other.compact) return false;
+        return compact
+            ? epoch == other.epoch && sequence == other.sequence
+            : text.equals(other.text);
+    }
+
+    @Override
+    public int hashCode() {
+        if (!compact) {
+            return text.hashCode();
+        }
+        long h = epoch * 0x9E3779B97F4A7C15L ^ sequence;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        String s = text;
+        if (s == null) {
+            s = new UUID(epoch, sequence).toString();
+            text = s;
+        }
+        return s;
+    }
+
+    private static long newEpoch() {
+        long seconds = System.currentTimeMillis() / 1000;
+        return (seconds << 32) | (new SecureRandom().nextInt() & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,104 @@
+package com.vrouting.network.socket.message;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recycles {@link Message} instances, with their route and payload containers, through
+ * per-thread free lists so the forwarding path does not allocate a message per hop.
+ *
+ * <p>Ownership: {@link #acquire} and {@link #copyOf} hand the caller a message it owns.
+ * The owner either passes it to a transport send, which takes over ownership and
+ * releases it once the message is encoded, or calls {@link Message#release()} itself.
+ * A message is released exactly once; a message that is never released is simply
+ * garbage collected. Releasing on a different thread than the one that acquired is
+ * allowed; the message then joins that thread's free list.
+ *
+ * <p>In debug mode released messages are never reused and remember where they were
+ * released, so any later use fails with that stack trace as the cause.
+ */
+public final class MessagePool {
+    private final int maxPerThread;
+    private final boolean debug;
+    private final ThreadLocal<ArrayDeque<Message>> freeLists;
+    private final LongAdder allocated;
+    private final LongAdder reused;
+
+    /**
+     * @param maxPerThread most released messages kept per thread
+     * @param debug quarantine released messages and record release sites
+     */
+    public MessagePool(int maxPerThread, boolean debug) {
+        if (maxPerThread < 1) {
+            throw new IllegalArgumentException("maxPerThread must be positive");
+        }
+        this.maxPerThread = maxPerThread;
+        this.debug = debug;
+        this.freeLists = ThreadLocal.withInitial(ArrayDeque::new);
+        this.allocated = new LongAdder();
+        this.reused = new LongAdder();
+    }
+
+    /**
+     * Takes a message with a new id and an empty route and payload.
+     */
+    public Message acquire(String sourceNodeId, String destinationNodeId, MessageType type) {
+        Message message = take();
+        message.reset(MessageId.next(), sourceNodeId, destinationNodeId, type);
+        return message;
+    }
+
+    /**
+     * Takes a message initialized as {@link Message#copy()} would, sharing the
+     * original's route and payload until either side writes them.
+     */
+    public Message copyOf(Message original) {
+        Message message = take();
+        original.copyInto(message);
+        return message;
+    }
+
+    void release(Message message) {
+        if (message.isReleased()) {
+            throw new IllegalStateException("Message released twice");
+        }
+        message.markReleased(debug ? new Throwable("Released here") : null);
+        if (!debug) {
+            ArrayDeque<Message> free = freeLists.get();
+            if (free.size() < maxPerThread) {
+                free.push(message);
+            }
+        }
+    }
+
+    /**
+     * Gets how many messages this pool has created.
+     */
+    public long getAllocatedCount() {
+        return allocated.sum();
+    }
+
+    /**
+     * Gets how many acquisitions were served from a free list.
+     */
+    public long getReusedCount() {
+        return reused.sum();
+    }
+
+    /**
+     * Gets the number of released messages waiting on the calling thread's free list.
+     */
+    public int getFreeCount() {
+        return freeLists.get().size();
+    }
+
+    private Message take() {
+        Message message = freeLists.get().poll();
+        if (message != null) {
+            reused.increment();
+            return message;
+        }
+        allocated.increment();
+        return new Message(this);
+    }
+}
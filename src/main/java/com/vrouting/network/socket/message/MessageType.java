@@ -27,5 +27,39 @@ public enum MessageType {
     
     // Data messages
     DATA,
-    DATA_ACK  // Added DATA_ACK
+    DATA_ACK,  // Added DATA_ACK
+    
+    // Streamed data: one chunk of a stream, and the receiver's acknowledgement
+    DATA_FRAGMENT,
+    DATA_FRAGMENT_ACK,
+    
+    // Gossip anti-entropy: ids of recent broadcasts, and a request for missing ones
+    GOSSIP_DIGEST,
+    GOSSIP_REQUEST;
+    
+    /**
+     * Returns whether this type carries application data, which is queued and
+     * compressed as bulk traffic rather than control traffic.
+     */
+    public boolean isData() {
+        return this == DATA || this == DATA_FRAGMENT;
+    }
+    
+    /**
+     * Returns whether this type is a heartbeat or an answer to one. These only concern
+     * direct neighbors and are never relayed.
+     */
+    public boolean isHeartbeat() {
+        switch (this) {
+            case HEARTBEAT:
+            case HEARTBEAT_DISCOVERY:
+            case HEARTBEAT_STABLE:
+            case HEARTBEAT_UPDATE:
+            case HEARTBEAT_RESPONSE:
+            case HEARTBEAT_ACK:
+                return true;
+            default:
+                return false;
+        }
+    }
 }
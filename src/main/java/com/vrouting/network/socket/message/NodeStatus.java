@@ -0,0 +1,127 @@
+package com.vrouting.network.socket.message;
+
+import com.vrouting.network.socket.core.NodeMetrics;
+import com.vrouting.network.socket.core.Phase;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * Phase, depth and metrics of a node as carried by heartbeat responses, in a fixed
+ * {@value #SIZE}-byte layout:
+ * <pre>
+ * byte    phase           (Phase ordinal)
+ * u16     depth           (clamped to 0..65535)
+ * u16     battery level, processing capacity, network strength, reliability
+ *                         (each metric in [0, 1] quantized to 1/65535)
+ * </pre>
+ * Values are immutable; the metrics are kept quantized and rebuilt on each read.
+ */
+public final class NodeStatus implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int SIZE = 11;
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final int MAX_U16 = 0xFFFF;
+
+    private final Phase phase;
+    private final int depth;
+    private final char battery;
+    private final char processing;
+    private final char network;
+    private final char reliability;
+
+    public NodeStatus(Phase phase, int depth, NodeMetrics metrics) {
+        if (phase == null) {
+            throw new IllegalArgumentException("phase must not be null");
+        }
+        this.phase = phase;
+        this.depth = Math.max(0, Math.min(MAX_U16, depth));
+        this.battery = quantize(metrics.getBatteryLevel());
+        this.processing = quantize(metrics.getProcessingCapacity());
+        this.network = quantize(metrics.getNetworkStrength());
+        this.reliability = quantize(metrics.getReliability());
+    }
+
+    private NodeStatus(Phase phase, int depth, char battery, char processing, char network, char reliability) {
+        this.phase = phase;
+        this.depth = depth;
+        this.battery = battery;
+        this.processing = processing;
+        this.network = network;
+        this.reliability = reliability;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public NodeMetrics getMetrics() {
+        NodeMetrics metrics = new NodeMetrics();
+        metrics.setBatteryLevel(dequantize(battery));
+        metrics.setProcessingCapacity(dequantize(processing));
+        metrics.setNetworkStrength(dequantize(network));
+        metrics.setReliability(dequantize(reliability));
+        return metrics;
+    }
+
+    void writeTo(ByteBuffer out) {
+        out.put((byte) phase.ordinal());
+        out.putChar((char) depth);
+        out.putChar(battery);
+        out.putChar(processing);
+        out.putChar(network);
+        out.putChar(reliability);
+    }
+
+    /**
+     * Reads a status block at the buffer's position, advancing past it.
+     */
+    static NodeStatus readFrom(ByteBuffer in) throws IOException {
+        int ordinal = in.get() & 0xFF;
+        if (ordinal >= PHASES.length) {
+            throw new IOException("Unknown phase " + ordinal);
+        }
+        return new NodeStatus(PHASES[ordinal], in.getChar(), in.getChar(), in.getChar(), in.getChar(), in.getChar());
+    }
+
+    static char quantize(double value) {
+        double clamped = Math.max(0.0, Math.min(1.0, value));
+        return (char) Math.round(clamped * MAX_U16);
+    }
+
+    static double dequantize(char value) {
+        return (double) value / MAX_U16;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof NodeStatus)) return false;
+        NodeStatus other = (NodeStatus) o;
+        return phase == other.phase && depth == other.depth && battery == other.battery
+            && processing == other.processing && network == other.network && reliability == other.reliability;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = phase.hashCode();
+        result = 31 * result + depth;
+        result = 31 * result + battery;
+        result = 31 * result + processing;
+        result = 31 * result + network;
+        return 31 * result + reliability;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NodeStatus[phase=%s, depth=%d, battery=%.4f, processing=%.4f, network=%.4f, reliability=%.4f]",
+            phase, depth, dequantize(battery), dequantize(processing), dequantize(network), dequantize(reliability));
+    }
+}
@@ -0,0 +1,17 @@
+package com.vrouting.network.socket.message;
+
+import java.io.IOException;
+
+/**
+ * Thrown when decoding a well-formed message that this node refuses, such as one naming
+ * a node the {@link com.vrouting.network.socket.core.NodeIdRegistry} has no room for.
+ * The message's bytes were consumed, so the stream it came from is still in step and
+ * can go on with the next message.
+ */
+public class RejectedMessageException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public RejectedMessageException(String message) {
+        super(message);
+    }
+}
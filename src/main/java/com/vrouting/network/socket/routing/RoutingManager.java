@@ -1,6 +1,8 @@
 package com.vrouting.network.socket.routing;
 
 import com.vrouting.network.socket.core.Node;
+import com.vrouting.network.socket.core.NodeIdMap;
+import com.vrouting.network.socket.core.NodeIdRegistry;
 import com.vrouting.network.socket.message.Message;
 import com.vrouting.network.socket.message.MessageType;
 import org.slf4j.Logger;
@@ -11,13 +13,15 @@ import java.util.concurrent.*;
 public class RoutingManager {
     private static final Logger logger = LoggerFactory.getLogger(RoutingManager.class);
     private final Node node;
-    private final Map<String, RoutingEntry> routingTable;
+    private final NodeIdRegistry nodeIds;
+    private final NodeIdMap<RoutingEntry> routingTable;
     private final ScheduledExecutorService scheduler;
     
     public RoutingManager(Node node) {
         this.node = node;
-        this.routingTable = new ConcurrentHashMap<>();
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.nodeIds = NodeIdRegistry.global();
+        this.routingTable = new NodeIdMap<>();
+        this.scheduler = node.getConfig().getExecutorProvider().newScheduler("routing-" + node.getNodeId(), 1);
     }
     
     public void start() {
@@ -38,11 +42,23 @@ public class RoutingManager {
     }
     
     public String getNextHop(String destinationId) {
+        int destination = nodeIds.lookup(destinationId);
+        if (destination == NodeIdRegistry.UNKNOWN) {
+            return null;
+        }
+        int nextHop = getNextHop(destination);
+        return nextHop != NodeIdRegistry.UNKNOWN ? nodeIds.nameOf(nextHop) : null;
+    }
+    
+    /**
+     * Gets the interned next hop toward a destination, or {@link NodeIdRegistry#UNKNOWN}.
+     */
+    public int getNextHop(int destinationId) {
         RoutingEntry entry = routingTable.get(destinationId);
         if (entry != null && !entry.isExpired()) {
             return entry.getNextHop();
         }
-        return null;
+        return NodeIdRegistry.UNKNOWN;
     }
     
     public void updateRoute(Message message) {
@@ -51,36 +67,41 @@ public class RoutingManager {
         }
         
         String sourceId = message.getSourceNodeId();
-        List<String> routeHistory = message.getRouteHistory();
+        int routeLength = message.getRouteLength();
         
-        if (sourceId != null && !routeHistory.isEmpty()) {
+        if (sourceId != null && routeLength > 0) {
+            int source = nodeIds.internRemote(sourceId);
+            if (source == NodeIdRegistry.UNKNOWN) {
+                logger.debug("Node id registry full, not learning a route to {}", sourceId);
+                return;
+            }
             // Update or create routing entry
-            String nextHop = routeHistory.get(routeHistory.size() - 1);
-            RoutingEntry entry = new RoutingEntry(nextHop, routeHistory.size(), System.currentTimeMillis());
-            routingTable.put(sourceId, entry);
+            int nextHop = message.getRouteId(routeLength - 1);
+            RoutingEntry entry = new RoutingEntry(nextHop, routeLength, System.currentTimeMillis());
+            routingTable.put(source, entry);
             
-            logger.debug("Updated route to {} via {}", sourceId, nextHop);
+            logger.debug("Updated route to {} via {}", sourceId, nodeIds.nameOf(nextHop));
         }
     }
     
     private void cleanupRoutes() {
         long now = System.currentTimeMillis();
-        routingTable.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+        routingTable.removeIf((destination, entry) -> entry.isExpired(now));
     }
     
     private static class RoutingEntry {
-        private final String nextHop;
+        private final int nextHop;
         private final int hopCount;
         private final long timestamp;
         private static final long ROUTE_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
         
-        public RoutingEntry(String nextHop, int hopCount, long timestamp) {
+        public RoutingEntry(int nextHop, int hopCount, long timestamp) {
             this.nextHop = nextHop;
             this.hopCount = hopCount;
             this.timestamp = timestamp;
         }
         
-        public String getNextHop() {
+        public int getNextHop() {
             return nextHop;
         }
         
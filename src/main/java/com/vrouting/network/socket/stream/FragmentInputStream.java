@@ -0,0 +1,254 @@
+package com.vrouting.network.socket.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Receiving side of a data stream. Chunks are reassembled in sequence order into a
+ * buffer of at most a window of chunks past the reader's position; chunks beyond it
+ * are dropped and resent by the sender once the reader makes room.
+ *
+ * <p>The stream decides when the sender should hear back: when a gap appears, when
+ * half a window has arrived or been read since the last acknowledgement, and when the
+ * final chunk completes the stream. {@link StreamManager} turns those decisions into
+ * {@link com.vrouting.network.socket.message.MessageType#DATA_FRAGMENT_ACK} messages.
+ */
+public class FragmentInputStream extends InputStream {
+    static final int MAX_MISSING_REPORTED = 64;
+
+    private final String sourceNodeId;
+    private final long streamId;
+    private final int window;
+    private final Runnable requestAck;
+    private final ReentrantLock lock;
+    private final Condition available;
+    private final byte[][] slots;
+    private long readSeq;
+    private long nextExpected;
+    private long highestSeen;
+    private long lastSeq;
+    private long ackedNext;
+    private long ackedLimit;
+    private byte[] current;
+    private int position;
+    private boolean closed;
+    private IOException failure;
+
+    FragmentInputStream(String sourceNodeId, long streamId, int window, Runnable requestAck) {
+        this.sourceNodeId = sourceNodeId;
+        this.streamId = streamId;
+        this.window = window;
+        this.requestAck = requestAck;
+        this.lock = new ReentrantLock();
+        this.available = lock.newCondition();
+        this.slots = new byte[window][];
+        this.highestSeen = -1;
+        this.lastSeq = -1;
+        this.ackedLimit = window;
+    }
+
+    public String getSourceNodeId() {
+        return sourceNodeId;
+    }
+
+    public long getStreamId() {
+        return streamId;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (current == null || position == current.length) {
+            if (!nextChunk()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.length - position;
+    }
+
+    /**
+     * Stops reading; chunks still arriving are discarded.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = null;
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        requestAck.run();
+    }
+
+    boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether every chunk up to the final one has been read.
+     */
+    public boolean isComplete() {
+        lock.lock();
+        try {
+            return lastSeq >= 0 && readSeq > lastSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores an arriving chunk.
+     *
+     * @return whether the sender should be sent an acknowledgement now
+     */
+    boolean accept(long seq, byte[] chunk, boolean last) {
+        lock.lock();
+        try {
+            if (closed || seq < 0) {
+                return false;
+            }
+            if (seq < nextExpected) {
+                // Duplicate: the sender probably missed our acknowledgement
+                return true;
+            }
+            if (seq >= readSeq + window) {
+                return true;
+            }
+            int slot = (int) (seq % window);
+            if (slots[slot] == null) {
+                slots[slot] = chunk;
+            }
+            if (last) {
+                lastSeq = seq;
+            }
+            highestSeen = Math.max(highestSeen, seq);
+            while (nextExpected < readSeq + window && slots[(int) (nextExpected % window)] != null) {
+                nextExpected++;
+            }
+            available.signalAll();
+            return highestSeen >= nextExpected
+                || (lastSeq >= 0 && nextExpected > lastSeq)
+                || nextExpected - ackedNext >= Math.max(1, window / 2);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Captures the acknowledgement to send: the next expected chunk, the limit the
+     * sender may send up to and up to {@value #MAX_MISSING_REPORTED} missing chunks.
+     */
+    Ack takeAck() {
+        lock.lock();
+        try {
+            long limit = readSeq + window;
+            long end = Math.min(highestSeen, limit - 1);
+            int missingCount = 0;
+            long[] missing = new long[(int) Math.max(0, Math.min(MAX_MISSING_REPORTED, end - nextExpected + 1))];
+            for (long seq = nextExpected; seq <= end && missingCount < missing.length; seq++) {
+                if (slots[(int) (seq % window)] == null) {
+                    missing[missingCount++] = seq;
+                }
+            }
+            ackedNext = nextExpected;
+            ackedLimit = limit;
+            return new Ack(nextExpected, limit, java.util.Arrays.copyOf(missing, missingCount));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void abort(IOException cause) {
+        lock.lock();
+        try {
+            if (failure == null) {
+                failure = cause;
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the next chunk in sequence, blocking until it arrives.
+     *
+     * @return false at the end of the stream
+     */
+    private boolean nextChunk() throws IOException {
+        boolean openWindow;
+        lock.lock();
+        try {
+            int slot = (int) (readSeq % window);
+            while (slots[slot] == null) {
+                if (closed || (lastSeq >= 0 && readSeq > lastSeq)) {
+                    current = null;
+                    return false;
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                available.await();
+            }
+            current = slots[slot];
+            position = 0;
+            slots[slot] = null;
+            readSeq++;
+            openWindow = readSeq + window - ackedLimit >= Math.max(1, window / 2)
+                || (lastSeq >= 0 && readSeq > lastSeq);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted reading stream " + streamId);
+        } finally {
+            lock.unlock();
+        }
+        if (openWindow) {
+            requestAck.run();
+        }
+        return true;
+    }
+
+    static final class Ack {
+        final long next;
+        final long limit;
+        final long[] missing;
+
+        Ack(long next, long limit, long[] missing) {
+            this.next = next;
+            this.limit = limit;
+            this.missing = missing;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.vrouting.network.socket.stream;
+
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageType;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Sending side of a data stream. Bytes written are cut into chunks of
+ * {@link com.vrouting.network.socket.config.NetworkConfig#getStreamChunkSize()} bytes,
+ * each sent as a sequence-numbered {@link MessageType#DATA_FRAGMENT}.
+ *
+ * <p>At most a window of chunks is kept for retransmission. Writers block while the
+ * window is full or the receiver has not opened room for more. Acknowledgements free
+ * chunks and name missing ones, which are resent at once. A writer waiting longer than
+ * the retransmit timeout resends the oldest unacknowledged chunk. {@link #close()} sends
+ * the final chunk and waits until every chunk is acknowledged.
+ */
+public class FragmentOutputStream extends OutputStream {
+    private final String sourceNodeId;
+    private final String destinationNodeId;
+    private final long streamId;
+    private final int window;
+    private final long retransmitTimeoutNanos;
+    private final int maxRetransmits;
+    private final Consumer<Message> sender;
+    private final Runnable onClose;
+    private final ReentrantLock lock;
+    private final Condition progress;
+    private final byte[][] unacked;
+    private final byte[] buffer;
+    private int count;
+    private long nextSeq;
+    private long ackedUpTo;
+    private long sendLimit;
+    private long lastSeq;
+    private boolean closed;
+    private IOException failure;
+
+    FragmentOutputStream(String sourceNodeId, String destinationNodeId, long streamId, int chunkSize,
+                         int window, long retransmitTimeoutMillis, int maxRetransmits,
+                         Consumer<Message> sender, Runnable onClose) {
+        this.sourceNodeId = sourceNodeId;
+        this.destinationNodeId = destinationNodeId;
+        this.streamId = streamId;
+        this.window = window;
+        this.retransmitTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(retransmitTimeoutMillis);
+        this.maxRetransmits = maxRetransmits;
+        this.sender = sender;
+        this.onClose = onClose;
+        this.lock = new ReentrantLock();
+        this.progress = lock.newCondition();
+        this.unacked = new byte[window][];
+        this.buffer = new byte[chunkSize];
+        this.sendLimit = window;
+        this.lastSeq = -1;
+    }
+
+    public long getStreamId() {
+        return streamId;
+    }
+
+    public String getDestinationNodeId() {
+        return destinationNodeId;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        buffer[count++] = (byte) b;
+        if (count == buffer.length) {
+            emit(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == buffer.length) {
+                emit(false);
+            }
+        }
+    }
+
+    /**
+     * Sends any buffered bytes as a chunk of their own.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (count > 0) {
+            emit(false);
+        }
+    }
+
+    /**
+     * Sends the final chunk and blocks until the receiver has acknowledged the whole
+     * stream.
+     *
+     * @throws IOException if the receiver stopped acknowledging
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            emit(true);
+            closed = true;
+            lock.lock();
+            try {
+                int timeouts = 0;
+                while (ackedUpTo <= lastSeq && failure == null) {
+                    if (progress.awaitNanos(retransmitTimeoutNanos) <= 0) {
+                        timeouts = onTimeout(timeouts);
+                    } else {
+                        timeouts = 0;
+                    }
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for stream " + streamId + " acknowledgement");
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            closed = true;
+            onClose.run();
+        }
+    }
+
+    /**
+     * Applies an acknowledgement from the receiver.
+     *
+     * @param next every chunk before this sequence number has arrived
+     * @param limit the receiver has room for chunks before this sequence number
+     * @param missing chunks the receiver has not seen, to resend now
+     */
+    void onAck(long next, long limit, long[] missing) {
+        List<Long> resend = new ArrayList<>();
+        lock.lock();
+        try {
+            next = Math.min(next, nextSeq);
+            for (long seq = ackedUpTo; seq < next; seq++) {
+                unacked[(int) (seq % window)] = null;
+            }
+            ackedUpTo = Math.max(ackedUpTo, next);
+            sendLimit = Math.max(sendLimit, limit);
+            if (missing != null) {
+                for (long seq : missing) {
+                    if (seq >= ackedUpTo && seq < nextSeq) {
+                        resend.add(seq);
+                    }
+                }
+            }
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (long seq : resend) {
+            resend(seq);
+        }
+    }
+
+    /**
+     * Fails the stream, waking any blocked writer.
+     */
+    void abort(IOException cause) {
+        lock.lock();
+        try {
+            if (failure == null) {
+                failure = cause;
+            }
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void emit(boolean last) throws IOException {
+        byte[] chunk = Arrays.copyOf(buffer, count);
+        count = 0;
+        long seq;
+        lock.lock();
+        try {
+            int timeouts = 0;
+            while (failure == null && (nextSeq >= sendLimit || nextSeq - ackedUpTo >= window)) {
+                if (progress.awaitNanos(retransmitTimeoutNanos) <= 0) {
+                    timeouts = onTimeout(timeouts);
+                } else {
+                    timeouts = 0;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            seq = nextSeq++;
+            unacked[(int) (seq % window)] = chunk;
+            if (last) {
+                lastSeq = seq;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for stream " + streamId + " window");
+        } finally {
+            lock.unlock();
+        }
+        sender.accept(fragment(seq, chunk, last));
+    }
+
+    /**
+     * Resends the oldest unacknowledged chunk after a silent timeout, failing the stream
+     * after too many in a row. Called with the lock held; the send itself happens with
+     * the lock released so an acknowledgement delivered inline cannot deadlock.
+     */
+    private int onTimeout(int timeouts) {
+        if (++timeouts > maxRetransmits) {
+            failure = new IOException("Stream " + streamId + " to " + destinationNodeId
+                + " not acknowledged after " + maxRetransmits + " retransmits");
+            return timeouts;
+        }
+        if (ackedUpTo < nextSeq) {
+            long oldest = ackedUpTo;
+            lock.unlock();
+            try {
+                resend(oldest);
+            } finally {
+                lock.lock();
+            }
+        }
+        return timeouts;
+    }
+
+    private void resend(long seq) {
+        byte[] chunk;
+        boolean last;
+        lock.lock();
+        try {
+            if (seq < ackedUpTo || seq >= nextSeq) {
+                return;
+            }
+            chunk = unacked[(int) (seq % window)];
+            last = seq == lastSeq;
+        } finally {
+            lock.unlock();
+        }
+        if (chunk != null) {
+            sender.accept(fragment(seq, chunk, last));
+        }
+    }
+
+    private Message fragment(long seq, byte[] chunk, boolean last) {
+        Message fragment = new Message(sourceNodeId, destinationNodeId, MessageType.DATA_FRAGMENT);
+        fragment.setPayload(StreamManager.STREAM, streamId);
+        fragment.setPayload(StreamManager.SEQ, seq);
+        fragment.setPayload(StreamManager.CHUNK, chunk);
+        if (last) {
+            fragment.setPayload(StreamManager.LAST, true);
+        }
+        return fragment;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream " + streamId + " is closed");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.vrouting.network.socket.stream;
+
+/**
+ * Receives data streams opened by peers.
+ */
+public interface StreamListener {
+    /**
+     * Called on the thread that handles the stream's first fragment. Reading blocks
+     * until data arrives, so implementations should hand the stream to another thread.
+     */
+    void onStream(String sourceNodeId, FragmentInputStream stream);
+}
@@ -0,0 +1,226 @@
+package com.vrouting.network.socket.stream;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageId;
+import com.vrouting.network.socket.message.MessageType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Opens outgoing data streams and reassembles incoming ones for a node.
+ *
+ * <p>A stream is a sequence of {@link MessageType#DATA_FRAGMENT} messages carrying
+ * {@link #STREAM}, {@link #SEQ} and {@link #CHUNK}, the final one also {@link #LAST}.
+ * Each fragment is an ordinary routed message, so relays forward chunks as they arrive
+ * and never hold a whole transfer. The receiver answers with
+ * {@link MessageType#DATA_FRAGMENT_ACK} messages carrying {@link #NEXT}, {@link #LIMIT}
+ * and {@link #MISSING}; see {@link FragmentOutputStream} and {@link FragmentInputStream}.
+ *
+ * <p>Peers without stream support drop both types as unknown, so streams should only
+ * be opened towards nodes known to run this version.
+ */
+public class StreamManager {
+    private static final Logger logger = LoggerFactory.getLogger(StreamManager.class);
+
+    public static final String STREAM = "stream";
+    public static final String SEQ = "seq";
+    public static final String CHUNK = "chunk";
+    public static final String LAST = "last";
+    public static final String NEXT = "next";
+    public static final String LIMIT = "limit";
+    public static final String MISSING = "missing";
+
+    private static final int MAX_FINISHED = 1024;
+
+    private final String localNodeId;
+    private final NetworkConfig config;
+    private final Consumer<Message> sender;
+    private final Map<Long, FragmentOutputStream> outgoing;
+    private final Map<String, FragmentInputStream> incoming;
+    private final Map<String, Long> finished;
+    private volatile StreamListener listener;
+
+    /**
+     * @param sender sends a fragment or acknowledgement towards its destination
+     */
+    public StreamManager(String localNodeId, NetworkConfig config, Consumer<Message> sender) {
+        this.localNodeId = localNodeId;
+        this.config = config;
+        this.sender = sender;
+        this.outgoing = new ConcurrentHashMap<>();
+        this.incoming = new ConcurrentHashMap<>();
+        this.finished = Collections.synchronizedMap(new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > MAX_FINISHED;
+            }
+        });
+    }
+
+    /**
+     * Sets the listener told about each new incoming stream. Without one, incoming
+     * streams are refused.
+     */
+    public void setStreamListener(StreamListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Opens a stream to another node. Writes block while the stream's window is full;
+     * closing it waits until the destination has acknowledged every chunk.
+     */
+    public FragmentOutputStream open(String destinationNodeId) {
+        long streamId = MessageId.next().getSequence();
+        FragmentOutputStream stream = new FragmentOutputStream(localNodeId, destinationNodeId, streamId,
+            config.getStreamChunkSize(), config.getStreamWindow(), config.getStreamRetransmitTimeout(),
+            config.getStreamMaxRetransmits(), sender, () -> outgoing.remove(streamId));
+        outgoing.put(streamId, stream);
+        return stream;
+    }
+
+    /**
+     * Handles a stream message addressed to this node.
+     *
+     * @return whether the message was a stream message
+     */
+    public boolean handle(Message message) {
+        if (message.getType() == MessageType.DATA_FRAGMENT) {
+            handleFragment(message);
+            return true;
+        }
+        if (message.getType() == MessageType.DATA_FRAGMENT_ACK) {
+            handleAck(message);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Fails every open stream.
+     */
+    public void close() {
+        IOException closed = new IOException("Stream manager for " + localNodeId + " closed");
+        for (FragmentOutputStream stream : outgoing.values()) {
+            stream.abort(closed);
+        }
+        for (FragmentInputStream stream : incoming.values()) {
+            stream.abort(closed);
+        }
+        outgoing.clear();
+        incoming.clear();
+    }
+
+    public int getOpenOutgoingCount() {
+        return outgoing.size();
+    }
+
+    public int getOpenIncomingCount() {
+        return incoming.size();
+    }
+
+    private void handleFragment(Message message) {
+        Long streamId = message.getPayload(STREAM, Long.class);
+        Long seq = message.getPayload(SEQ, Long.class);
+        byte[] chunk = message.getPayload(CHUNK, byte[].class);
+        if (streamId == null || seq == null || chunk == null) {
+            logger.warn("Dropping malformed fragment {} from {}", message.getId(), message.getSourceNodeId());
+            return;
+        }
+        String source = message.getSourceNodeId();
+        String key = source + "/" + streamId;
+        FragmentInputStream stream = incoming.get(key);
+        if (stream == null) {
+            Long end = finished.get(key);
+            if (end != null) {
+                if (end >= 0) {
+                    // Late duplicate of a completed stream: repeat the final acknowledgement
+                    sendAck(source, streamId, new FragmentInputStream.Ack(end, end, new long[0]));
+                }
+                return;
+            }
+            stream = openIncoming(source, streamId, key);
+            if (stream == null) {
+                return;
+            }
+        }
+        boolean last = Boolean.TRUE.equals(message.getPayload(LAST, Boolean.class));
+        if (stream.accept(seq, chunk, last)) {
+            sendAck(source, streamId, stream.takeAck());
+        }
+    }
+
+    private FragmentInputStream openIncoming(String source, long streamId, String key) {
+        StreamListener current = listener;
+        if (current == null) {
+            logger.debug("No stream listener; ignoring stream {} from {}", streamId, source);
+            return null;
+        }
+        FragmentInputStream[] created = new FragmentInputStream[1];
+        FragmentInputStream stream = incoming.computeIfAbsent(key, k -> {
+            FragmentInputStream opened = new FragmentInputStream(source, streamId, config.getStreamWindow(),
+                () -> onReaderProgress(key));
+            created[0] = opened;
+            return opened;
+        });
+        if (created[0] != null) {
+            current.onStream(source, stream);
+        }
+        return stream;
+    }
+
+    /**
+     * Opens the sender's window as the reader drains the stream, and forgets the
+     * stream once it has been read to the end or closed by the reader.
+     */
+    private void onReaderProgress(String key) {
+        FragmentInputStream stream = incoming.get(key);
+        if (stream == null) {
+            return;
+        }
+        if (stream.isClosed()) {
+            // Abandoned by the reader: drop the rest and let the sender time out
+            incoming.remove(key);
+            finished.put(key, -1L);
+            return;
+        }
+        FragmentInputStream.Ack ack = stream.takeAck();
+        sendAck(stream.getSourceNodeId(), stream.getStreamId(), ack);
+        if (stream.isComplete()) {
+            incoming.remove(key);
+            finished.put(key, ack.next);
+        }
+    }
+
+    private void handleAck(Message message) {
+        Long streamId = message.getPayload(STREAM, Long.class);
+        Long next = message.getPayload(NEXT, Long.class);
+        Long limit = message.getPayload(LIMIT, Long.class);
+        if (streamId == null || next == null || limit == null) {
+            logger.warn("Dropping malformed fragment ack {} from {}", message.getId(), message.getSourceNodeId());
+            return;
+        }
+        FragmentOutputStream stream = outgoing.get(streamId);
+        if (stream != null) {
+            stream.onAck(next, limit, message.getPayload(MISSING, long[].class));
+        }
+    }
+
+    private void sendAck(String destination, long streamId, FragmentInputStream.Ack ack) {
+        Message message = new Message(localNodeId, destination, MessageType.DATA_FRAGMENT_ACK);
+        message.setPayload(STREAM, streamId);
+        message.setPayload(NEXT, ack.next);
+        message.setPayload(LIMIT, ack.limit);
+        if (ack.missing.length > 0) {
+            message.setPayload(MISSING, ack.missing);
+        }
+        sender.accept(message);
+    }
+}
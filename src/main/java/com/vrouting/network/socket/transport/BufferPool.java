@@ -0,0 +1,149 @@
+package com.vrouting.network.socket.transport;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of direct {@link ByteBuffer}s of {@link NetworkConfig#getBufferSize()}
+ * bytes, shared by the framing layer of one network interface.
+ *
+ * <p>At most {@link NetworkConfig#getBufferPoolSize()} idle buffers are retained;
+ * buffers released beyond that are left to the garbage collector. Requests larger than
+ * the pooled size get a one-off heap buffer that is never pooled.
+ *
+ * <p>With {@link NetworkConfig#isBufferLeakDetection()} enabled every acquire records
+ * its call site. A buffer whose holder is collected without releasing it is logged with
+ * that call site, counted in {@link #getLeakCount()} and returned to the pool.
+ */
+public class BufferPool {
+    private static final Logger logger = LoggerFactory.getLogger(BufferPool.class);
+
+    private final int bufferSize;
+    private final Queue<ByteBuffer> idle;
+    private final boolean leakDetection;
+    private final ReferenceQueue<PooledBuffer> collected;
+    private final Set<LeakRecord> outstanding;
+    private final AtomicInteger allocated;
+    private final AtomicLong leakCount;
+
+    public BufferPool(NetworkConfig config) {
+        this(config.getBufferSize(), config.getBufferPoolSize(), config.isBufferLeakDetection());
+    }
+
+    public BufferPool(int bufferSize, int maxPooled, boolean leakDetection) {
+        this.bufferSize = bufferSize;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, maxPooled));
+        this.leakDetection = leakDetection;
+        this.collected = new ReferenceQueue<>();
+        this.outstanding = ConcurrentHashMap.newKeySet();
+        this.allocated = new AtomicInteger(0);
+        this.leakCount = new AtomicLong(0);
+    }
+
+    /**
+     * Acquires a cleared pooled buffer of {@link #getBufferSize()} bytes.
+     */
+    public PooledBuffer acquire() {
+        if (leakDetection) {
+            reclaimLeaks();
+        }
+        ByteBuffer buffer = idle.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+            allocated.incrementAndGet();
+        }
+        buffer.clear();
+        PooledBuffer pooled = new PooledBuffer(this, buffer);
+        if (leakDetection) {
+            LeakRecord record = new LeakRecord(pooled, collected);
+            pooled.leakRecord = record;
+            outstanding.add(record);
+        }
+        return pooled;
+    }
+
+    /**
+     * Acquires a buffer with at least {@code capacity} bytes, falling back to an
+     * unpooled heap buffer when the request exceeds the pooled size.
+     */
+    public PooledBuffer acquire(int capacity) {
+        if (capacity <= bufferSize) {
+            return acquire();
+        }
+        return new PooledBuffer(null, ByteBuffer.allocate(capacity));
+    }
+
+    void recycle(PooledBuffer pooled) {
+        if (pooled.leakRecord != null) {
+            outstanding.remove(pooled.leakRecord);
+            pooled.leakRecord.clear();
+        }
+        idle.offer(pooled.rawBuffer());
+    }
+
+    private void reclaimLeaks() {
+        LeakRecord record;
+        while ((record = (LeakRecord) collected.poll()) != null) {
+            if (outstanding.remove(record)) {
+                leakCount.incrementAndGet();
+                logger.warn("Pooled buffer was garbage collected without release", record.site);
+                idle.offer(record.buffer);
+            }
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Gets the number of idle buffers currently held by the pool.
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Gets the number of direct buffers allocated over the pool's lifetime.
+     */
+    public int getAllocatedCount() {
+        return allocated.get();
+    }
+
+    /**
+     * Gets the number of leaked buffers detected so far. Always 0 unless leak detection
+     * is enabled.
+     */
+    public long getLeakCount() {
+        if (leakDetection) {
+            reclaimLeaks();
+        }
+        return leakCount.get();
+    }
+
+    /**
+     * Tracks one outstanding buffer; enqueued by the garbage collector once its holder
+     * becomes unreachable.
+     */
+    static final class LeakRecord extends WeakReference<PooledBuffer> {
+        private final ByteBuffer buffer;
+        private final Throwable site;
+
+        LeakRecord(PooledBuffer holder, ReferenceQueue<PooledBuffer> queue) {
+            super(holder, queue);
+            this.buffer = holder.rawBuffer();
+            this.site = new Throwable("Buffer acquired here");
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.vrouting.network.socket.transport;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+
+/**
+ * Callback attached to a {@link SelectionKey} and invoked by its {@link EventLoop}
+ * whenever the key is selected.
+ */
+interface ChannelHandler {
+    /**
+     * Handles the ready operations of the key. Always runs on the owning event loop thread.
+     */
+    void onReady(SelectionKey key) throws IOException;
+
+    /**
+     * Releases the channel after an unrecoverable error or on shutdown.
+     */
+    void close();
+}
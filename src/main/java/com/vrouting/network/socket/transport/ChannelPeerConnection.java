@@ -0,0 +1,134 @@
+package com.vrouting.network.socket.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pooled connection for the NIO transport. Frames are handed to the channel's event
+ * loop, which releases them once written.
+ *
+ * <p>A write returns once the loop has queued the frames on the channel, and throws if
+ * the channel closed first, so the pool retries the frames on a new connection instead
+ * of counting them as sent.
+ */
+final class ChannelPeerConnection implements PeerConnection {
+    private final EventLoop loop;
+    private final NioConnection connection;
+    private final long handoffTimeout;
+    private volatile long lastUsed;
+
+    /**
+     * @param handoffTimeout how long a write waits for the loop to take its frames, in
+     *                       milliseconds
+     */
+    ChannelPeerConnection(EventLoop loop, NioConnection connection, long handoffTimeout) {
+        this.loop = loop;
+        this.connection = connection;
+        this.handoffTimeout = handoffTimeout;
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    @Override
+    public void write(PooledBuffer frames) throws IOException {
+        if (!connection.isOpen()) {
+            throw closed();
+        }
+        if (loop.inEventLoop()) {
+            if (!connection.write(frames)) {
+                throw closed();
+            }
+        } else {
+            Handoff handoff = new Handoff(frames);
+            loop.execute(handoff);
+            if (!handoff.await(handoffTimeout)) {
+                throw closed();
+            }
+        }
+        lastUsed = System.currentTimeMillis();
+    }
+
+    private IOException closed() {
+        return new IOException("Connection to " + connection.getRemoteAddress() + " is closed");
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return connection.isOpen();
+    }
+
+    @Override
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return connection.getRemoteAddress();
+    }
+
+    @Override
+    public void close() {
+        loop.execute(connection::close);
+    }
+
+    /**
+     * Frames on their way to the loop. Exactly one of the loop and the writer claims
+     * them, so frames the loop never ran for stay with the writer.
+     */
+    private final class Handoff implements Runnable {
+        private final PooledBuffer frames;
+        private final AtomicBoolean claimed;
+        private final CountDownLatch done;
+        private volatile boolean accepted;
+
+        Handoff(PooledBuffer frames) {
+            this.frames = frames;
+            this.claimed = new AtomicBoolean(false);
+            this.done = new CountDownLatch(1);
+        }
+
+        @Override
+        public void run() {
+            if (claimed.compareAndSet(false, true)) {
+                accepted = connection.write(frames);
+                done.countDown();
+            }
+        }
+
+        /**
+         * @return whether the loop queued the frames on the channel
+         */
+        boolean await(long timeoutMillis) {
+            boolean interrupted = false;
+            try {
+                if (done.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    return accepted;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            if (claimed.compareAndSet(false, true)) {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            }
+            // The loop is queuing the frames right now
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return accepted;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.vrouting.network.socket.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Opens new {@link PeerConnection}s for a {@link ConnectionPool}.
+ */
+@FunctionalInterface
+public interface ConnectionFactory {
+    PeerConnection connect(InetSocketAddress address) throws IOException;
+}
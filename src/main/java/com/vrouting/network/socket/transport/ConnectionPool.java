@@ -0,0 +1,376 @@
+package com.vrouting.network.socket.transport;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.message.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps one long-lived outbound connection per peer address so steady-state sends
+ * cost a single write instead of a TCP handshake. Messages sent to the same peer within
+ * {@link NetworkConfig#getWriteCoalesceWindow()} are encoded back to back into one
+ * pooled buffer and written together.
+ *
+ * <p>Writes on a healthy connection happen on the flushing thread. Connecting, and
+ * reconnecting after a failed write, happens on the pool's own threads with
+ * exponential backoff for up to {@link NetworkConfig#getMaxRetries()} attempts.
+ * Batches to one peer reach it in the order they were flushed: while a batch waits
+ * for a connection or a retry, later batches queue behind it in the peer's backlog,
+ * which one task at a time delivers from the head.
+ * A periodic health check closes broken connections and those idle for longer than
+ * {@link NetworkConfig#getIdleConnectionTimeout()}.
+ */
+public class ConnectionPool {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private static final long HEALTH_CHECK_INTERVAL = 5000; // 5 seconds
+    static final long RETRY_BASE_DELAY = 100;               // 100 ms
+    private static final long RETRY_MAX_DELAY = 5000;       // 5 seconds
+    private static final int CONNECT_THREADS = 4;
+
+    private final NetworkConfig config;
+    private final ConnectionFactory factory;
+    private final Map<InetSocketAddress, PeerSlot> slots;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong connectCount;
+    private final AtomicLong failedSendCount;
+    private final AtomicLong flushCount;
+    private final AtomicLong sentMessageCount;
+    private final BufferPool bufferPool;
+
+    public ConnectionPool(NetworkConfig config, ConnectionFactory factory, BufferPool bufferPool) {
+        this.config = config;
+        this.factory = factory;
+        this.bufferPool = bufferPool;
+        this.slots = new ConcurrentHashMap<>();
+        this.scheduler = config.getExecutorProvider().newScheduler("connection-pool", CONNECT_THREADS);
+        this.connectCount = new AtomicLong(0);
+        this.failedSendCount = new AtomicLong(0);
+        this.flushCount = new AtomicLong(0);
+        this.sentMessageCount = new AtomicLong(0);
+
+        scheduler.scheduleAtFixedRate(
+            this::checkConnections,
+            HEALTH_CHECK_INTERVAL,
+            HEALTH_CHECK_INTERVAL,
+            TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Sends a message to the peer. Unless the coalescing window is 0 or the type is in
+     * {@link NetworkConfig#getImmediateFlushTypes()}, the message is appended to the
+     * peer's pending batch, which is written in one call when the window elapses or the
+     * batch reaches {@link NetworkConfig#getWriteCoalesceBytes()}.
+     *
+     * <p>The message is encoded before this returns. A pooled message is owned by the
+     * pool from then on and is released here.
+     */
+    public void send(InetSocketAddress address, Message message) {
+        try {
+            PeerSlot slot = slots.computeIfAbsent(address, PeerSlot::new);
+            boolean immediate = config.getWriteCoalesceWindow() <= 0
+                || config.getImmediateFlushTypes().contains(message.getType());
+            slot.append(message, immediate);
+        } finally {
+            message.release();
+        }
+    }
+
+    /**
+     * Writes a batch on the current connection, or appends it to the peer's backlog
+     * when there is no healthy connection or earlier batches are still waiting there.
+     * Called with the peer's batch lock held.
+     */
+    private void write(PeerSlot slot, Batch batch) {
+        PeerConnection connection = slot.connection;
+        if (connection != null && connection.isHealthy() && !slot.hasBacklog()) {
+            try {
+                connection.write(batch.frames);
+                recordFlush(batch);
+                return;
+            } catch (IOException e) {
+                logger.debug("Write to {} failed, reconnecting: {}", slot.address, e.getMessage());
+                slot.evict(connection);
+            }
+        }
+        if (slot.enqueue(batch)) {
+            scheduler.execute(() -> deliver(slot, 0));
+        }
+    }
+
+    /**
+     * Delivers the peer's backlog from the head, connecting as needed. A failed batch
+     * stays at the head and is retried after a backoff, so later batches wait for it.
+     */
+    private void deliver(PeerSlot slot, int attempt) {
+        Batch batch = slot.backlogHead();
+        while (batch != null) {
+            try {
+                batch.frames.buffer().rewind();
+                slot.acquire().write(batch.frames);
+                recordFlush(batch);
+            } catch (IOException e) {
+                slot.evict(slot.connection);
+                if (attempt < config.getMaxRetries()) {
+                    int next = attempt + 1;
+                    long delay = Math.min(RETRY_MAX_DELAY, RETRY_BASE_DELAY << attempt);
+                    scheduler.schedule(() -> deliver(slot, next), delay, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                batch.frames.release();
+                failedSendCount.addAndGet(batch.messages);
+                logger.warn("Dropping {} message(s) to {} after {} attempts: {}",
+                    batch.messages, slot.address, attempt + 1, e.getMessage());
+            }
+            batch = slot.advanceBacklog();
+            attempt = 0;
+        }
+    }
+
+    private void recordFlush(Batch batch) {
+        flushCount.incrementAndGet();
+        sentMessageCount.addAndGet(batch.messages);
+    }
+
+    /**
+     * Closes unhealthy connections and those idle for longer than
+     * {@link NetworkConfig#getIdleConnectionTimeout()}. Runs every
+     * {@link #HEALTH_CHECK_INTERVAL} milliseconds.
+     */
+    void checkConnections() {
+        long now = System.currentTimeMillis();
+        slots.values().forEach(slot -> {
+            PeerConnection connection = slot.connection;
+            if (connection == null) {
+                return;
+            }
+            if (!connection.isHealthy()) {
+                logger.debug("Closing unhealthy connection to {}", slot.address);
+                slot.evict(connection);
+            } else if (now - connection.getLastUsed() > config.getIdleConnectionTimeout()) {
+                logger.debug("Closing idle connection to {}", slot.address);
+                slot.evict(connection);
+            }
+        });
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        slots.values().forEach(slot -> {
+            slot.discardPending();
+            slot.discardBacklog();
+            slot.evict(slot.connection);
+        });
+        slots.clear();
+    }
+
+    /**
+     * Gets the number of currently open pooled connections.
+     */
+    public int getConnectionCount() {
+        return (int) slots.values().stream().filter(slot -> slot.connection != null).count();
+    }
+
+    /**
+     * Gets the total number of connections opened by this pool, including reconnects.
+     */
+    public long getConnectCount() {
+        return connectCount.get();
+    }
+
+    /**
+     * Gets the number of messages dropped after exhausting all retries.
+     */
+    public long getFailedSendCount() {
+        return failedSendCount.get();
+    }
+
+    /**
+     * Gets the number of writes issued, each carrying one or more coalesced messages.
+     */
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    /**
+     * Gets the number of messages handed to connections.
+     */
+    public long getSentMessageCount() {
+        return sentMessageCount.get();
+    }
+
+    /**
+     * Frames of one or more messages encoded back to back into a single buffer.
+     */
+    private static final class Batch {
+        private final PooledBuffer frames;
+        private int messages;
+
+        Batch(PooledBuffer frames) {
+            this.frames = frames;
+        }
+    }
+
+    /**
+     * Holds the current connection, the pending outbound batch and the backlog of
+     * batches waiting for a connection for one peer address.
+     */
+    private final class PeerSlot {
+        private final InetSocketAddress address;
+        private final Object batchLock;
+        private final Deque<Batch> backlog;
+        private volatile PeerConnection connection;
+        private Batch pending;
+        private boolean flushScheduled;
+
+        PeerSlot(InetSocketAddress address) {
+            this.address = address;
+            this.batchLock = new Object();
+            this.backlog = new ArrayDeque<>();
+        }
+
+        void append(Message message, boolean immediate) {
+            synchronized (batchLock) {
+                if (pending != null && !FrameCodec.encodeInto(message, pending.frames.buffer(), config.getCompressionThreshold())) {
+                    flushPending();
+                }
+                if (pending == null) {
+                    PooledBuffer frames = bufferPool.acquire();
+                    if (!FrameCodec.encodeInto(message, frames.buffer(), config.getCompressionThreshold())) {
+                        // Larger than a pooled buffer: send it as a batch of its own
+                        frames.release();
+                        Batch single = new Batch(FrameCodec.encode(message, bufferPool, config.getCompressionThreshold()));
+                        single.messages = 1;
+                        write(this, single);
+                        return;
+                    }
+                    pending = new Batch(frames);
+                }
+                pending.messages++;
+
+                int budget = Math.min(config.getWriteCoalesceBytes(), bufferPool.getBufferSize());
+                if (immediate || pending.frames.buffer().position() >= budget) {
+                    flushPending();
+                } else if (!flushScheduled) {
+                    flushScheduled = true;
+                    scheduler.schedule(this::flush, config.getWriteCoalesceWindow(), TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        void flush() {
+            synchronized (batchLock) {
+                flushScheduled = false;
+                flushPending();
+            }
+        }
+
+        /**
+         * Writes the pending batch while holding the batch lock, so batches to one peer
+         * are written, or join the backlog, in the order they were flushed.
+         */
+        private void flushPending() {
+            Batch batch = pending;
+            if (batch == null) {
+                return;
+            }
+            pending = null;
+            batch.frames.buffer().flip();
+            write(this, batch);
+        }
+
+        void discardPending() {
+            synchronized (batchLock) {
+                if (pending != null) {
+                    pending.frames.release();
+                    pending = null;
+                }
+            }
+        }
+
+        boolean hasBacklog() {
+            synchronized (backlog) {
+                return !backlog.isEmpty();
+            }
+        }
+
+        /**
+         * Appends a batch to the backlog.
+         *
+         * @return whether the backlog was empty, so a delivery task must be started
+         */
+        boolean enqueue(Batch batch) {
+            synchronized (backlog) {
+                backlog.add(batch);
+                return backlog.size() == 1;
+            }
+        }
+
+        Batch backlogHead() {
+            synchronized (backlog) {
+                return backlog.peek();
+            }
+        }
+
+        /**
+         * Removes the delivered or dropped head of the backlog.
+         *
+         * @return the next batch to deliver, or null when the backlog is empty and the
+         *         delivery task ends
+         */
+        Batch advanceBacklog() {
+            synchronized (backlog) {
+                backlog.poll();
+                return backlog.peek();
+            }
+        }
+
+        void discardBacklog() {
+            synchronized (backlog) {
+                Batch batch;
+                while ((batch = backlog.poll()) != null) {
+                    batch.frames.release();
+                }
+            }
+        }
+
+        synchronized PeerConnection acquire() throws IOException {
+            PeerConnection current = connection;
+            if (current != null && current.isHealthy()) {
+                return current;
+            }
+            if (current != null) {
+                current.close();
+            }
+            connection = factory.connect(address);
+            connectCount.incrementAndGet();
+            return connection;
+        }
+
+        synchronized void evict(PeerConnection stale) {
+            if (stale != null && connection == stale) {
+                connection = null;
+                stale.close();
+            }
+        }
+    }
+}
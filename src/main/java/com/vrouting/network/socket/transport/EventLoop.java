@@ -0,0 +1,178 @@
+package com.vrouting.network.socket.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single-threaded selector loop. All channels registered with a loop are only ever
+ * touched from its thread; other threads hand work over through {@link #execute}.
+ */
+final class EventLoop implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(EventLoop.class);
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks;
+    private final Thread thread;
+    private final AtomicInteger channelCount;
+    private final List<Runnable> pausedReaders;
+    private volatile boolean running;
+
+    EventLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.channelCount = new AtomicInteger(0);
+        this.pausedReaders = new ArrayList<>();
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Queues a task to run on the loop thread and wakes the selector.
+     */
+    void execute(Runnable task) {
+        if (inEventLoop()) {
+            task.run();
+            return;
+        }
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Registers a channel with this loop. Must be called on the loop thread.
+     */
+    SelectionKey register(SelectableChannel channel, int ops, ChannelHandler handler) throws IOException {
+        channel.configureBlocking(false);
+        SelectionKey key = channel.register(selector, ops, handler);
+        channelCount.incrementAndGet();
+        return key;
+    }
+
+    /**
+     * Registers a listening channel. Listeners are not counted as connections.
+     */
+    void registerAcceptor(SelectableChannel channel, ChannelHandler handler) throws IOException {
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_ACCEPT, handler);
+    }
+
+    /**
+     * Parks a reader that stopped reading because the message handler is saturated.
+     * Must be called on the loop thread.
+     */
+    void pauseReader(Runnable resume) {
+        pausedReaders.add(resume);
+    }
+
+    /**
+     * Hands every parked reader back to the loop. Safe to call from any thread.
+     */
+    void resumeReaders() {
+        execute(() -> {
+            if (pausedReaders.isEmpty()) {
+                return;
+            }
+            List<Runnable> resumed = new ArrayList<>(pausedReaders);
+            pausedReaders.clear();
+            for (Runnable resume : resumed) {
+                resume.run();
+            }
+        });
+    }
+
+    void deregistered() {
+        channelCount.decrementAndGet();
+    }
+
+    int getChannelCount() {
+        return channelCount.get();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select();
+                runTasks();
+                processSelectedKeys();
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (IOException e) {
+                logger.warn("Selector failure on {}", thread.getName(), e);
+            }
+        }
+        closeAll();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.warn("Event loop task failed on {}", thread.getName(), e);
+            }
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+            SelectionKey key = it.next();
+            it.remove();
+            ChannelHandler handler = (ChannelHandler) key.attachment();
+            if (!key.isValid()) {
+                handler.close();
+                continue;
+            }
+            try {
+                handler.onReady(key);
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Closing channel after error: {}", e.getMessage());
+                handler.close();
+            }
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : new ArrayList<>(selector.keys())) {
+            ((ChannelHandler) key.attachment()).close();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
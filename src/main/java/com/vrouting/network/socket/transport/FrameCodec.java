@@ -0,0 +1,98 @@
+package com.vrouting.network.socket.transport;
+
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageCodec;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes {@link MessageCodec} messages as frames of a 4-byte big-endian body length
+ * followed by the body. Frames are encoded straight into pooled buffers.
+ */
+public final class FrameCodec {
+    static final int LENGTH_PREFIX = 4;
+    static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    private FrameCodec() {
+    }
+
+    /**
+     * Encodes a message as one frame. The returned buffer is flipped and ready to write;
+     * the caller owns it and must release it once written.
+     */
+    public static PooledBuffer encode(Message message, BufferPool pool) {
+        return encode(message, pool, MessageCodec.NO_COMPRESSION);
+    }
+
+    /**
+     * Encodes a message as one frame, compressing a large DATA payload as described in
+     * {@link MessageCodec#encode(Message, ByteBuffer, int)}.
+     */
+    public static PooledBuffer encode(Message message, BufferPool pool, int compressionThreshold) {
+        PooledBuffer pooled = pool.acquire();
+        int capacity = pool.getBufferSize();
+        while (true) {
+            ByteBuffer buffer = pooled.buffer();
+            try {
+                buffer.position(LENGTH_PREFIX);
+                int length = MessageCodec.encode(message, buffer, compressionThreshold);
+                buffer.putInt(0, length);
+                buffer.flip();
+                return pooled;
+            } catch (BufferOverflowException e) {
+                pooled.release();
+                capacity *= 2;
+                if (capacity > MAX_FRAME_SIZE + LENGTH_PREFIX) {
+                    throw new IllegalArgumentException("Message " + message.getId() + " exceeds maximum frame size");
+                }
+                pooled = pool.acquire(capacity);
+            }
+        }
+    }
+
+    /**
+     * Appends one frame at the buffer's position, for batching several frames into a
+     * single write.
+     *
+     * @return false, with the buffer unchanged, if the frame does not fit
+     */
+    public static boolean encodeInto(Message message, ByteBuffer buffer) {
+        return encodeInto(message, buffer, MessageCodec.NO_COMPRESSION);
+    }
+
+    /**
+     * Appends one frame, compressing a large DATA payload.
+     *
+     * @return false, with the buffer unchanged, if the frame does not fit
+     */
+    public static boolean encodeInto(Message message, ByteBuffer buffer, int compressionThreshold) {
+        int start = buffer.position();
+        try {
+            buffer.position(start + LENGTH_PREFIX);
+            int length = MessageCodec.encode(message, buffer, compressionThreshold);
+            buffer.putInt(start, length);
+            return true;
+        } catch (BufferOverflowException | IllegalArgumentException e) {
+            buffer.position(start);
+            return false;
+        }
+    }
+
+    /**
+     * Encodes and fully writes one frame to a blocking channel.
+     */
+    public static void write(WritableByteChannel channel, Message message, BufferPool pool) throws IOException {
+        PooledBuffer frame = encode(message, pool);
+        try {
+            ByteBuffer buffer = frame.buffer();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            frame.release();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.vrouting.network.socket.transport;
+
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageCodec;
+import com.vrouting.network.socket.message.RejectedMessageException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Accumulates inbound bytes for one connection in a pooled buffer and decodes complete
+ * frames in place, without copying frame bodies into intermediate arrays.
+ *
+ * <p>The pooled buffer is only swapped for a larger one-off buffer while a frame that
+ * exceeds the pooled size is being received. Not thread-safe; each connection owns one
+ * decoder and must {@link #release()} it when closed.
+ *
+ * <p>A frame whose message is {@link RejectedMessageException rejected} is skipped and
+ * counted, and decoding goes on with the next frame, so one refused message does not
+ * cost the connection.
+ */
+public final class FrameDecoder {
+    private static final Logger logger = LoggerFactory.getLogger(FrameDecoder.class);
+
+    private final BufferPool pool;
+    private PooledBuffer current;
+    private boolean draining;
+    private long rejectedCount;
+
+    public FrameDecoder(BufferPool pool) {
+        this.pool = pool;
+        this.current = pool.acquire();
+    }
+
+    /**
+     * Reads whatever the channel has available.
+     *
+     * @return the number of bytes read, or -1 at end of stream
+     */
+    public int readFrom(ReadableByteChannel channel) throws IOException {
+        if (draining) {
+            compact();
+        }
+        return channel.read(current.buffer());
+    }
+
+    /**
+     * Decodes the next complete frame from the bytes read so far. Call repeatedly after
+     * each read until it returns null.
+     *
+     * @return the decoded message, or null when more bytes are needed
+     */
+    public Message next() throws IOException {
+        ByteBuffer buffer = current.buffer();
+        if (!draining) {
+            buffer.flip();
+            draining = true;
+        }
+        while (true) {
+            if (buffer.remaining() < FrameCodec.LENGTH_PREFIX) {
+                compact();
+                return null;
+            }
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+            if (length <= 0 || length > FrameCodec.MAX_FRAME_SIZE) {
+                throw new IOException("Invalid frame length " + length);
+            }
+            if (buffer.remaining() < FrameCodec.LENGTH_PREFIX + length) {
+                compact();
+                return null;
+            }
+            int end = start + FrameCodec.LENGTH_PREFIX + length;
+            int limit = buffer.limit();
+            buffer.position(start + FrameCodec.LENGTH_PREFIX).limit(end);
+            try {
+                return MessageCodec.decode(buffer);
+            } catch (RejectedMessageException e) {
+                rejectedCount++;
+                logger.debug("Skipping frame: {}", e.getMessage());
+            } finally {
+                buffer.limit(limit).position(end);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of frames skipped because their message was rejected.
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Moves any partial frame to the start of the buffer so the next read appends to it.
+     */
+    private void compact() {
+        current.buffer().compact();
+        draining = false;
+        ensureCapacity();
+    }
+
+    /**
+     * Reads from a blocking channel until one full frame has been decoded.
+     */
+    public Message readFrame(ReadableByteChannel channel) throws IOException {
+        Message message;
+        while ((message = next()) == null) {
+            if (readFrom(channel) < 0) {
+                throw new EOFException("Channel closed");
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Grows into a one-off buffer when the pending frame cannot fit, and moves back to a
+     * pooled buffer once the oversized frame has been consumed.
+     */
+    private void ensureCapacity() {
+        ByteBuffer buffer = current.buffer();
+        int pending = buffer.position();
+        int required = pending >= FrameCodec.LENGTH_PREFIX
+            ? FrameCodec.LENGTH_PREFIX + Math.max(0, buffer.getInt(0))
+            : FrameCodec.LENGTH_PREFIX;
+        if (required > buffer.capacity()) {
+            swap(pool.acquire(Math.min(required, FrameCodec.MAX_FRAME_SIZE + FrameCodec.LENGTH_PREFIX)));
+        } else if (!current.isPooled() && pending <= pool.getBufferSize() && required <= pool.getBufferSize()) {
+            swap(pool.acquire());
+        }
+    }
+
+    private void swap(PooledBuffer replacement) {
+        ByteBuffer old = current.buffer();
+        old.flip();
+        replacement.buffer().put(old);
+        current.release();
+        current = replacement;
+    }
+
+    public void release() {
+        if (current != null) {
+            current.release();
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.vrouting.network.socket.transport;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.MembershipKey;
+import java.util.function.Consumer;
+
+/**
+ * Datagram fast path for heartbeats: one multicast packet reaches every neighbor on the
+ * segment instead of one unicast copy per peer.
+ *
+ * <p>Only heartbeat types are accepted by {@link #send}; anything else, or a heartbeat
+ * that does not fit in a single datagram, returns false so the caller can fall back to
+ * unicast. Received heartbeats from other nodes are passed to the consumer on the
+ * channel's receiver thread; the node's own looped-back packets are dropped.
+ */
+public class MulticastHeartbeatChannel {
+    private static final Logger logger = LoggerFactory.getLogger(MulticastHeartbeatChannel.class);
+
+    /**
+     * Largest datagram sent, chosen to stay below a typical Ethernet MTU.
+     */
+    static final int MAX_DATAGRAM_SIZE = 1400;
+
+    private final String localNodeId;
+    private final Consumer<Message> receiver;
+    private final DatagramChannel channel;
+    private final MembershipKey membership;
+    private final InetSocketAddress groupAddress;
+    private final ByteBuffer sendBuffer;
+    private final Thread receiverThread;
+    private volatile boolean running;
+
+    public MulticastHeartbeatChannel(NetworkConfig config, String localNodeId, Consumer<Message> receiver) throws IOException {
+        this.localNodeId = localNodeId;
+        this.receiver = receiver;
+        InetAddress group = InetAddress.getByName(config.getMulticastGroup());
+        if (!group.isMulticastAddress()) {
+            throw new IOException(config.getMulticastGroup() + " is not a multicast address");
+        }
+        this.groupAddress = new InetSocketAddress(group, config.getMulticastPort());
+
+        NetworkInterface networkInterface = resolveInterface(config.getMulticastInterface());
+        this.channel = DatagramChannel.open(StandardProtocolFamily.INET);
+        try {
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(new InetSocketAddress(config.getMulticastPort()));
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, config.getMulticastTtl());
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+            this.membership = channel.join(group, networkInterface);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        this.sendBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+        this.receiverThread = new Thread(this::receive, "multicast-heartbeat-" + localNodeId);
+        this.receiverThread.setDaemon(true);
+        this.running = true;
+        this.receiverThread.start();
+        logger.info("Multicast heartbeats for {} on {} via {}", localNodeId, groupAddress, networkInterface.getName());
+    }
+
+    private static NetworkInterface resolveInterface(String name) throws IOException {
+        if (name != null) {
+            NetworkInterface named = NetworkInterface.getByName(name);
+            if (named == null) {
+                throw new IOException("Unknown network interface " + name);
+            }
+            return named;
+        }
+        NetworkInterface fallback = NetworkInterface.getByInetAddress(InetAddress.getLocalHost());
+        if (fallback == null) {
+            throw new IOException("No default network interface for multicast");
+        }
+        return fallback;
+    }
+
+    /**
+     * Multicasts a heartbeat to the group.
+     *
+     * @return true if the datagram was sent, false if the caller should unicast instead
+     */
+    public boolean send(Message heartbeat) {
+        if (!running || !Message.isHeartbeatType(heartbeat.getType())) {
+            return false;
+        }
+        synchronized (sendBuffer) {
+            try {
+                sendBuffer.clear();
+                MessageCodec.encode(heartbeat, sendBuffer);
+                sendBuffer.flip();
+                return channel.send(sendBuffer, groupAddress) > 0;
+            } catch (BufferOverflowException e) {
+                logger.debug("Heartbeat {} exceeds datagram size, falling back to unicast", heartbeat.getId());
+                return false;
+            } catch (IOException e) {
+                logger.warn("Multicast send failed, falling back to unicast: {}", e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    private void receive() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+        while (running) {
+            try {
+                buffer.clear();
+                channel.receive(buffer);
+                buffer.flip();
+                Message message = MessageCodec.decode(buffer);
+                if (localNodeId.equals(message.getSourceNodeId()) || !Message.isHeartbeatType(message.getType())) {
+                    continue;
+                }
+                receiver.accept(message);
+            } catch (AsynchronousCloseException e) {
+                break;
+            } catch (IOException e) {
+                if (running) {
+                    logger.debug("Dropping malformed heartbeat datagram: {}", e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Failed to handle multicast heartbeat", e);
+            }
+        }
+    }
+
+    public boolean isOpen() {
+        return running && channel.isOpen();
+    }
+
+    public void close() {
+        running = false;
+        membership.drop();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+        try {
+            receiverThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.vrouting.network.socket.transport;
+
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageHandler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * State of one non-blocking peer channel: a {@link FrameDecoder} for inbound frames and
+ * a queue of pooled outbound frames.
+ *
+ * <p>Accepted connections hand their frames to the {@link MessageHandler}. Pooled
+ * outbound connections have no handler: they only read to notice the peer closing and
+ * discard anything it sends, so a node never answers on a connection it opened.
+ */
+final class NioConnection implements ChannelHandler {
+    private static final int GATHER_LIMIT = 16;
+
+    private final EventLoop loop;
+    private final SocketChannel channel;
+    private final MessageHandler messageHandler;
+    private final BufferPool bufferPool;
+    private final Deque<PooledBuffer> writeQueue;
+    private final InetSocketAddress remoteAddress;
+    private final FrameDecoder decoder;
+    private final ByteBuffer[] gather;
+    private SelectionKey key;
+    private boolean readPaused;
+    private volatile boolean closed;
+
+    /**
+     * @param messageHandler handler for inbound frames, or null for an outbound
+     *                       connection that discards them
+     */
+    NioConnection(EventLoop loop, SocketChannel channel, MessageHandler messageHandler,
+                  InetSocketAddress remoteAddress, BufferPool bufferPool) {
+        this.loop = loop;
+        this.channel = channel;
+        this.messageHandler = messageHandler;
+        this.remoteAddress = remoteAddress;
+        this.bufferPool = bufferPool;
+        this.writeQueue = new ArrayDeque<>();
+        this.decoder = new FrameDecoder(bufferPool);
+        this.gather = new ByteBuffer[GATHER_LIMIT];
+    }
+
+    /**
+     * Registers the channel with its loop. Must run on the loop thread.
+     */
+    void register(int ops) throws IOException {
+        key = loop.register(channel, ops, this);
+    }
+
+    InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    boolean isOpen() {
+        return !closed && channel.isOpen();
+    }
+
+    /**
+     * Checks whether queued frames are waiting for the socket to accept more bytes.
+     * Must run on the loop thread.
+     */
+    boolean isWritePending() {
+        return key != null && key.isValid() && (key.interestOps() & SelectionKey.OP_WRITE) != 0;
+    }
+
+    /**
+     * Queues a frame for writing and takes ownership of it. Must run on the loop thread.
+     *
+     * @return false, leaving the frame with the caller, if the connection is closed
+     */
+    boolean write(PooledBuffer frame) {
+        if (closed) {
+            return false;
+        }
+        writeQueue.add(frame);
+        if (channel.isConnected()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+        return true;
+    }
+
+    @Override
+    public void onReady(SelectionKey key) throws IOException {
+        if (key.isConnectable()) {
+            channel.finishConnect();
+            key.interestOps(readOps() | (writeQueue.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+        }
+        if (key.isValid() && key.isReadable()) {
+            onReadable();
+        }
+        if (key.isValid() && key.isWritable()) {
+            onWritable();
+        }
+    }
+
+    private void onReadable() throws IOException {
+        if (decoder.readFrom(channel) < 0) {
+            close();
+            return;
+        }
+        deliverFrames();
+    }
+
+    /**
+     * Hands decoded frames to the message handler until the decoder is drained or the
+     * handler refuses more, in which case reading pauses until it has capacity again.
+     * Only a reply distinct from the delivered message is written back.
+     */
+    private void deliverFrames() throws IOException {
+        Message message;
+        if (messageHandler == null) {
+            while (decoder.next() != null) {
+                // Outbound connection: discard
+            }
+            return;
+        }
+        while (messageHandler.isAcceptingMessages() && (message = decoder.next()) != null) {
+            Message response = messageHandler.handleMessage(message);
+            if (response != null && response != message) {
+                PooledBuffer reply = FrameCodec.encode(response, bufferPool);
+                if (!write(reply)) {
+                    reply.release();
+                }
+            }
+        }
+        if (!messageHandler.isAcceptingMessages() && !readPaused && key.isValid()) {
+            readPaused = true;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            loop.pauseReader(this::resumeReading);
+        }
+    }
+
+    private void resumeReading() {
+        readPaused = false;
+        if (closed || !key.isValid()) {
+            return;
+        }
+        key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        try {
+            deliverFrames();
+        } catch (IOException | RuntimeException e) {
+            close();
+        }
+    }
+
+    private int readOps() {
+        return readPaused ? 0 : SelectionKey.OP_READ;
+    }
+
+    /**
+     * Writes as many queued frames as the socket accepts with one gathering write per
+     * pass, releasing each frame once it has been fully written.
+     */
+    private void onWritable() throws IOException {
+        while (!writeQueue.isEmpty()) {
+            int count = 0;
+            long offered = 0;
+            for (PooledBuffer frame : writeQueue) {
+                ByteBuffer buffer = frame.buffer();
+                gather[count++] = buffer;
+                offered += buffer.remaining();
+                if (count == gather.length) {
+                    break;
+                }
+            }
+            long written = channel.write(gather, 0, count);
+            Arrays.fill(gather, 0, count, null);
+            while (!writeQueue.isEmpty() && !writeQueue.peek().buffer().hasRemaining()) {
+                writeQueue.poll().release();
+            }
+            if (written < offered) {
+                return;
+            }
+        }
+        key.interestOps(readOps());
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        PooledBuffer pending;
+        while ((pending = writeQueue.poll()) != null) {
+            pending.release();
+        }
+        decoder.release();
+        if (key != null) {
+            key.cancel();
+            loop.deregistered();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+}
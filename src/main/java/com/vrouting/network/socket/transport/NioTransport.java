@@ -0,0 +1,194 @@
+package com.vrouting.network.socket.transport;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.message.MessageHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking transport built on {@link java.nio.channels.Selector}. A fixed set of
+ * event loops, sized by {@link NetworkConfig#getIoThreads()}, multiplexes every peer
+ * channel so the number of connections is no longer bound to the number of threads.
+ *
+ * <p>Frames on accepted channels are handed to {@link MessageHandler#handleMessage} on
+ * the event loop thread, and a reply other than the message itself is written back on
+ * the same channel, exactly like the blocking transport. Handlers must therefore not
+ * block. Channels opened by {@link #connect} discard what they read.
+ */
+public class NioTransport {
+    private static final Logger logger = LoggerFactory.getLogger(NioTransport.class);
+
+    private final NetworkConfig config;
+    private final MessageHandler messageHandler;
+    private final BufferPool bufferPool;
+    private final EventLoop[] loops;
+    private final AtomicInteger nextLoop;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+
+    public NioTransport(NetworkConfig config, MessageHandler messageHandler, BufferPool bufferPool) throws IOException {
+        this.config = config;
+        this.messageHandler = messageHandler;
+        this.bufferPool = bufferPool;
+        this.loops = new EventLoop[config.getIoThreads()];
+        this.nextLoop = new AtomicInteger(0);
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop("nio-transport-" + i);
+        }
+        messageHandler.addCapacityListener(() -> {
+            for (EventLoop loop : loops) {
+                loop.resumeReaders();
+            }
+        });
+    }
+
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(config.getPort()), config.getMaxConnections());
+        running = true;
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+
+        EventLoop acceptLoop = loops[0];
+        acceptLoop.execute(() -> {
+            try {
+                acceptLoop.registerAcceptor(serverChannel, new Acceptor());
+            } catch (IOException e) {
+                logger.error("Failed to register server channel", e);
+            }
+        });
+        logger.info("NIO transport listening on port {} with {} event loops", getPort(), loops.length);
+    }
+
+    /**
+     * Opens a pooled outbound connection. The connect itself blocks the calling thread
+     * for at most {@link NetworkConfig#getConnectionTimeout()}; afterwards the channel
+     * is served by one of the event loops.
+     */
+    public PeerConnection connect(InetSocketAddress target) throws IOException {
+        if (!running) {
+            throw new IOException("NIO transport is not running");
+        }
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.socket().connect(target, (int) config.getConnectionTimeout());
+            channel.socket().setTcpNoDelay(true);
+            EventLoop loop = nextLoop();
+            NioConnection connection = new NioConnection(loop, channel, null, target, bufferPool);
+            CompletableFuture<Void> registered = new CompletableFuture<>();
+            loop.execute(() -> {
+                try {
+                    connection.register(SelectionKey.OP_READ);
+                    registered.complete(null);
+                } catch (IOException e) {
+                    registered.completeExceptionally(e);
+                }
+            });
+            registered.get(config.getConnectionTimeout(), TimeUnit.MILLISECONDS);
+            return new ChannelPeerConnection(loop, connection, config.getConnectionTimeout());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (ExecutionException e) {
+            channel.close();
+            throw new IOException("Failed to register connection to " + target, e.getCause());
+        } catch (InterruptedException | TimeoutException e) {
+            channel.close();
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("Timed out registering connection to " + target, e);
+        }
+    }
+
+    private EventLoop nextLoop() {
+        return loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+    }
+
+    public void shutdown() {
+        running = false;
+        for (EventLoop loop : loops) {
+            loop.shutdown();
+        }
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getPort() {
+        try {
+            return serverChannel != null ? ((InetSocketAddress) serverChannel.getLocalAddress()).getPort() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the number of channels currently registered across all event loops.
+     */
+    public int getConnectionCount() {
+        int count = 0;
+        for (EventLoop loop : loops) {
+            count += loop.getChannelCount();
+        }
+        return count;
+    }
+
+    /**
+     * Accepts pending connections and spreads them round-robin over the event loops.
+     */
+    private final class Acceptor implements ChannelHandler {
+        @Override
+        public void onReady(SelectionKey key) throws IOException {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                SocketChannel accepted = channel;
+                accepted.socket().setTcpNoDelay(true);
+                EventLoop loop = nextLoop();
+                InetSocketAddress remote = (InetSocketAddress) accepted.getRemoteAddress();
+                loop.execute(() -> {
+                    try {
+                        new NioConnection(loop, accepted, messageHandler, remote, bufferPool)
+                            .register(SelectionKey.OP_READ);
+                    } catch (IOException e) {
+                        logger.warn("Failed to register connection from {}", remote, e);
+                        try {
+                            accepted.close();
+                        } catch (IOException ignored) {
+                            // Ignore
+                        }
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                serverChannel.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+}
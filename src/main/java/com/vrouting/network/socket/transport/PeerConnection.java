@@ -0,0 +1,31 @@
+package com.vrouting.network.socket.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * A long-lived outbound connection to one peer, owned by a {@link ConnectionPool}.
+ */
+public interface PeerConnection {
+    /**
+     * Writes one or more complete frames to the peer. On success the connection takes
+     * ownership of the buffer and releases it once written; if this throws, the caller
+     * still owns it and may retry it on a new connection. Implementations are safe for
+     * concurrent callers.
+     */
+    void write(PooledBuffer frames) throws IOException;
+
+    /**
+     * Checks whether the connection can still carry traffic.
+     */
+    boolean isHealthy();
+
+    /**
+     * Gets the time of the last successful write, in epoch milliseconds.
+     */
+    long getLastUsed();
+
+    InetSocketAddress getRemoteAddress();
+
+    void close();
+}
@@ -0,0 +1,50 @@
+package com.vrouting.network.socket.transport;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A buffer lent out by a {@link BufferPool}. The holder owns the buffer until it calls
+ * {@link #release()}, after which the buffer may be handed to another connection and
+ * must not be touched again.
+ */
+public final class PooledBuffer {
+    private final BufferPool pool;
+    private final ByteBuffer buffer;
+    private final AtomicBoolean released;
+    BufferPool.LeakRecord leakRecord;
+
+    PooledBuffer(BufferPool pool, ByteBuffer buffer) {
+        this.pool = pool;
+        this.buffer = buffer;
+        this.released = new AtomicBoolean(false);
+    }
+
+    public ByteBuffer buffer() {
+        if (released.get()) {
+            throw new IllegalStateException("Buffer used after release");
+        }
+        return buffer;
+    }
+
+    /**
+     * Checks whether the buffer came from the pool, as opposed to a one-off allocation
+     * for a frame larger than the pooled buffer size.
+     */
+    public boolean isPooled() {
+        return pool != null;
+    }
+
+    public void release() {
+        if (!released.compareAndSet(false, true)) {
+            throw new IllegalStateException("Buffer released twice");
+        }
+        if (pool != null) {
+            pool.recycle(this);
+        }
+    }
+
+    ByteBuffer rawBuffer() {
+        return buffer;
+    }
+}
@@ -0,0 +1,108 @@
+package com.vrouting.network.socket.transport;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Executor;
+
+/**
+ * Pooled connection for the blocking transport. Keeps the socket open for its whole
+ * lifetime and writes pooled frame batches in one call. A reader task only watches for
+ * the peer closing: anything the peer sends on this connection is discarded, never
+ * handed to the local handler or answered.
+ */
+public final class StreamPeerConnection implements PeerConnection {
+    private static final Logger logger = LoggerFactory.getLogger(StreamPeerConnection.class);
+
+    private final Socket socket;
+    private final WritableByteChannel out;
+    private final InetSocketAddress remoteAddress;
+    private volatile long lastUsed;
+    private volatile boolean healthy;
+
+    private StreamPeerConnection(Socket socket, InetSocketAddress remoteAddress) throws IOException {
+        this.socket = socket;
+        this.remoteAddress = remoteAddress;
+        this.out = Channels.newChannel(socket.getOutputStream());
+        this.lastUsed = System.currentTimeMillis();
+        this.healthy = true;
+    }
+
+    public static StreamPeerConnection open(InetSocketAddress address, NetworkConfig config,
+                                            Executor readerExecutor) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(address, (int) config.getConnectionTimeout());
+            socket.setTcpNoDelay(true);
+            StreamPeerConnection connection = new StreamPeerConnection(socket, address);
+            readerExecutor.execute(connection::awaitClose);
+            return connection;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void write(PooledBuffer frames) throws IOException {
+        ByteBuffer buffer = frames.buffer();
+        try {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            lastUsed = System.currentTimeMillis();
+        } catch (IOException e) {
+            healthy = false;
+            throw e;
+        }
+        frames.release();
+    }
+
+    private void awaitClose() {
+        byte[] discard = new byte[256];
+        try (InputStream in = socket.getInputStream()) {
+            while (healthy && in.read(discard) >= 0) {
+                // Nothing is expected from the peer on an outbound connection
+            }
+        } catch (IOException e) {
+            if (healthy) {
+                logger.debug("Connection to {} closed: {}", remoteAddress, e.getMessage());
+            }
+        } finally {
+            healthy = false;
+        }
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return healthy && !socket.isClosed();
+    }
+
+    @Override
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    @Override
+    public void close() {
+        healthy = false;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.vrouting.network.socket.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExecutorProviderTest {
+
+    @Test
+    public void testPlatformThreadsAreNamed() throws Exception {
+        ExecutorService executor = new PlatformExecutorProvider().newSerialExecutor("worker");
+        try {
+            assertEquals("worker-0", executor.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPlatformSchedulerRunsTasks() throws Exception {
+        ScheduledExecutorService scheduler = new PlatformExecutorProvider().newScheduler("timer", 1);
+        try {
+            assertEquals(42, scheduler.schedule(() -> 42, 10, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testVirtualThreadsOrFallback() throws Exception {
+        ExecutorProvider provider = VirtualThreadExecutorProvider.orPlatform();
+        if (!VirtualThreadExecutorProvider.isSupported()) {
+            assertTrue(provider instanceof PlatformExecutorProvider);
+            assertThrows(UnsupportedOperationException.class, VirtualThreadExecutorProvider::new);
+            return;
+        }
+
+        ExecutorService executor = provider.newBlockingExecutor("handler", 1);
+        try {
+            Object virtual = executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                .get(5, TimeUnit.SECONDS);
+            assertEquals(Boolean.TRUE, virtual);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.vrouting.network.socket.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MpscRingBufferTest {
+
+    @Test
+    public void testFifoAndFullRejection() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(3);
+        assertEquals(4, ring.capacity());
+        assertTrue(ring.isEmpty());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+
+        assertEquals(0, ring.poll());
+        assertTrue(ring.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, ring.poll());
+        }
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void testWrapsAroundManyLaps() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(8);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(ring.offer(i));
+            assertTrue(ring.offer(-i));
+            assertEquals(i, ring.poll());
+            assertEquals(-i, ring.poll());
+        }
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void testConcurrentProducersDeliverEachElementOnceInProducerOrder() throws Exception {
+        int producers = 4;
+        int perProducer = 200_000;
+        MpscRingBuffer<long[]> ring = new MpscRingBuffer<>(1024);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long seq = 0; seq < perProducer; seq++) {
+                    long[] element = {producer, seq};
+                    while (!ring.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        long[] next = new long[producers];
+        start.countDown();
+        int received = 0;
+        while (received < producers * perProducer) {
+            long[] element = ring.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+            int producer = (int) element[0];
+            assertEquals(next[producer], element[1], "per-producer order is preserved");
+            next[producer]++;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(ring.poll());
+    }
+}
@@ -0,0 +1,143 @@
+package com.vrouting.network.socket.core;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageId;
+import com.vrouting.network.socket.message.MessageType;
+import com.vrouting.network.socket.stream.StreamManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class DeliveryTrackerTest {
+    private final DeliveryTracker tracker = new DeliveryTracker("node-a",
+        new NetworkConfig.Builder().deliveryTickDuration(5).build());
+
+    @AfterEach
+    public void tearDown() {
+        tracker.close();
+    }
+
+    @Test
+    public void testAckCompletesMatchingSend() throws Exception {
+        Message data = new Message("node-a", "node-b", MessageType.DATA);
+        CompletableFuture<DeliveryReceipt> receipt = tracker.track(data, 10000);
+        assertEquals(data.getMessageId(), data.getReceiptId());
+
+        // The copy delivered after a hop has a new id but keeps the receipt id
+        Message delivered = data.copy();
+        assertTrue(tracker.handle(ack(delivered.getReceiptId())));
+
+        DeliveryReceipt result = receipt.get(1, TimeUnit.SECONDS);
+        assertEquals(data.getMessageId(), result.getMessageId());
+        assertEquals("node-b", result.getDestinationNodeId());
+        assertTrue(result.getRoundTripNanos() >= 0);
+        assertEquals(0, tracker.getPendingCount());
+
+        // Late duplicates and unknown ids are consumed and ignored
+        assertTrue(tracker.handle(ack(data.getMessageId())));
+        assertTrue(tracker.handle(ack(MessageId.next())));
+        assertFalse(tracker.handle(new Message("node-b", "node-a", MessageType.DATA)));
+    }
+
+    @Test
+    public void testUnacknowledgedSendTimesOut() throws Exception {
+        long start = System.nanoTime();
+        CompletableFuture<DeliveryReceipt> receipt = tracker.track(new Message("node-a", "node-b", MessageType.DATA), 50);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> receipt.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50), "expired early");
+        assertEquals(0, tracker.getPendingCount());
+    }
+
+    @Test
+    public void testTimeoutsBeyondOneRevolution() throws Exception {
+        DeliveryTracker fast = new DeliveryTracker("node-a", new NetworkConfig.Builder().deliveryTickDuration(1).build());
+        try {
+            long timeout = DeliveryTracker.WHEEL_SIZE + 100;
+            long start = System.nanoTime();
+            CompletableFuture<DeliveryReceipt> receipt = fast.track(new Message("node-a", "node-b", MessageType.DATA), timeout);
+            assertThrows(ExecutionException.class, () -> receipt.get(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(timeout), "expired early");
+        } finally {
+            fast.close();
+        }
+    }
+
+    @Test
+    public void testPipelinesManySendsAndExpiresOnlyUnacknowledged() throws Exception {
+        int count = 20000;
+        List<Message> sent = new ArrayList<>();
+        List<CompletableFuture<DeliveryReceipt>> receipts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Message data = new Message("node-a", "node-b", MessageType.DATA);
+            sent.add(data);
+            receipts.add(tracker.track(data, 200));
+        }
+        assertEquals(count, tracker.getPendingCount());
+        for (int i = 0; i < count; i += 2) {
+            tracker.handle(ack(sent.get(i).getReceiptId()));
+        }
+
+        CompletableFuture.allOf(receipts.toArray(new CompletableFuture<?>[0]))
+            .handle((ignored, error) -> null).get(5, TimeUnit.SECONDS);
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 2 != 0, receipts.get(i).isCompletedExceptionally(), "send " + i);
+        }
+        assertEquals(0, tracker.getPendingCount());
+    }
+
+    @Test
+    public void testCloseFailsPendingSends() {
+        CompletableFuture<DeliveryReceipt> pending = tracker.track(new Message("node-a", "node-b", MessageType.DATA), 10000);
+        tracker.close();
+
+        ExecutionException failure = assertThrows(ExecutionException.class, pending::get);
+        assertInstanceOf(IOException.class, failure.getCause());
+        assertTrue(tracker.track(new Message("node-a", "node-b", MessageType.DATA), 10000).isCompletedExceptionally());
+    }
+
+    @Test
+    public void testDispatcherAcknowledgesDataWithReceiptId() {
+        Node node = mock(Node.class);
+        when(node.getNodeId()).thenReturn("node-b");
+        NetworkConfig config = new NetworkConfig.Builder().build();
+        when(node.getConfig()).thenReturn(config);
+        when(node.getStreamManager()).thenReturn(new StreamManager("node-b", config, node::sendMessage));
+        when(node.getDeliveryTracker()).thenReturn(new DeliveryTracker("node-b", config));
+        MessageDispatcher dispatcher = new MessageDispatcher(node);
+
+        Message plain = new Message("node-a", "node-b", MessageType.DATA);
+        dispatcher.dispatch(plain);
+        verify(node, never()).sendMessage(any(Message.class));
+
+        Message tracked = new Message("node-a", "node-b", MessageType.DATA);
+        tracked.setReceiptId(MessageId.next());
+        dispatcher.dispatch(tracked);
+
+        ArgumentCaptor<Message> ack = ArgumentCaptor.forClass(Message.class);
+        verify(node).sendMessage(ack.capture());
+        assertEquals(MessageType.DATA_ACK, ack.getValue().getType());
+        assertEquals("node-a", ack.getValue().getDestinationNodeId());
+        assertEquals(tracked.getReceiptId(), ack.getValue().getReceiptId());
+        verify(node, times(2)).processMessage(any(Message.class));
+    }
+
+    private static Message ack(MessageId receiptId) {
+        Message ack = new Message("node-b", "node-a", MessageType.DATA_ACK);
+        ack.setReceiptId(receiptId);
+        return ack;
+    }
+}
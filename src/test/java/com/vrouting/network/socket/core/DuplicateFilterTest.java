@@ -0,0 +1,215 @@
+package com.vrouting.network.socket.core;
+
+import com.vrouting.network.socket.message.MessageId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DuplicateFilterTest {
+
+    @Test
+    public void testDuplicatesInsideWindowAreAlwaysCaught() {
+        DuplicateFilter filter = new DuplicateFilter(2048, 4);
+
+        // Ids arriving out of creation order
+        for (long seq : new long[] {1024, 1, 1025, 2, 1026, 3}) {
+            assertTrue(filter.add("node-a", id(7, seq)), "first sighting of " + seq);
+        }
+        for (long seq : new long[] {1, 2, 3}) {
+            assertTrue(filter.add("node-a", id(7, seq + 1000)));
+        }
+        for (long seq : new long[] {1024, 1025, 1026, 1001, 1002, 1003}) {
+            assertFalse(filter.add("node-a", id(7, seq)), "repeat of " + seq);
+        }
+        assertTrue(filter.add("node-a", id(8, 1)), "same sequence from another source");
+        assertEquals(2, filter.getTrackedSourceCount());
+    }
+
+    @Test
+    public void testIdsBehindTheWindowAreDroppedAndCountedWithoutRetention() {
+        DuplicateFilter filter = new DuplicateFilter(64, 4, 0);
+        assertTrue(filter.add("node-a", id(7, 100)));
+        assertTrue(filter.add("node-a", id(7, 37)));
+        assertTrue(filter.add("node-a", id(7, 36)), "segment still covers the newest 64");
+
+        // Segments behind the newest 64 sequences go as soon as a newer one starts
+        assertTrue(filter.add("node-a", id(7, 200)));
+        assertFalse(filter.add("node-a", id(7, 37)));
+        assertFalse(filter.add("node-a", id(7, 101)));
+        assertEquals(2, filter.getExpiredCount());
+
+        assertTrue(filter.add("node-a", id(7, 150)));
+        assertFalse(filter.add("node-a", id(7, 150)));
+        assertEquals(2, filter.getExpiredCount());
+    }
+
+    @Test
+    public void testRetentionKeepsOlderSegmentsUpToTheLimit() {
+        DuplicateFilter filter = new DuplicateFilter(64, 4, 60_000);
+        assertTrue(filter.add("node-a", id(7, 1)));
+        // A burst far past the window, as while a sending thread is descheduled
+        for (long seq = 100; seq < 1000; seq++) {
+            assertTrue(filter.add("node-a", id(7, seq)));
+        }
+        assertFalse(filter.add("node-a", id(7, 1)), "repeat still recognised");
+        assertTrue(filter.add("node-a", id(7, 2)), "late id still accepted");
+        assertEquals(0, filter.getExpiredCount());
+
+        // At most MAX_SEGMENTS segments are kept however long the retention
+        long far = 64L * (DuplicateFilter.MAX_SEGMENTS + 16);
+        assertTrue(filter.add("node-a", id(7, far)));
+        for (long seq = 64; seq < far; seq += 64) {
+            filter.add("node-a", id(7, seq));
+        }
+        assertFalse(filter.add("node-a", id(7, 3)));
+        assertEquals(1, filter.getExpiredCount());
+        assertFalse(filter.add("node-a", id(7, far)));
+        assertTrue(filter.add("node-a", id(7, far - 1)));
+    }
+
+    @Test
+    public void testForgetsLeastRecentlyHeardSource() {
+        DuplicateFilter filter = new DuplicateFilter(64, 1);
+        assertTrue(filter.add("node-a", id(1, 5)));
+        assertTrue(filter.add("node-a", id(2, 5)));
+
+        assertEquals(1, filter.getTrackedSourceCount());
+        // Source 1 was forgotten, so its repeat is a false negative
+        assertTrue(filter.add("node-a", id(1, 5)));
+        assertFalse(filter.add("node-a", id(1, 5)));
+    }
+
+    @Test
+    public void testTextIdsRotateThroughTwoGenerations() {
+        DuplicateFilter filter = new DuplicateFilter(64, 4);
+        for (int i = 0; i < 64; i++) {
+            assertTrue(filter.add("node-a", MessageId.parse("text-" + i)));
+        }
+        for (int i = 64; i < 128; i++) {
+            assertTrue(filter.add("node-a", MessageId.parse("text-" + i)));
+        }
+        assertFalse(filter.add("node-a", MessageId.parse("text-0")));
+        assertEquals(128, filter.getTrackedTextIdCount());
+
+        assertTrue(filter.add("node-a", MessageId.parse("text-128")));
+        assertTrue(filter.add("node-a", MessageId.parse("text-0")), "oldest generation was dropped");
+        assertTrue(filter.getTrackedTextIdCount() <= 128);
+    }
+
+    @Test
+    public void testNodesSharingAnEpochKeepSeparateWindows() {
+        DuplicateFilter filter = new DuplicateFilter(64, 4);
+        assertTrue(filter.add("node-a", id(7, 1)));
+        // Another node in the same process sends far more in the meantime
+        for (long seq = 2; seq < 1000; seq++) {
+            assertTrue(filter.add("node-b", id(7, seq)));
+        }
+
+        assertTrue(filter.add("node-a", id(7, 1000)));
+        assertTrue(filter.add("node-a", id(7, 999)), "same epoch, but node-b's ids do not count");
+        assertFalse(filter.add("node-a", id(7, 1)));
+        assertEquals(2, filter.getTrackedSourceCount());
+        assertTrue(filter.add(null, id(7, 1)), "unknown source is its own key");
+    }
+
+    @Test
+    public void testSoakWithRealIdsFromThreadsAtDifferentRates() throws Exception {
+        // Sequences are shared by every thread, so each node's kept segments must span
+        // longer than a thread may be descheduled while the others run flat out; the
+        // run still passes through more than MAX_SEGMENTS segments per node
+        int window = 65536;
+        DuplicateFilter filter = new DuplicateFilter(window, 64);
+        int nodes = 2;
+        // Per node: one thread sending flat out and one pausing between messages
+        int[] pauseEvery = {0, 50};
+        int fastMessages = 750_000;
+        AtomicLong rejectedNew = new AtomicLong();
+        AtomicLong missedRepeats = new AtomicLong();
+        AtomicLong sent = new AtomicLong();
+        AtomicLong checkpoint = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean fastDone = new AtomicBoolean();
+        AtomicInteger fastRunning = new AtomicInteger(nodes);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int n = 0; n < nodes; n++) {
+            String node = "soak-" + n;
+            for (int pause : pauseEvery) {
+                threads.add(new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    MessageId[] recent = new MessageId[16];
+                    for (int i = 0; pause == 0 ? i < fastMessages : !fastDone.get(); i++) {
+                        MessageId id = MessageId.next();
+                        if (!filter.add(node, id)) {
+                            rejectedNew.incrementAndGet();
+                        }
+                        // A flooded copy of a message sent a few ids earlier
+                        MessageId repeat = recent[i & 15];
+                        if (repeat != null && filter.add(node, repeat)) {
+                            missedRepeats.incrementAndGet();
+                        }
+                        recent[i & 15] = id;
+                        sent.incrementAndGet();
+                        if (pause > 0 && i % pause == 0) {
+                            sleep(1);
+                        }
+                        if (pause == 0 && i == fastMessages / 3 && node.equals("soak-0")) {
+                            checkpoint.set(usedMemory());
+                        }
+                    }
+                    if (pause == 0 && fastRunning.decrementAndGet() == 0) {
+                        fastDone.set(true);
+                    }
+                }));
+            }
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long growth = usedMemory() - checkpoint.get();
+        System.out.printf("Duplicate filter soak: %d ids from %d threads, heap growth after warm-up %d KB%n",
+            sent.get(), threads.size(), growth / 1024);
+
+        assertEquals(0, rejectedNew.get(), "fresh ids dropped as duplicates or expired");
+        assertEquals(0, missedRepeats.get(), "repeated ids let through");
+        assertEquals(nodes, filter.getTrackedSourceCount());
+        // An unbounded id set would have grown by well over 100 MB here
+        assertTrue(growth < 16L * 1024 * 1024, "heap grew by " + growth + " bytes");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static MessageId id(long epoch, long sequence) {
+        return MessageId.parse(new UUID(epoch, sequence).toString());
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
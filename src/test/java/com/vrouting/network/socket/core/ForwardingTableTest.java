@@ -0,0 +1,151 @@
+package com.vrouting.network.socket.core;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.core.RoutingManager.Route;
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ForwardingTableTest {
+
+    @Test
+    public void testLookupsMatchEntries() {
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        ForwardingTable.Builder builder = new ForwardingTable.Builder(500);
+        for (int i = 0; i < 1000; i++) {
+            int destination = random.nextInt(500);
+            int nextHop = random.nextInt(100);
+            builder.put(destination, nextHop, "hop-" + nextHop, null);
+            expected.put(destination, nextHop);
+        }
+        ForwardingTable table = builder.build();
+
+        assertEquals(expected.size(), table.size());
+        for (int destination = 0; destination < 600; destination++) {
+            Integer nextHop = expected.get(destination);
+            if (nextHop == null) {
+                assertEquals(NodeIdRegistry.UNKNOWN, table.getNextHop(destination));
+                assertNull(table.getNextHopName(destination));
+            } else {
+                assertEquals((int) nextHop, table.getNextHop(destination));
+                assertEquals("hop-" + nextHop, table.getNextHopName(destination));
+            }
+        }
+        assertEquals(NodeIdRegistry.UNKNOWN, table.getNextHop(NodeIdRegistry.UNKNOWN));
+        assertEquals(0, ForwardingTable.EMPTY_TABLE.size());
+        assertNull(ForwardingTable.EMPTY_TABLE.getRoute(3));
+    }
+
+    @Test
+    public void testBuilderIsSingleUse() {
+        ForwardingTable.Builder builder = new ForwardingTable.Builder(1);
+        builder.put(1, 2, "hop-2", null);
+        ForwardingTable table = builder.build();
+
+        assertThrows(IllegalStateException.class, () -> builder.put(3, 4, "hop-4", null));
+        assertThrows(IllegalStateException.class, () -> new ForwardingTable.Builder(1)
+            .put(1, 2, "hop-2", null).put(2, 2, "hop-2", null));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void testWithReplacesOneEntryAndSharesTheRest() {
+        Route kept = new Route("dest-1", Arrays.asList("hop-1"));
+        ForwardingTable table = new ForwardingTable.Builder(2)
+            .put(1, 11, "hop-1", kept)
+            .put(2, 12, "hop-2", null)
+            .build();
+
+        ForwardingTable replaced = table.with(2, 22, "hop-22", null);
+        assertEquals(2, replaced.size());
+        assertEquals(22, replaced.getNextHop(2));
+        assertSame(kept, replaced.getRoute(1));
+        assertEquals(12, table.getNextHop(2), "original table unchanged");
+
+        // Adding past the capacity grows the table
+        ForwardingTable grown = replaced;
+        for (int destination = 3; destination < 100; destination++) {
+            grown = grown.with(destination, destination + 10, "hop-" + destination, null);
+        }
+        assertEquals(99, grown.size());
+        assertSame(kept, grown.getRoute(1));
+        for (int destination = 3; destination < 100; destination++) {
+            assertEquals(destination + 10, grown.getNextHop(destination));
+        }
+        assertEquals(2, replaced.size());
+        assertEquals(NodeIdRegistry.UNKNOWN, replaced.getNextHop(3));
+    }
+
+    @Test
+    public void testRouteRepliesPublishNewSnapshots() {
+        Node node = mock(Node.class);
+        when(node.getNodeId()).thenReturn("fib-a");
+        when(node.getConfig()).thenReturn(new NetworkConfig.Builder().build());
+        RoutingManager routing = new RoutingManager(node);
+        ForwardingTable initial = routing.getForwardingTable();
+        assertNull(routing.getNextHop("fib-d"));
+
+        routing.handleRouteReply(reply(route("fib-d", 3, 0.2, "fib-b", "fib-c")));
+        ForwardingTable first = routing.getForwardingTable();
+        assertNotSame(initial, first);
+        assertEquals("fib-b", routing.getNextHop("fib-d"));
+        assertEquals(NodeIdRegistry.global().intern("fib-b"), routing.getNextHop(NodeIdRegistry.global().intern("fib-d")));
+
+        // A better candidate replaces the winner in a new table; the old one is unchanged
+        routing.handleRouteReply(reply(route("fib-d", 1, 0.9, "fib-e")));
+        assertEquals("fib-e", routing.getNextHop("fib-d"));
+        assertEquals("fib-b", first.getNextHopName(NodeIdRegistry.global().lookup("fib-d")));
+
+        Message request = new Message("fib-x", "fib-d", MessageType.ROUTE_REQUEST);
+        Message answer = routing.handleRouteRequest(request);
+        assertEquals(Arrays.asList("fib-e"), answer.getPayload("route", Route.class).getHops());
+        routing.stop();
+    }
+
+    @Test
+    public void testRoutesExpireAfterMaxAge() {
+        Node node = mock(Node.class);
+        when(node.getNodeId()).thenReturn("fib-a");
+        when(node.getConfig()).thenReturn(new NetworkConfig.Builder().build());
+        RoutingManager routing = new RoutingManager(node);
+        long now = System.currentTimeMillis();
+        Route stale = new Route("stale-id", "fib-old", Arrays.asList("fib-b"), now - 11 * 60 * 1000);
+        stale.setHopCount(1);
+        routing.handleRouteReply(reply(stale));
+        routing.handleRouteReply(reply(route("fib-new", 1, 0.5, "fib-c")));
+        assertEquals("fib-b", routing.getNextHop("fib-old"));
+
+        routing.removeExpiredRoutes(now);
+        assertNull(routing.getNextHop("fib-old"));
+        assertEquals("fib-c", routing.getNextHop("fib-new"));
+        assertEquals(1, routing.getForwardingTable().size());
+
+        // Nothing expired, so the table is not rebuilt
+        ForwardingTable table = routing.getForwardingTable();
+        routing.removeExpiredRoutes(now);
+        assertSame(table, routing.getForwardingTable());
+        routing.stop();
+    }
+
+    private static Route route(String destination, int hopCount, double stability, String... hops) {
+        Route route = new Route(destination, Arrays.asList(hops));
+        route.setHopCount(hopCount);
+        route.setStability(stability);
+        return route;
+    }
+
+    private static Message reply(Route route) {
+        Message reply = new Message("fib-x", "fib-a", MessageType.ROUTE_REPLY);
+        reply.setPayload("route", route);
+        return reply;
+    }
+}
@@ -0,0 +1,148 @@
+package com.vrouting.network.socket.core;
+
+import com.vrouting.network.socket.config.BroadcastMode;
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageType;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class GossipProtocolTest {
+
+    @Test
+    public void testRecordStampsBroadcastIdAndRejectsRepeats() {
+        GossipProtocol gossip = new GossipProtocol(mockNode("gossip-a", new NetworkConfig.Builder().build()));
+        Message message = new Message("gossip-a", null, MessageType.UPDATE);
+
+        assertTrue(gossip.record(message));
+        assertEquals(message.getId(), message.getPayload(GossipProtocol.BROADCAST_ID, String.class));
+
+        // A copy on a later hop has a new message id but keeps the broadcast id
+        Message copy = message.copy();
+        assertNotEquals(message.getId(), copy.getId());
+        assertFalse(gossip.record(copy));
+        assertEquals(1, gossip.getHistorySize());
+    }
+
+    @Test
+    public void testHistoryIsBounded() {
+        GossipProtocol gossip = new GossipProtocol(mockNode("gossip-a",
+            new NetworkConfig.Builder().gossipHistorySize(4).build()));
+        Message first = new Message("gossip-a", null, MessageType.UPDATE);
+        gossip.record(first);
+        for (int i = 0; i < 10; i++) {
+            gossip.record(new Message("gossip-a", null, MessageType.UPDATE));
+        }
+
+        assertEquals(4, gossip.getHistorySize());
+        assertTrue(gossip.record(first.copy()), "evicted broadcast is treated as new");
+    }
+
+    @Test
+    public void testForwardProbability() {
+        GossipProtocol never = new GossipProtocol(mockNode("gossip-a",
+            new NetworkConfig.Builder().gossipProbability(0).build()), new Random(1));
+        GossipProtocol always = new GossipProtocol(mockNode("gossip-a",
+            new NetworkConfig.Builder().gossipProbability(1).build()), new Random(1));
+        for (int i = 0; i < 100; i++) {
+            assertFalse(never.shouldForward(4));
+            assertTrue(always.shouldForward(4));
+        }
+
+        GossipProtocol adaptive = new GossipProtocol(mockNode("gossip-a",
+            new NetworkConfig.Builder().gossipProbability(0.6).gossipAdaptive(true).build()));
+        assertEquals(0.6, adaptive.forwardProbability(GossipProtocol.REFERENCE_DEGREE), 1e-9);
+        assertEquals(0.3, adaptive.forwardProbability(2 * GossipProtocol.REFERENCE_DEGREE), 1e-9);
+        assertEquals(1.0, adaptive.forwardProbability(2), 1e-9);
+    }
+
+    @Test
+    public void testSelectTargetsHonorsFanout() {
+        int[] candidates = {1, 2, 3, 4, 5, 6, 7, 8};
+        GossipProtocol all = new GossipProtocol(mockNode("gossip-a", new NetworkConfig.Builder().build()));
+        assertArrayEquals(candidates, all.selectTargets(candidates));
+
+        GossipProtocol three = new GossipProtocol(mockNode("gossip-a",
+            new NetworkConfig.Builder().gossipFanout(3).build()), new Random(7));
+        for (int trial = 0; trial < 50; trial++) {
+            int[] targets = three.selectTargets(candidates);
+            assertEquals(3, targets.length);
+            Set<Integer> unique = new HashSet<>();
+            for (int target : targets) {
+                assertTrue(Arrays.binarySearch(candidates, target) >= 0);
+                unique.add(target);
+            }
+            assertEquals(3, unique.size());
+        }
+        assertArrayEquals(new int[] {1, 2}, three.selectTargets(new int[] {1, 2}));
+    }
+
+    @Test
+    public void testDigestRequestAndRepair() {
+        Node holderNode = mockNode("gossip-a", new NetworkConfig.Builder().build());
+        Node missingNode = mockNode("gossip-b", new NetworkConfig.Builder().build());
+        GossipProtocol holder = new GossipProtocol(holderNode);
+        GossipProtocol missing = new GossipProtocol(missingNode);
+        Message seen = new Message("gossip-a", null, MessageType.UPDATE);
+        seen.setPayload("value", 42);
+        Message unseen = new Message("gossip-a", null, MessageType.UPDATE);
+        holder.record(seen);
+        holder.record(unseen);
+        missing.record(seen.copy());
+
+        assertTrue(missing.handle(holder.createDigest("gossip-b")));
+        ArgumentCaptor<Message> request = ArgumentCaptor.forClass(Message.class);
+        verify(missingNode).sendMessage(request.capture());
+        assertEquals(MessageType.GOSSIP_REQUEST, request.getValue().getType());
+        assertEquals("gossip-a", request.getValue().getDestinationNodeId());
+        assertArrayEquals(new String[] {unseen.getId()}, request.getValue().getPayload(GossipProtocol.IDS, String[].class));
+
+        assertTrue(holder.handle(request.getValue()));
+        ArgumentCaptor<Message> repair = ArgumentCaptor.forClass(Message.class);
+        verify(holderNode).sendMessage(repair.capture());
+        assertEquals(MessageType.UPDATE, repair.getValue().getType());
+        assertEquals("gossip-b", repair.getValue().getDestinationNodeId());
+        assertEquals(unseen.getId(), repair.getValue().getPayload(GossipProtocol.BROADCAST_ID, String.class));
+
+        // Once repaired there is nothing left to request
+        assertTrue(missing.record(repair.getValue()));
+        missing.handle(holder.createDigest("gossip-b"));
+        verify(missingNode, times(1)).sendMessage(any(Message.class));
+        assertFalse(missing.handle(new Message("gossip-a", "gossip-b", MessageType.UPDATE)));
+    }
+
+    @Test
+    public void testRelayForwardsFirstSightingOnly() {
+        Node node = mockNode("gossip-a", new NetworkConfig.Builder()
+            .broadcastMode(BroadcastMode.GOSSIP).gossipProbability(1).build());
+        PeerDirectory peers = new PeerDirectory(node);
+        when(node.getPeerDirectory()).thenReturn(peers);
+        for (String peer : Arrays.asList("gossip-b", "gossip-c", "gossip-d")) {
+            peers.updatePeer(peer, Phase.REGULAR, 1, System.currentTimeMillis());
+        }
+        MessageDispatcher dispatcher = new MessageDispatcher(node);
+
+        Message received = new Message("gossip-b", "gossip-a", MessageType.UPDATE);
+        received.setPayload(GossipProtocol.BROADCAST_ID, "broadcast-1");
+        dispatcher.relayBroadcast(received);
+        dispatcher.relayBroadcast(received.copy());
+
+        verify(node, times(3)).sendMessage(any(Message.class));
+        peers.stop();
+    }
+
+    private static Node mockNode(String nodeId, NetworkConfig config) {
+        Node node = mock(Node.class);
+        when(node.getNodeId()).thenReturn(nodeId);
+        when(node.getConfig()).thenReturn(config);
+        return node;
+    }
+}
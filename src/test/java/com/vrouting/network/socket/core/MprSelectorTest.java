@@ -0,0 +1,208 @@
+package com.vrouting.network.socket.core;
+
+import com.vrouting.network.socket.config.BroadcastMode;
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageType;
+import com.vrouting.network.socket.stream.StreamManager;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class MprSelectorTest {
+
+    @Test
+    public void testPicksSoleCoverThenGreedy() {
+        // 0 has neighbors 1..4; 5 is reachable via 1 or 2, 6 only via 3, 7 via 1, 2 or 4
+        int[][] adjacency = {
+            {1, 2, 3, 4},
+            {0, 5, 7},
+            {0, 5},
+            {0, 6},
+            {0, 7},
+            {1, 2},
+            {3},
+            {1, 4},
+        };
+
+        int[] relays = MprSelector.select(0, adjacency[0], n -> adjacency[n]);
+
+        assertArrayEquals(new int[] {1, 3}, relays);
+    }
+
+    @Test
+    public void testNoRelaysWithoutTwoHopNeighbors() {
+        int[][] adjacency = {{1, 2}, {0, 2}, {0, 1}};
+        assertEquals(0, MprSelector.select(0, adjacency[0], n -> adjacency[n]).length);
+    }
+
+    @Test
+    public void testRelaysCoverEveryTwoHopNeighbor() {
+        Random random = new Random(3);
+        for (int trial = 0; trial < 50; trial++) {
+            int[][] adjacency = randomGraph(random, 60, 0.15);
+            for (int node = 0; node < adjacency.length; node++) {
+                int local = node;
+                int[] relays = MprSelector.select(local, adjacency[local], n -> adjacency[n]);
+
+                Set<Integer> twoHop = new HashSet<>();
+                for (int neighbor : adjacency[local]) {
+                    for (int next : adjacency[neighbor]) {
+                        twoHop.add(next);
+                    }
+                }
+                Set<Integer> covered = new HashSet<>();
+                for (int relay : relays) {
+                    assertTrue(Arrays.binarySearch(adjacency[local], relay) >= 0, "relay is a neighbor");
+                    for (int next : adjacency[relay]) {
+                        covered.add(next);
+                    }
+                }
+                twoHop.remove(local);
+                for (int neighbor : adjacency[local]) {
+                    twoHop.remove(neighbor);
+                }
+                assertTrue(covered.containsAll(twoHop), "node " + local + " leaves two-hop neighbors uncovered");
+                assertTrue(relays.length <= adjacency[local].length);
+            }
+        }
+    }
+
+    @Test
+    public void testBroadcastNamesRelaysAndOnlyRelaysForward() {
+        Node node = mock(Node.class);
+        when(node.getNodeId()).thenReturn("mpr-a");
+        when(node.getConfig()).thenReturn(new NetworkConfig.Builder().broadcastMode(BroadcastMode.MPR).build());
+        PeerDirectory peers = new PeerDirectory(node);
+        when(node.getPeerDirectory()).thenReturn(peers);
+        NodeIdRegistry ids = NodeIdRegistry.global();
+        for (String peer : Arrays.asList("mpr-b", "mpr-c", "mpr-d")) {
+            peers.updatePeer(peer, Phase.REGULAR, 1, System.currentTimeMillis());
+            peers.getAdjacencyGraph().addEdge(ids.intern("mpr-a"), ids.intern(peer));
+        }
+        peers.getAdjacencyGraph().addEdge(ids.intern("mpr-b"), ids.intern("mpr-e"));
+        peers.getAdjacencyGraph().addEdge(ids.intern("mpr-c"), ids.intern("mpr-e"));
+        peers.getAdjacencyGraph().addEdge(ids.intern("mpr-d"), ids.intern("mpr-f"));
+        MessageDispatcher dispatcher = new MessageDispatcher(node);
+
+        dispatcher.broadcast(new Message("mpr-a", null, MessageType.UPDATE));
+
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(node, times(3)).sendMessage(sent.capture());
+        for (Message copy : sent.getAllValues()) {
+            assertArrayEquals(new String[] {"mpr-b", "mpr-d"}, copy.getPayload(MessageDispatcher.RELAYS, String[].class));
+        }
+        peers.stop();
+
+        Message named = new Message("mpr-x", "mpr-a", MessageType.UPDATE);
+        named.setPayload(MessageDispatcher.RELAYS, new String[] {"mpr-a"});
+        Message other = new Message("mpr-x", "mpr-a", MessageType.UPDATE);
+        other.setPayload(MessageDispatcher.RELAYS, new String[] {"mpr-b"});
+        assertTrue(dispatcher.isRelayFor(named));
+        assertFalse(dispatcher.isRelayFor(other));
+        assertTrue(dispatcher.isRelayFor(new Message("mpr-x", "mpr-a", MessageType.UPDATE)));
+    }
+
+    @Test
+    public void testEachBroadcastIsDeliveredAndRelayedOnce() {
+        Node node = mprNode("mpr-r", "mpr-s", "mpr-t");
+        MessageDispatcher dispatcher = new MessageDispatcher(node);
+
+        Message original = new Message("mpr-o", null, MessageType.UPDATE);
+        original.setPayload(GossipProtocol.BROADCAST_ID, original.getId());
+        // First copy from a neighbor that did not choose this node
+        Message unnamed = copyTo(original, "mpr-r", "mpr-s");
+        // Later copies, each with its own message id, from neighbors that did
+        Message named = copyTo(original, "mpr-r", "mpr-r");
+        Message again = copyTo(original, "mpr-r", "mpr-r");
+
+        dispatcher.dispatch(unnamed);
+        verify(node, times(1)).processMessage(any(Message.class));
+        verify(node, never()).sendMessage(any(Message.class));
+
+        dispatcher.dispatch(named);
+        dispatcher.dispatch(again);
+        verify(node, times(1)).processMessage(any(Message.class));
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(node, times(2)).sendMessage(sent.capture());
+        for (Message copy : sent.getAllValues()) {
+            assertEquals("mpr-o", copy.getSourceNodeId());
+            assertEquals(original.getId(), copy.getPayload(GossipProtocol.BROADCAST_ID, String.class));
+        }
+        node.getPeerDirectory().stop();
+    }
+
+    @Test
+    public void testHeartbeatsStayOneHop() {
+        Node node = mprNode("mpr-h", "mpr-i", "mpr-j");
+        MessageDispatcher dispatcher = new MessageDispatcher(node);
+
+        dispatcher.broadcast(new Message("mpr-h", "broadcast", MessageType.HEARTBEAT_UPDATE));
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(node, times(2)).sendMessage(sent.capture());
+        for (Message copy : sent.getAllValues()) {
+            assertNull(copy.getPayload(MessageDispatcher.RELAYS, String[].class));
+            assertNull(copy.getPayload(GossipProtocol.BROADCAST_ID, String.class));
+        }
+
+        // Even one claiming to be a broadcast copy is delivered, not relayed
+        Message heartbeat = new Message("mpr-i", "mpr-h", MessageType.HEARTBEAT_UPDATE);
+        heartbeat.setPayload(MessageDispatcher.RELAYS, new String[] {"mpr-h"});
+        dispatcher.dispatch(heartbeat);
+        verify(node).processMessage(heartbeat);
+        verify(node, times(2)).sendMessage(any(Message.class));
+        assertFalse(MessageDispatcher.isFlooded(MessageType.HEARTBEAT_ACK));
+        assertTrue(MessageDispatcher.isFlooded(MessageType.UPDATE));
+        node.getPeerDirectory().stop();
+    }
+
+    private static Node mprNode(String nodeId, String... peerIds) {
+        Node node = mock(Node.class);
+        when(node.getNodeId()).thenReturn(nodeId);
+        when(node.getConfig()).thenReturn(new NetworkConfig.Builder().broadcastMode(BroadcastMode.MPR).build());
+        when(node.getStreamManager()).thenReturn(mock(StreamManager.class));
+        when(node.getDeliveryTracker()).thenReturn(mock(DeliveryTracker.class));
+        PeerDirectory peers = new PeerDirectory(node);
+        when(node.getPeerDirectory()).thenReturn(peers);
+        for (String peer : peerIds) {
+            peers.updatePeer(peer, Phase.REGULAR, 1, System.currentTimeMillis());
+        }
+        return node;
+    }
+
+    private static Message copyTo(Message broadcast, String destination, String... relays) {
+        Message copy = broadcast.copy();
+        copy.setDestinationNodeId(destination);
+        copy.setPayload(MessageDispatcher.RELAYS, relays);
+        return copy;
+    }
+
+    private static int[][] randomGraph(Random random, int nodes, double density) {
+        List<List<Integer>> lists = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            lists.add(new ArrayList<>());
+        }
+        for (int i = 0; i < nodes; i++) {
+            for (int j = i + 1; j < nodes; j++) {
+                if (random.nextDouble() < density) {
+                    lists.get(i).add(j);
+                    lists.get(j).add(i);
+                }
+            }
+        }
+        int[][] adjacency = new int[nodes][];
+        for (int i = 0; i < nodes; i++) {
+            adjacency[i] = lists.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return adjacency;
+    }
+}
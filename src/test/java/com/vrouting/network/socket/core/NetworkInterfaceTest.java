@@ -0,0 +1,112 @@
+package com.vrouting.network.socket.core;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.config.TransportMode;
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageHandler;
+import com.vrouting.network.socket.message.MessageType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NetworkInterfaceTest {
+    private NetworkInterface interfaceA;
+    private NetworkInterface interfaceB;
+
+    @AfterEach
+    public void tearDown() {
+        if (interfaceA != null) {
+            interfaceA.shutdown();
+        }
+        if (interfaceB != null) {
+            interfaceB.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(TransportMode.class)
+    public void testEachSendIsDeliveredExactlyOnce(TransportMode mode) throws Exception {
+        CountingHandler handlerA = new CountingHandler();
+        CountingHandler handlerB = new CountingHandler();
+        interfaceA = start(mode, handlerA);
+        interfaceB = start(mode, handlerB);
+
+        int sends = 50;
+        for (int i = 0; i < sends; i++) {
+            interfaceA.sendMessage("localhost", interfaceB.getPort(), new Message("node-a", "node-b", MessageType.DATA));
+        }
+        awaitCount(handlerB, sends);
+        // Leave time for any echo to come back before counting
+        Thread.sleep(300);
+
+        assertEquals(sends, handlerB.received.get());
+        assertEquals(0, handlerA.received.get());
+        assertEquals(1, interfaceA.getConnectionPool().getConnectCount());
+    }
+
+    @Test
+    public void testOutboundReadersDoNotStarveInboundConnections() throws Exception {
+        CountingHandler handlerA = new CountingHandler();
+        CountingHandler handlerB = new CountingHandler();
+        // One thread accepts and one serves an inbound connection
+        interfaceA = start(TransportMode.BLOCKING, handlerA, 2);
+        interfaceB = start(TransportMode.BLOCKING, handlerB, 2);
+
+        interfaceA.sendMessage("localhost", interfaceB.getPort(), new Message("node-a", "node-b", MessageType.DATA));
+        awaitCount(handlerB, 1);
+        interfaceB.sendMessage("localhost", interfaceA.getPort(), new Message("node-b", "node-a", MessageType.DATA));
+        awaitCount(handlerA, 1);
+
+        assertEquals(1, handlerA.received.get());
+        assertEquals(1, handlerB.received.get());
+    }
+
+    private static void awaitCount(CountingHandler handler, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (handler.received.get() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static NetworkInterface start(TransportMode mode, MessageHandler handler) throws Exception {
+        return start(mode, handler, 100);
+    }
+
+    private static NetworkInterface start(TransportMode mode, MessageHandler handler, int maxConnections) throws Exception {
+        NetworkInterface networkInterface = new NetworkInterface(new NetworkConfig.Builder()
+            .port(0)
+            .transportMode(mode)
+            .maxConnections(maxConnections)
+            .writeCoalesceWindow(0)
+            .build(), handler);
+        networkInterface.start();
+        return networkInterface;
+    }
+
+    /**
+     * Accepts every message and returns it, as {@code MessageHandlerImpl} does for
+     * queued messages.
+     */
+    private static final class CountingHandler implements MessageHandler {
+        final AtomicInteger received = new AtomicInteger();
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public Message handleMessage(Message message) {
+            received.incrementAndGet();
+            return message;
+        }
+    }
+}
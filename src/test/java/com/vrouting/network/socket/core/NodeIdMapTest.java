@@ -0,0 +1,140 @@
+package com.vrouting.network.socket.core;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.core.RoutingManager.Route;
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NodeIdMapTest {
+
+    @Test
+    public void testRegistryInternsStableDenseIds() {
+        NodeIdRegistry registry = new NodeIdRegistry();
+        int a = registry.intern("node-a");
+        int b = registry.intern("node-b");
+
+        assertEquals(0, a);
+        assertEquals(1, b);
+        assertEquals(a, registry.intern("node-a"));
+        assertEquals(b, registry.lookup("node-b"));
+        assertEquals(NodeIdRegistry.UNKNOWN, registry.lookup("node-c"));
+        assertEquals("node-a", registry.nameOf(a));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void testRemoteInterningStopsAtLimit() {
+        NodeIdRegistry registry = new NodeIdRegistry(3);
+        int local = registry.intern("node-local");
+        int a = registry.internRemote("node-a");
+        int b = registry.internRemote("node-b");
+
+        // Full for remote ids: new ones are refused, known ones still resolve
+        assertEquals(NodeIdRegistry.UNKNOWN, registry.internRemote("node-c"));
+        assertEquals(NodeIdRegistry.UNKNOWN, registry.lookup("node-c"));
+        assertEquals(a, registry.internRemote("node-a"));
+        assertEquals(local, registry.internRemote("node-local"));
+        assertEquals(3, registry.size());
+
+        // Ids the node uses itself always intern
+        int peer = registry.intern("node-peer");
+        assertEquals(4, registry.size());
+        assertEquals(peer, registry.internRemote("node-peer"));
+        assertEquals("node-b", registry.nameOf(b));
+        assertThrows(NullPointerException.class, () -> registry.internRemote(null));
+    }
+
+    @Test
+    public void testIdsFromHeartbeatsAndRoutesRespectRemoteLimit() {
+        Node node = mock(Node.class);
+        when(node.getNodeId()).thenReturn("limit-local");
+        when(node.getConfig()).thenReturn(new NetworkConfig.Builder().build());
+        PeerDirectory peers = new PeerDirectory(node);
+        RoutingManager routing = new RoutingManager(node);
+        NodeIdRegistry registry = NodeIdRegistry.global();
+        peers.updatePeer("limit-known", Phase.REGULAR, 1, System.currentTimeMillis());
+        int limit = registry.getRemoteLimit();
+        registry.setRemoteLimit(registry.size());
+        try {
+            peers.updatePeerInfo("limit-stranger", new Message("limit-stranger", "limit-local", MessageType.HEARTBEAT_UPDATE));
+            peers.updatePeer("limit-known", new Message("limit-known", "limit-local", MessageType.HEARTBEAT_UPDATE));
+            assertEquals(1, peers.getInternedPeerIds().length);
+            assertNull(peers.getPeerInfo("limit-stranger"));
+
+            routing.handleRouteReply(routeReply("limit-dest", "limit-known"));
+            routing.handleRouteReply(routeReply("limit-known", "limit-hop"));
+            assertEquals(NodeIdRegistry.UNKNOWN, registry.lookup("limit-dest"));
+            assertEquals(NodeIdRegistry.UNKNOWN, registry.lookup("limit-hop"));
+            assertEquals(0, routing.getForwardingTable().size());
+        } finally {
+            registry.setRemoteLimit(limit);
+            peers.stop();
+            routing.stop();
+        }
+        routing.handleRouteReply(routeReply("limit-dest", "limit-known"));
+        assertEquals("limit-known", routing.getNextHop("limit-dest"));
+    }
+
+    @Test
+    public void testMatchesHashMapUnderRandomOperations() {
+        NodeIdMap<Integer> map = new NodeIdMap<>(2);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(64);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int key = 0; key < 64; key++) {
+            assertEquals(expected.get(key), map.get(key), "key " + key);
+        }
+
+        map.removeIf((key, value) -> key % 2 == 0);
+        expected.keySet().removeIf(key -> key % 2 == 0);
+        for (int key : map.keys()) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        assertEquals(expected.size(), map.size());
+    }
+
+    @Test
+    public void testAdjacencyGraphKeepsRowsSortedAndSymmetric() {
+        AdjacencyGraph graph = new AdjacencyGraph();
+        graph.addEdge(5, 1);
+        graph.addEdge(5, 3);
+        graph.addEdge(5, 3);
+        graph.addArc(1, 9);
+
+        assertArrayEquals(new int[] {1, 3}, graph.neighbors(5));
+        assertArrayEquals(new int[] {5, 9}, graph.neighbors(1));
+        assertTrue(graph.hasArc(3, 5));
+        assertFalse(graph.hasArc(9, 1));
+
+        graph.removeNode(5);
+        assertArrayEquals(new int[] {9}, graph.neighbors(1));
+        assertFalse(graph.containsNode(5));
+        assertArrayEquals(new int[] {1, 3, 9}, graph.nodes());
+    }
+
+    private static Message routeReply(String destination, String nextHop) {
+        Route route = new Route(destination, Collections.singletonList(nextHop));
+        route.setHopCount(1);
+        Message reply = new Message(nextHop, "limit-local", MessageType.ROUTE_REPLY);
+        reply.setPayload("route", route);
+        return reply;
+    }
+}
@@ -0,0 +1,374 @@
+package com.vrouting.network.socket.message;
+
+import com.vrouting.network.socket.core.NodeMetrics;
+import com.vrouting.network.socket.core.Phase;
+import com.vrouting.network.socket.core.RoutingManager.Route;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageCodecTest {
+
+    @ParameterizedTest
+    @EnumSource(MessageType.class)
+    public void testRoundTripEveryType(MessageType type) throws IOException {
+        Message message = new Message("node-a", "node-b", type);
+        assertSameMessage(message, MessageCodec.decode(MessageCodec.encode(message)));
+    }
+
+    @Test
+    public void testRoundTripBroadcastWithoutDestination() throws IOException {
+        Message heartbeat = Message.createHeartbeat("node-a", MessageType.HEARTBEAT_DISCOVERY);
+        Message decoded = MessageCodec.decode(MessageCodec.encode(heartbeat));
+        assertNull(decoded.getDestinationNodeId());
+        assertSameMessage(heartbeat, decoded);
+    }
+
+    @Test
+    public void testRoundTripRouteHistory() throws IOException {
+        Message message = new Message("node-a", "node-z", MessageType.DATA);
+        for (String hop : Arrays.asList("node-a", "node-b", "node-c", "node-b", "node-z")) {
+            message.addToRoute(hop);
+        }
+        Message decoded = MessageCodec.decode(MessageCodec.encode(message));
+        assertEquals(message.getRouteHistory(), decoded.getRouteHistory());
+        assertEquals(5, decoded.getHopCount());
+        assertTrue(decoded.hasVisited("node-c"));
+    }
+
+    @Test
+    public void testRoundTripTypedPayload() throws IOException {
+        Message message = new Message("node-a", "node-b", MessageType.HEARTBEAT_RESPONSE);
+        message.setDepth(7);
+        message.setPhase(Phase.STABILIZATION);
+        NodeMetrics metrics = new NodeMetrics();
+        metrics.setBatteryLevel(0.42);
+        message.setMetrics(metrics);
+        message.setPayload("negative", -123456789012L);
+        message.setPayload("zero", 0);
+        message.setPayload("flag", true);
+        message.setPayload("ratio", 0.125);
+        message.setPayload("plain", "hello");
+        message.setPayload("escaped", "quote \" backslash \\ <tag>");
+        message.setPayload("unicode", "n\u00f6de-\u4e2d");
+        Map<String, Integer> nested = new HashMap<>();
+        nested.put("x", 1);
+        message.setPayload("nested", nested);
+
+        Message decoded = MessageCodec.decode(MessageCodec.encode(message));
+
+        assertSameMessage(message, decoded);
+        assertEquals(7, decoded.getDepth());
+        assertEquals(Phase.STABILIZATION, decoded.getPayload("phase", Phase.class));
+        assertEquals(0.42, decoded.getPayload("metrics", NodeMetrics.class).getBatteryLevel(), 1e-9);
+        assertEquals(-123456789012L, decoded.getPayload("negative", Long.class));
+        assertEquals(0, decoded.getPayload("zero", Integer.class));
+        assertTrue(decoded.getPayload("flag", Boolean.class));
+        assertEquals(0.125, decoded.getPayload("ratio", Double.class));
+        assertEquals("hello", decoded.getPayload("plain", String.class));
+        assertEquals("quote \" backslash \\ <tag>", decoded.getPayload("escaped", String.class));
+        assertEquals("n\u00f6de-\u4e2d", decoded.getPayload("unicode", String.class));
+    }
+
+    @Test
+    public void testRoundTripRoute() throws IOException {
+        Route route = new Route("node-z", Arrays.asList("node-b", "node-c", "node-z"));
+        route.setHopCount(3);
+        route.setLatency(12.5);
+        route.setBandwidth(0.8);
+        route.setStability(0.9);
+        Message reply = new Message("node-a", "node-b", MessageType.ROUTE_REPLY);
+        reply.setPayload("route", route);
+
+        Route decoded = MessageCodec.decode(MessageCodec.encode(reply)).getPayload("route", Route.class);
+
+        assertEquals(route.getId(), decoded.getId());
+        assertEquals("node-z", decoded.getDestinationId());
+        assertEquals(route.getHops(), decoded.getHops());
+        assertEquals("node-b", decoded.getNextHop());
+        assertEquals(route.getLastUpdated(), decoded.getLastUpdated());
+        assertEquals(3, decoded.getHopCount());
+        assertEquals(12.5, decoded.getLatency());
+        assertEquals(0.8, decoded.getBandwidth());
+        assertEquals(0.9, decoded.getStability());
+    }
+
+    @Test
+    public void testRoundTripNonUuidIdentifier() throws IOException {
+        Message message = new Message("custom-id", "node-a", "node-b", MessageType.ACK,
+            new int[0], new HashMap<>(), 0);
+        assertEquals("custom-id", MessageCodec.decode(MessageCodec.encode(message)).getId());
+    }
+
+    @Test
+    public void testRoundTripReceiptId() throws IOException {
+        Message data = new Message("node-a", "node-b", MessageType.DATA);
+        data.setReceiptId(data.getMessageId());
+        data.setPayload("body", new byte[] {1, 2, 3});
+        Message forwarded = MessageCodec.decode(MessageCodec.encode(data.copy()));
+        assertEquals(data.getMessageId(), forwarded.getReceiptId());
+        assertArrayEquals(new byte[] {1, 2, 3}, forwarded.getPayload("body", byte[].class));
+
+        Message ack = new Message("node-b", "node-a", MessageType.DATA_ACK);
+        ack.setReceiptId(MessageId.parse("custom-receipt"));
+        assertEquals("custom-receipt", MessageCodec.decode(MessageCodec.encode(ack)).getReceiptId().toString());
+        assertNull(MessageCodec.decode(MessageCodec.encode(new Message("node-a", "node-b", MessageType.DATA)))
+            .getReceiptId());
+    }
+
+    @Test
+    public void testDecodeSequentialMessagesFromOneBuffer() throws IOException {
+        Message first = new Message("node-a", "node-b", MessageType.ROUTE_REQUEST);
+        Message second = new Message("node-b", "node-a", MessageType.ROUTE_REPLY);
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+        MessageCodec.encode(first, buffer);
+        MessageCodec.encode(second, buffer);
+        buffer.flip();
+
+        assertSameMessage(first, MessageCodec.decode(buffer));
+        assertSameMessage(second, MessageCodec.decode(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testCompressesLargeDataPayload() throws IOException {
+        Message message = new Message("node-a", "node-b", MessageType.DATA);
+        message.setPayload("body", repeat("sensor reading 21.5C; ", 200));
+        message.setPayload("seq", 42);
+
+        byte[] plain = MessageCodec.encode(message);
+        byte[] compressed = MessageCodec.encode(message, 256);
+
+        assertEquals(0, plain[1] & MessageCodec.FLAG_COMPRESSED_PAYLOAD);
+        assertNotEquals(0, compressed[1] & MessageCodec.FLAG_COMPRESSED_PAYLOAD);
+        assertTrue(compressed.length * 4 < plain.length);
+        assertSameMessage(message, MessageCodec.decode(compressed));
+    }
+
+    @Test
+    public void testRelaysCompressedPayloadWithoutRecompressing() throws IOException {
+        Message message = new Message("node-a", "node-c", MessageType.DATA);
+        message.setPayload("body", repeat("abc", 1000));
+        byte[] compressed = MessageCodec.encode(message, 256);
+
+        Message relayed = MessageCodec.decode(compressed);
+        relayed.addToRoute("node-b");
+        long compressedBefore = MessageCodec.getCompressionStats().getCompressedCount();
+        long relayedBefore = MessageCodec.getCompressionStats().getRelayedCount();
+        byte[] forwarded = MessageCodec.encode(relayed);
+
+        assertNotEquals(0, forwarded[1] & MessageCodec.FLAG_COMPRESSED_PAYLOAD);
+        assertEquals(compressedBefore, MessageCodec.getCompressionStats().getCompressedCount());
+        assertTrue(MessageCodec.getCompressionStats().getRelayedCount() > relayedBefore);
+        Message delivered = MessageCodec.decode(forwarded);
+        assertEquals(repeat("abc", 1000), delivered.getPayload("body", String.class));
+        assertEquals(Arrays.asList("node-b"), delivered.getRouteHistory());
+
+        // Once modified the payload is encoded from its slots again
+        delivered.setPayload("ack", true);
+        byte[] modified = MessageCodec.encode(delivered);
+        assertEquals(0, modified[1] & MessageCodec.FLAG_COMPRESSED_PAYLOAD);
+        assertSameMessage(delivered, MessageCodec.decode(modified));
+    }
+
+    @Test
+    public void testRelaysDataPayloadWithoutDecodingIt() throws IOException {
+        Message message = new Message("node-a", "node-c", MessageType.DATA);
+        message.setPayload("body", "reading");
+        message.setPayload("count", 42);
+        message.setPayload("phase", Phase.REGULAR);
+        message.setPayload("bytes", new byte[] {1, 2, 3});
+        message.setPayload("route", new Route("route-1", "node-c", Arrays.asList("node-a", "node-b"), 1234L));
+        message.setPayload("extra", new int[] {4, 5});
+        byte[] sent = MessageCodec.encode(message);
+
+        Message relayed = MessageCodec.decode(sent);
+        relayed.addToRoute("node-b");
+        Message copy = relayed.copy();
+        copy.setDestinationNodeId("node-c");
+        byte[] forwarded = MessageCodec.encode(copy);
+
+        assertFalse(relayed.isPayloadDecoded());
+        assertFalse(copy.isPayloadDecoded());
+        // The payload section is the tail of both frames, byte for byte
+        int section = relayed.getRawPayload().remaining();
+        assertArrayEquals(Arrays.copyOfRange(sent, sent.length - section, sent.length),
+            Arrays.copyOfRange(forwarded, forwarded.length - section, forwarded.length));
+        Message delivered = MessageCodec.decode(forwarded);
+        assertEquals(Arrays.asList("node-b"), delivered.getRouteHistory());
+        for (String key : message.getPayloadSlots().keySet()) {
+            assertEquals(message.getPayloadJson(key), delivered.getPayloadJson(key), key);
+        }
+        assertArrayEquals(new byte[] {1, 2, 3}, delivered.getPayload("bytes", byte[].class));
+    }
+
+    @Test
+    public void testControlPayloadsAreDecodedEagerly() throws IOException {
+        Message message = new Message("node-a", "node-b", MessageType.ROUTE_REQUEST);
+        message.setPayload("body", "reading");
+
+        Message decoded = MessageCodec.decode(MessageCodec.encode(message));
+
+        assertTrue(decoded.isPayloadDecoded());
+        assertNull(decoded.getRawPayload());
+    }
+
+    @Test
+    public void testLeavesSmallOrNonDataPayloadsUncompressed() {
+        Message small = new Message("node-a", "node-b", MessageType.DATA);
+        small.setPayload("body", "short");
+        Message control = new Message("node-a", "node-b", MessageType.ROUTE_REQUEST);
+        control.setPayload("body", repeat("abc", 1000));
+        Message tiny = new Message("node-a", "node-b", MessageType.DATA);
+        tiny.setPayload("b", "x9$Lq");
+
+        for (Message message : Arrays.asList(small, control)) {
+            assertEquals(0, MessageCodec.encode(message, 256)[1] & MessageCodec.FLAG_COMPRESSED_PAYLOAD);
+        }
+        long uncompressible = MessageCodec.getCompressionStats().getUncompressibleCount();
+        // Deflate framing outweighs any gain on a few bytes, so the raw section is kept
+        byte[] encoded = MessageCodec.encode(tiny, 1);
+        assertEquals(0, encoded[1] & MessageCodec.FLAG_COMPRESSED_PAYLOAD);
+        assertArrayEquals(MessageCodec.encode(tiny), encoded);
+        assertTrue(MessageCodec.getCompressionStats().getUncompressibleCount() > uncompressible);
+    }
+
+    @Test
+    public void testNodeStatusBlock() throws IOException {
+        NodeMetrics metrics = new NodeMetrics();
+        metrics.setBatteryLevel(0.42);
+        metrics.setProcessingCapacity(0.0);
+        metrics.setNetworkStrength(0.999);
+        metrics.setReliability(1.0);
+        Message response = new Message("node-a", "node-b", MessageType.HEARTBEAT_RESPONSE);
+        response.setNodeStatus(new NodeStatus(Phase.STABILIZATION, 3, metrics));
+
+        byte[] bytes = MessageCodec.encode(response);
+        Message decoded = MessageCodec.decode(bytes);
+
+        assertEquals(response.getNodeStatus(), decoded.getNodeStatus());
+        assertEquals(Phase.STABILIZATION, decoded.getPhase());
+        assertEquals(3, decoded.getDepth());
+        NodeMetrics read = decoded.getMetrics();
+        double step = 1.0 / 0xFFFF;
+        assertEquals(0.42, read.getBatteryLevel(), step);
+        assertEquals(0.0, read.getProcessingCapacity(), step);
+        assertEquals(0.999, read.getNetworkStrength(), step);
+        assertEquals(1.0, read.getReliability(), step);
+        assertTrue(decoded.getPayloadSlots().isEmpty());
+
+        Message viaPayload = new Message("node-a", "node-b", MessageType.HEARTBEAT_RESPONSE);
+        viaPayload.setPhase(Phase.STABILIZATION);
+        viaPayload.setDepth(3);
+        viaPayload.setMetrics(metrics);
+        int payloadSize = MessageCodec.encode(viaPayload).length;
+        System.out.printf("HEARTBEAT_RESPONSE: payload entries %d bytes, status block %d bytes%n",
+            payloadSize, bytes.length);
+        assertTrue(bytes.length + 40 < payloadSize);
+    }
+
+    @Test
+    public void testPeekNodeStatusWithoutDecoding() throws IOException {
+        NodeStatus status = new NodeStatus(Phase.REGULAR, 70000, new NodeMetrics());
+        Message compactId = new Message("node-a", "node-b", MessageType.HEARTBEAT_RESPONSE);
+        compactId.setNodeStatus(status);
+        Message textId = new Message("custom-id", "node-a", "node-b", MessageType.HEARTBEAT_RESPONSE,
+            new int[0], new HashMap<>(), 0);
+        textId.setNodeStatus(status);
+
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+        buffer.position(7);
+        MessageCodec.encode(compactId, buffer);
+        int second = buffer.position();
+        MessageCodec.encode(textId, buffer);
+        buffer.flip().position(7);
+
+        assertEquals(status, MessageCodec.peekNodeStatus(buffer));
+        assertEquals(7, buffer.position());
+        assertEquals(65535, MessageCodec.peekNodeStatus(buffer).getDepth());
+        buffer.position(second);
+        assertEquals(status, MessageCodec.peekNodeStatus(buffer));
+        assertNull(MessageCodec.peekNodeStatus(ByteBuffer.wrap(
+            MessageCodec.encode(new Message("node-a", "node-b", MessageType.DATA)))));
+    }
+
+    @Test
+    public void testRejectsUnknownVersion() {
+        byte[] bytes = MessageCodec.encode(new Message("node-a", "node-b", MessageType.DATA));
+        bytes[0] = (byte) (MessageCodec.VERSION + 1);
+        assertThrows(IOException.class, () -> MessageCodec.decode(bytes));
+    }
+
+    @Test
+    public void testRejectsTruncatedInput() {
+        Message message = new Message("node-a", "node-b", MessageType.DATA);
+        message.setPayload("body", "some payload");
+        byte[] bytes = MessageCodec.encode(message);
+        assertThrows(IOException.class, () -> MessageCodec.decode(Arrays.copyOf(bytes, bytes.length - 3)));
+    }
+
+    @Test
+    public void testSizeComparedToJavaSerialization() throws IOException {
+        Message heartbeat = new Message("node-a", "node-b", MessageType.HEARTBEAT_RESPONSE);
+        heartbeat.setPhase(Phase.DISCOVERY);
+        heartbeat.setDepth(3);
+        heartbeat.setMetrics(new NodeMetrics());
+        heartbeat.addToRoute("node-b");
+
+        Message data = new Message("node-a", "node-f", MessageType.DATA);
+        data.setPayload("body", "sensor reading 21.5C");
+        for (String hop : Arrays.asList("node-a", "node-c", "node-d", "node-e")) {
+            data.addToRoute(hop);
+        }
+
+        for (Message message : Arrays.asList(heartbeat, data)) {
+            int serialized = javaSerializedSize(message);
+            int binary = MessageCodec.encode(message).length;
+            System.out.printf("%s: java serialization %d bytes, binary codec %d bytes (%.1f%%)%n",
+                message.getType(), serialized, binary, 100.0 * binary / serialized);
+            assertTrue(binary * 4 < serialized,
+                "binary codec should be under a quarter of the serialized size");
+        }
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder(text.length() * times);
+        for (int i = 0; i < times; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+
+    private static int javaSerializedSize(Message message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        return bytes.size();
+    }
+
+    private static void assertSameMessage(Message expected, Message actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getSourceNodeId(), actual.getSourceNodeId());
+        assertEquals(expected.getDestinationNodeId(), actual.getDestinationNodeId());
+        assertEquals(expected.getHopCount(), actual.getHopCount());
+        List<String> route = expected.getRouteHistory();
+        assertEquals(route, actual.getRouteHistory());
+        assertEquals(expected.getPayloadSlots().keySet(), actual.getPayloadSlots().keySet());
+        for (String key : expected.getPayloadSlots().keySet()) {
+            assertEquals(expected.getPayloadJson(key), actual.getPayloadJson(key), key);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.vrouting.network.socket.message;
+
+import com.vrouting.network.socket.concurrent.WaitStrategy;
+import com.vrouting.network.socket.config.IngressDropPolicy;
+import com.vrouting.network.socket.config.IngressQueueType;
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.core.Node;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class MessageHandlerImplTest {
+    private static final int CAPACITY = 4;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch firstTaken = new CountDownLatch(1);
+    private final List<Message> processed = new CopyOnWriteArrayList<>();
+    private MessageHandlerImpl handler;
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        if (handler != null) {
+            handler.stop();
+        }
+    }
+
+    @Test
+    public void testDropsOldestDataButKeepsControlMessages() throws Exception {
+        startBlockedHandler(IngressDropPolicy.DROP_OLDEST_DATA);
+        AtomicInteger resumed = new AtomicInteger();
+        handler.addCapacityListener(resumed::incrementAndGet);
+        Message[] data = fillDataQueue();
+
+        Message overflow = data("overflow");
+        assertSame(overflow, handler.handleMessage(overflow));
+        Message heartbeat = new Message("peer", "local", MessageType.HEARTBEAT_DISCOVERY);
+        assertSame(heartbeat, handler.handleMessage(heartbeat));
+
+        assertEquals(1, handler.getDroppedCount());
+        assertEquals(CAPACITY, handler.getDataQueueSize());
+        assertEquals(1, handler.getControlQueueSize());
+        assertFalse(handler.isAcceptingMessages());
+
+        release.countDown();
+        waitForProcessed(CAPACITY + 2);
+        assertEquals(heartbeat, processed.get(1), "control plane is served before queued data");
+        assertFalse(processed.contains(data[0]), "oldest data message is evicted");
+        assertEquals(overflow, processed.get(processed.size() - 1));
+        assertTrue(handler.isAcceptingMessages());
+        assertEquals(1, resumed.get());
+    }
+
+    @Test
+    public void testRejectPolicyRefusesNewData() throws Exception {
+        startBlockedHandler(IngressDropPolicy.REJECT);
+        Message[] data = fillDataQueue();
+
+        assertNull(handler.handleMessage(data("overflow")));
+        assertEquals(1, handler.getRejectedCount());
+        assertEquals(0, handler.getDroppedCount());
+
+        release.countDown();
+        waitForProcessed(CAPACITY + 1);
+        assertEquals(data[0], processed.get(1));
+    }
+
+    @Test
+    public void testAwaitCapacityBlocksUntilDrained() throws Exception {
+        startBlockedHandler(IngressDropPolicy.REJECT);
+        fillDataQueue();
+
+        CountDownLatch unblocked = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            try {
+                handler.awaitCapacity();
+                unblocked.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        reader.start();
+        assertFalse(unblocked.await(200, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertTrue(unblocked.await(5, TimeUnit.SECONDS));
+        reader.join();
+    }
+
+    @Test
+    public void testLanesKeepPerSourceOrderAndRunSourcesInParallel() throws Exception {
+        NetworkConfig config = new NetworkConfig.Builder().ingressLanes(4).build();
+        Map<String, List<Integer>> sequences = new ConcurrentHashMap<>();
+        CountDownLatch otherSourceProcessed = new CountDownLatch(1);
+        Node node = mock(Node.class);
+        when(node.getConfig()).thenReturn(config);
+        when(node.getNodeId()).thenReturn("local");
+        when(node.processMessage(any())).thenAnswer(invocation -> {
+            Message message = invocation.getArgument(0);
+            if ("slow-peer".equals(message.getSourceNodeId())) {
+                release.await();
+            } else {
+                otherSourceProcessed.countDown();
+            }
+            sequences.computeIfAbsent(message.getSourceNodeId(), k -> new CopyOnWriteArrayList<>())
+                .add(message.getPayload("seq", Integer.class));
+            return null;
+        });
+        handler = new MessageHandlerImpl(node);
+        handler.start();
+        assertEquals(4, handler.getLaneCount());
+
+        handler.handleMessage(sequenced("slow-peer", 0));
+        int sources = 16;
+        int perSource = 200;
+        for (int seq = 0; seq < perSource; seq++) {
+            for (int source = 0; source < sources; source++) {
+                handler.handleMessage(sequenced("peer-" + source, seq));
+            }
+        }
+        assertTrue(otherSourceProcessed.await(5, TimeUnit.SECONDS),
+            "peers on other lanes are not held up by a blocked lane");
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (sequences.values().stream().mapToInt(List::size).sum() < sources * perSource + 1
+               && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        for (int source = 0; source < sources; source++) {
+            List<Integer> received = sequences.get("peer-" + source);
+            assertEquals(perSource, received.size());
+            for (int seq = 0; seq < perSource; seq++) {
+                assertEquals(seq, received.get(seq).intValue(), "per-source order is preserved");
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WaitStrategy.class)
+    public void testRingBufferLaneRejectsWhenFullAndResumes(WaitStrategy strategy) throws Exception {
+        startBlockedHandler(new NetworkConfig.Builder()
+            .ingressQueueCapacity(CAPACITY)
+            .ingressQueueType(IngressQueueType.RING_BUFFER)
+            .ingressWaitStrategy(strategy)
+            .build());
+        AtomicInteger resumed = new AtomicInteger();
+        handler.addCapacityListener(resumed::incrementAndGet);
+        fillDataQueue();
+
+        assertNull(handler.handleMessage(data("overflow")));
+        assertEquals(1, handler.getRejectedCount());
+        Message heartbeat = new Message("peer", "local", MessageType.HEARTBEAT_DISCOVERY);
+        assertSame(heartbeat, handler.handleMessage(heartbeat), "control plane is never refused");
+
+        release.countDown();
+        waitForProcessed(CAPACITY + 2);
+        assertEquals(heartbeat, processed.get(1));
+        assertTrue(handler.isAcceptingMessages());
+        assertEquals(1, resumed.get());
+    }
+
+    /**
+     * Starts a handler whose worker blocks on the first message it takes, so the tests
+     * control exactly what is queued.
+     */
+    private void startBlockedHandler(IngressDropPolicy policy) throws InterruptedException {
+        startBlockedHandler(new NetworkConfig.Builder()
+            .ingressQueueCapacity(CAPACITY)
+            .ingressDropPolicy(policy)
+            .build());
+    }
+
+    private void startBlockedHandler(NetworkConfig config) throws InterruptedException {
+        Node node = mock(Node.class);
+        when(node.getConfig()).thenReturn(config);
+        when(node.getNodeId()).thenReturn("local");
+        when(node.processMessage(any())).thenAnswer(invocation -> {
+            processed.add(invocation.getArgument(0));
+            firstTaken.countDown();
+            release.await();
+            return null;
+        });
+        handler = new MessageHandlerImpl(node);
+        handler.start();
+        handler.handleMessage(data("first"));
+        assertTrue(firstTaken.await(5, TimeUnit.SECONDS));
+    }
+
+    private Message[] fillDataQueue() {
+        Message[] data = new Message[CAPACITY];
+        for (int i = 0; i < CAPACITY; i++) {
+            data[i] = data("data-" + i);
+            assertTrue(handler.isAcceptingMessages());
+            assertSame(data[i], handler.handleMessage(data[i]));
+        }
+        assertFalse(handler.isAcceptingMessages());
+        return data;
+    }
+
+    private void waitForProcessed(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (processed.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, processed.size());
+    }
+
+    private static Message sequenced(String source, int seq) {
+        Message message = new Message(source, "local", MessageType.HEARTBEAT_UPDATE);
+        message.setPayload("seq", seq);
+        return message;
+    }
+
+    private static Message data(String body) {
+        Message message = new Message("peer", "local", MessageType.DATA);
+        message.setPayload("body", body);
+        return message;
+    }
+}
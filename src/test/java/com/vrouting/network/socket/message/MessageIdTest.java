@@ -0,0 +1,99 @@
+package com.vrouting.network.socket.message;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageIdTest {
+
+    @Test
+    public void testIdsAreUniqueAcrossThreads() throws InterruptedException {
+        int threads = 4;
+        int perThread = 5000;
+        Set<MessageId> seen = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    MessageId id = MessageId.next();
+                    assertEquals(MessageId.localEpoch(), id.getEpoch());
+                    seen.add(id);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(threads * perThread, seen.size());
+    }
+
+    @Test
+    public void testSequenceIncreasesAcrossThreadsInCreationOrder() throws InterruptedException {
+        MessageId first = MessageId.next();
+        MessageId[] other = new MessageId[1];
+        Thread thread = new Thread(() -> other[0] = MessageId.next());
+        thread.start();
+        thread.join();
+        MessageId last = MessageId.next();
+
+        assertTrue(other[0].getSequence() > first.getSequence());
+        assertTrue(last.getSequence() > other[0].getSequence());
+    }
+
+    @Test
+    public void testSequenceIncreasesWithinThread() {
+        MessageId previous = MessageId.next();
+        for (int i = 0; i < 2048; i++) {
+            MessageId id = MessageId.next();
+            assertTrue(id.getSequence() > previous.getSequence());
+            previous = id;
+        }
+    }
+
+    @Test
+    public void testStringFormRoundTrips() {
+        MessageId id = MessageId.next();
+        MessageId parsed = MessageId.parse(id.toString());
+        assertTrue(parsed.isCompact());
+        assertEquals(id, parsed);
+        assertEquals(id.hashCode(), parsed.hashCode());
+
+        String uuid = UUID.randomUUID().toString();
+        assertEquals(uuid, MessageId.parse(uuid).toString());
+
+        MessageId custom = MessageId.parse("custom-id");
+        assertFalse(custom.isCompact());
+        assertEquals("custom-id", custom.toString());
+        assertEquals(custom, MessageId.parse("custom-id"));
+        assertNotEquals(custom, id);
+    }
+
+    @Test
+    public void testCodecKeepsCompactId() throws Exception {
+        Message message = new Message("node-a", "node-b", MessageType.DATA);
+        Message decoded = MessageCodec.decode(MessageCodec.encode(message));
+        assertEquals(message.getMessageId(), decoded.getMessageId());
+        assertEquals(message.getId(), decoded.getId());
+
+        Set<MessageId> ids = new HashSet<>();
+        ids.add(message.getMessageId());
+        assertTrue(ids.contains(decoded.getMessageId()));
+    }
+}
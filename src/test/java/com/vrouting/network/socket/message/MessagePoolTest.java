@@ -0,0 +1,75 @@
+package com.vrouting.network.socket.message;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessagePoolTest {
+
+    @Test
+    public void testReleasedMessagesAreReused() {
+        MessagePool pool = new MessagePool(4, false);
+        Message first = pool.acquire("node-a", "node-b", MessageType.DATA);
+        first.addToRoute("node-a");
+        first.setPayload("body", "one");
+        MessageId firstId = first.getMessageId();
+        first.release();
+
+        Message second = pool.acquire("node-c", "node-d", MessageType.ACK);
+
+        assertSame(first, second);
+        assertNotEquals(firstId, second.getMessageId());
+        assertEquals("node-c", second.getSourceNodeId());
+        assertEquals(MessageType.ACK, second.getType());
+        assertEquals(0, second.getRouteLength());
+        assertEquals(0, second.getHopCount());
+        assertNull(second.getPayload("body", String.class));
+        assertEquals(1, pool.getAllocatedCount());
+        assertEquals(1, pool.getReusedCount());
+    }
+
+    @Test
+    public void testPooledCopyLeavesOriginalIntact() {
+        MessagePool pool = new MessagePool(4, false);
+        Message original = new Message("node-a", null, MessageType.DATA);
+        original.addToRoute("node-a");
+        original.setPayload("body", "reading");
+
+        Message copy = pool.copyOf(original);
+        copy.setDestinationNodeId("node-b");
+        assertEquals(original.getRouteHistory(), copy.getRouteHistory());
+        copy.release();
+
+        assertEquals(Arrays.asList("node-a"), original.getRouteHistory());
+        assertEquals("reading", original.getPayload("body", String.class));
+        assertFalse(original.isPooled());
+        original.release();
+        assertEquals("node-a", original.getSourceNodeId());
+    }
+
+    @Test
+    public void testUseAfterReleaseFails() {
+        MessagePool pool = new MessagePool(4, false);
+        Message message = pool.acquire("node-a", "node-b", MessageType.DATA);
+        message.release();
+
+        assertThrows(IllegalStateException.class, message::getDestinationNodeId);
+        assertThrows(IllegalStateException.class, () -> message.addToRoute("node-x"));
+        assertThrows(IllegalStateException.class, message::release);
+    }
+
+    @Test
+    public void testDebugModeQuarantinesAndReportsReleaseSite() {
+        MessagePool pool = new MessagePool(4, true);
+        Message message = pool.acquire("node-a", "node-b", MessageType.DATA);
+        message.release();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+            () -> message.setPayload("body", "late"));
+        assertNotNull(e.getCause());
+        assertNotSame(message, pool.acquire("node-a", "node-b", MessageType.DATA));
+        assertEquals(0, pool.getFreeCount());
+    }
+}
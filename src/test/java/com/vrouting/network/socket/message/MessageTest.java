@@ -0,0 +1,140 @@
+package com.vrouting.network.socket.message;
+
+import com.vrouting.network.socket.core.NodeIdRegistry;
+import com.vrouting.network.socket.core.NodeMetrics;
+import com.vrouting.network.socket.core.Phase;
+import com.vrouting.network.socket.core.RoutingManager.Route;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageTest {
+
+    @Test
+    public void testTypedSlotsAreStoredNatively() {
+        Message message = new Message("node-a", "node-b", MessageType.HEARTBEAT_RESPONSE);
+        message.setDepth(4);
+        message.setPhase(Phase.REGULAR);
+        message.setPayload("count", 7);
+        message.setPayload("ratio", 0.5f);
+        message.setPayload("name", "relay");
+
+        Map<String, Object> slots = message.getPayloadSlots();
+        assertEquals(4L, slots.get("depth"));
+        assertSame(Phase.REGULAR, slots.get("phase"));
+        assertEquals(7L, slots.get("count"));
+        assertEquals(0.5, slots.get("ratio"));
+        assertEquals("relay", slots.get("name"));
+
+        assertEquals(4, message.getDepth());
+        assertEquals(Phase.REGULAR, message.getPhase());
+        assertEquals(7, message.getPayload("count", Integer.class));
+        assertEquals(7L, message.getPayload("count", Long.class));
+        assertEquals(7.0, message.getPayload("count", Double.class));
+        assertEquals("7", message.getPayload("count", String.class));
+    }
+
+    @Test
+    public void testMutableValuesAreCopiedInAndOut() {
+        NodeMetrics metrics = new NodeMetrics();
+        metrics.setBatteryLevel(0.3);
+        Route route = new Route("node-z", Arrays.asList("node-b", "node-z"));
+        Message message = new Message("node-a", "node-b", MessageType.ROUTE_REPLY);
+        message.setMetrics(metrics);
+        message.setPayload("route", route);
+
+        metrics.setBatteryLevel(0.9);
+        route.setLatency(50);
+        assertEquals(0.3, message.getMetrics().getBatteryLevel());
+        assertEquals(0.0, message.getPayload("route", Route.class).getLatency());
+
+        message.getMetrics().setBatteryLevel(0.1);
+        assertEquals(0.3, message.getMetrics().getBatteryLevel());
+        assertEquals(route.getId(), message.getPayload("route", Route.class).getId());
+    }
+
+    @Test
+    public void testGenericValuesAreDecodedOnceUntilRewritten() {
+        Map<String, Integer> weights = new HashMap<>();
+        weights.put("x", 1);
+        Message message = new Message("node-a", "node-b", MessageType.DATA);
+        message.setPayload("weights", weights);
+
+        Map<?, ?> first = message.getPayload("weights", Map.class);
+        assertSame(first, message.getPayload("weights", Map.class), "decoded value is memoized");
+        assertEquals("{\"x\":1}", message.getPayloadJson("weights"));
+
+        message.setPayload("weights", Arrays.asList(1, 2));
+        List<?> rewritten = message.getPayload("weights", List.class);
+        assertEquals(2, rewritten.size(), "writing the slot invalidates the cached value");
+    }
+
+    @Test
+    public void testMissingAndNullPayload() {
+        Message message = new Message("node-a", "node-b", MessageType.DATA);
+        message.setPayload("empty", null);
+        assertNull(message.getPayload("empty", String.class));
+        assertNull(message.getPayload("absent", String.class));
+        assertEquals("null", message.getPayloadJson("empty"));
+        assertNull(message.getPayloadJson("absent"));
+    }
+
+    @Test
+    public void testCopiesShareBodyUntilWritten() {
+        Message original = new Message("node-a", null, MessageType.DATA);
+        original.setPayload("body", "reading");
+        original.addToRoute("node-a");
+
+        Message first = original.copy();
+        Message second = original.copy();
+        first.setDestinationNodeId("node-b");
+        second.setDestinationNodeId("node-c");
+
+        assertNotEquals(original.getId(), first.getId());
+        assertSame(original.getPayloadSlots(), first.getPayloadSlots());
+        assertSame(original.getPayloadSlots(), second.getPayloadSlots());
+        assertNull(original.getDestinationNodeId());
+
+        first.addToRoute("node-b");
+        first.setPayload("body", "changed");
+
+        assertEquals(Arrays.asList("node-a", "node-b"), first.getRouteHistory());
+        assertEquals(Arrays.asList("node-a"), original.getRouteHistory());
+        assertEquals(Arrays.asList("node-a"), second.getRouteHistory());
+        assertEquals("changed", first.getPayload("body", String.class));
+        assertEquals("reading", original.getPayload("body", String.class));
+        assertEquals("reading", second.getPayload("body", String.class));
+
+        original.addToRoute("node-x");
+        assertEquals(Arrays.asList("node-a"), second.getRouteHistory());
+        assertEquals(1, second.getHopCount());
+    }
+
+    @Test
+    public void testVisitedChecksMatchRoute() throws Exception {
+        Message message = new Message("node-a", "node-z", MessageType.DATA);
+        NodeIdRegistry registry = NodeIdRegistry.global();
+        int[] hops = new int[message.getMaxHops()];
+        for (int i = 0; i < hops.length; i++) {
+            hops[i] = registry.intern("visited-" + i);
+            message.addToRoute(hops[i]);
+        }
+        Message decoded = MessageCodec.decode(MessageCodec.encode(message));
+        Message copy = message.copy();
+
+        for (Message m : Arrays.asList(message, decoded, copy)) {
+            for (int hop : hops) {
+                assertTrue(m.hasVisited(hop), "hop " + hop);
+            }
+            for (int i = 0; i < 2000; i++) {
+                assertFalse(m.hasVisited(registry.intern("unvisited-" + i)));
+            }
+        }
+        assertFalse(new Message("node-a", "node-b", MessageType.DATA).hasVisited(hops[0]));
+    }
+}
@@ -0,0 +1,153 @@
+package com.vrouting.network.socket.stream;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageCodec;
+import com.vrouting.network.socket.message.MessageType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamManagerTest {
+    private static final int CHUNK_SIZE = 1024;
+    private static final int WINDOW = 8;
+
+    private ExecutorService linkToA;
+    private ExecutorService linkToB;
+    private StreamManager a;
+    private StreamManager b;
+    private volatile Predicate<Message> dropToB;
+    private final AtomicLong highestSeqToB = new AtomicLong(-1);
+
+    @BeforeEach
+    public void setUp() {
+        NetworkConfig config = new NetworkConfig.Builder()
+            .streamChunkSize(CHUNK_SIZE)
+            .streamWindow(WINDOW)
+            .streamRetransmitTimeout(50)
+            .build();
+        linkToA = Executors.newSingleThreadExecutor();
+        linkToB = Executors.newSingleThreadExecutor();
+        dropToB = m -> false;
+        a = new StreamManager("node-a", config, m -> deliver(linkToB, b, m, true));
+        b = new StreamManager("node-b", config, m -> deliver(linkToA, a, m, false));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        a.close();
+        b.close();
+        linkToA.shutdownNow();
+        linkToB.shutdownNow();
+    }
+
+    @Test
+    public void testReassemblesAcrossLostFragments() throws Exception {
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        dropToB = m -> {
+            long seq = m.getPayload(StreamManager.SEQ, Long.class);
+            return seq % 5 == 2 && seen.add(seq);
+        };
+        CompletableFuture<FragmentInputStream> incoming = new CompletableFuture<>();
+        b.setStreamListener((source, stream) -> incoming.complete(stream));
+        byte[] data = new byte[200 * CHUNK_SIZE + 123];
+        new Random(7).nextBytes(data);
+
+        CompletableFuture<byte[]> received = CompletableFuture.supplyAsync(() -> {
+            try {
+                return readAll(incoming.get(5, TimeUnit.SECONDS));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try (FragmentOutputStream out = a.open("node-b")) {
+            out.write(data, 0, 5000);
+            out.write(data, 5000, data.length - 5000);
+        }
+
+        assertArrayEquals(data, received.get(5, TimeUnit.SECONDS));
+        assertFalse(seen.isEmpty());
+        assertEquals(0, a.getOpenOutgoingCount());
+        assertEquals(0, b.getOpenIncomingCount());
+    }
+
+    @Test
+    public void testWriterBlocksWhileReaderLagsBehind() throws Exception {
+        CompletableFuture<FragmentInputStream> incoming = new CompletableFuture<>();
+        b.setStreamListener((source, stream) -> incoming.complete(stream));
+        byte[] data = new byte[4 * WINDOW * CHUNK_SIZE];
+        new Random(11).nextBytes(data);
+
+        CompletableFuture<Void> written = CompletableFuture.runAsync(() -> {
+            try (FragmentOutputStream out = a.open("node-b")) {
+                out.write(data);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        FragmentInputStream in = incoming.get(5, TimeUnit.SECONDS);
+        Thread.sleep(300);
+
+        assertFalse(written.isDone());
+        assertTrue(highestSeqToB.get() < WINDOW, "sent past the receiver's window: " + highestSeqToB.get());
+
+        assertArrayEquals(data, readAll(in));
+        written.get(5, TimeUnit.SECONDS);
+        assertTrue(in.isComplete());
+    }
+
+    @Test
+    public void testStreamsAreIgnoredWithoutListener() throws Exception {
+        FragmentOutputStream out = a.open("node-b");
+        out.write(new byte[10]);
+        IOException failure = assertThrows(IOException.class, out::close);
+
+        assertTrue(failure.getMessage().contains("not acknowledged"));
+        assertEquals(0, b.getOpenIncomingCount());
+        assertEquals(0, a.getOpenOutgoingCount());
+    }
+
+    private void deliver(ExecutorService link, StreamManager target, Message message, boolean towardsB) {
+        if (towardsB) {
+            if (dropToB.test(message)) {
+                return;
+            }
+            if (message.getType() == MessageType.DATA_FRAGMENT) {
+                highestSeqToB.accumulateAndGet(message.getPayload(StreamManager.SEQ, Long.class), Math::max);
+            }
+        }
+        byte[] frame = MessageCodec.encode(message);
+        link.execute(() -> {
+            try {
+                target.handle(MessageCodec.decode(frame));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[700];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
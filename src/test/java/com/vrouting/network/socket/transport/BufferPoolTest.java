@@ -0,0 +1,72 @@
+package com.vrouting.network.socket.transport;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testReleasedBuffersAreReused() {
+        BufferPool pool = new BufferPool(128, 4, false);
+        PooledBuffer first = pool.acquire();
+        first.buffer().putInt(42);
+        first.release();
+
+        PooledBuffer second = pool.acquire();
+        assertEquals(1, pool.getAllocatedCount());
+        assertEquals(0, second.buffer().position(), "reused buffers are cleared");
+        assertEquals(128, second.buffer().capacity());
+        second.release();
+        assertThrows(IllegalStateException.class, second::release);
+        assertThrows(IllegalStateException.class, second::buffer);
+    }
+
+    @Test
+    public void testRetainsAtMostMaxPooledIdleBuffers() {
+        BufferPool pool = new BufferPool(128, 2, false);
+        PooledBuffer[] buffers = new PooledBuffer[4];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = pool.acquire();
+        }
+        for (PooledBuffer buffer : buffers) {
+            buffer.release();
+        }
+        assertEquals(4, pool.getAllocatedCount());
+        assertEquals(2, pool.getIdleCount());
+
+        PooledBuffer oversized = pool.acquire(1024);
+        assertFalse(oversized.isPooled());
+        oversized.release();
+        assertEquals(2, pool.getIdleCount());
+    }
+
+    @Test
+    public void testLeakDetectionReportsUnreleasedBuffer() throws InterruptedException {
+        BufferPool pool = new BufferPool(128, 4, true);
+        pool.acquire().release();
+        leakOne(pool);
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (pool.getLeakCount() == 0 && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(1, pool.getLeakCount());
+        // The leaked buffer went back to the pool instead of being lost
+        assertEquals(pool.getAllocatedCount(), pool.getIdleCount());
+    }
+
+    @Test
+    public void testLeakCountStaysZeroWithoutDetection() throws InterruptedException {
+        BufferPool pool = new BufferPool(128, 4, false);
+        leakOne(pool);
+        System.gc();
+        Thread.sleep(20);
+        assertEquals(0, pool.getLeakCount());
+    }
+
+    private static void leakOne(BufferPool pool) {
+        pool.acquire().buffer().putInt(7);
+    }
+}
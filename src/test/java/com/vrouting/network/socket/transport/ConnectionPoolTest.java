@@ -0,0 +1,362 @@
+package com.vrouting.network.socket.transport;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageCodec;
+import com.vrouting.network.socket.message.MessagePool;
+import com.vrouting.network.socket.message.MessageType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest {
+    private final BufferPool bufferPool = new BufferPool(1024, 64, false);
+    private final BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+    private final List<Socket> accepted = new CopyOnWriteArrayList<>();
+    private final AtomicInteger closedConnections = new AtomicInteger();
+    private ServerSocket server;
+    private ExecutorService peerThreads;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        peerThreads = new NetworkConfig.Builder().build().getExecutorProvider().newBlockingExecutor("pool-test", 16);
+        peerThreads.execute(this::acceptLoop);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        server.close();
+        for (Socket socket : accepted) {
+            socket.close();
+        }
+        peerThreads.shutdownNow();
+    }
+
+    @Test
+    public void testReusesOneConnectionPerPeer() throws Exception {
+        pool = newPool(new NetworkConfig.Builder().writeCoalesceWindow(0).build(), streamFactory());
+
+        for (int i = 0; i < 20; i++) {
+            pool.send(peer(), new Message("node-a", "node-b", MessageType.DATA));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertNotNull(received.poll(5, TimeUnit.SECONDS), "message " + i);
+        }
+
+        assertEquals(1, pool.getConnectCount());
+        assertEquals(1, pool.getConnectionCount());
+        assertEquals(1, accepted.size());
+        awaitTrue(() -> pool.getSentMessageCount() == 20, "every message counted as sent");
+    }
+
+    @Test
+    public void testReconnectsAfterPeerClosesConnection() throws Exception {
+        pool = newPool(new NetworkConfig.Builder().writeCoalesceWindow(0).build(), streamFactory());
+        pool.send(peer(), new Message("node-a", "node-b", MessageType.DATA));
+        assertNotNull(received.poll(5, TimeUnit.SECONDS));
+
+        accepted.get(0).close();
+        // The outbound reader notices the close and marks the connection unhealthy
+        Thread.sleep(200);
+        pool.send(peer(), new Message("node-a", "node-b", MessageType.DATA));
+
+        assertNotNull(received.poll(5, TimeUnit.SECONDS), "delivered on a new connection");
+        assertEquals(2, pool.getConnectCount());
+        assertEquals(2, accepted.size());
+        assertEquals(0, pool.getFailedSendCount());
+    }
+
+    @Test
+    public void testRetriesWithExponentialBackoffUpToMaxRetries() throws Exception {
+        int maxRetries = 3;
+        List<Long> attempts = new CopyOnWriteArrayList<>();
+        InetSocketAddress closedPort = closedPort();
+        pool = newPool(new NetworkConfig.Builder().writeCoalesceWindow(0).maxRetries(maxRetries).build(), address -> {
+            attempts.add(System.nanoTime());
+            throw new IOException("Connection refused");
+        });
+
+        pool.send(closedPort, new Message("node-a", "node-b", MessageType.DATA));
+        awaitTrue(() -> pool.getFailedSendCount() == 1, "message dropped after its retries");
+
+        assertEquals(maxRetries + 1, attempts.size());
+        for (int attempt = 1; attempt < attempts.size(); attempt++) {
+            long gapMillis = TimeUnit.NANOSECONDS.toMillis(attempts.get(attempt) - attempts.get(attempt - 1));
+            long expected = ConnectionPool.RETRY_BASE_DELAY << (attempt - 1);
+            assertTrue(gapMillis >= expected - 5, "attempt " + attempt + " after " + gapMillis + " ms, expected " + expected);
+        }
+        assertEquals(0, pool.getSentMessageCount());
+        assertEquals(bufferPool.getAllocatedCount(), bufferPool.getIdleCount(), "dropped batch returned to the pool");
+    }
+
+    @Test
+    public void testHealthCheckEvictsOnlyIdleConnections() throws Exception {
+        pool = newPool(new NetworkConfig.Builder().writeCoalesceWindow(0).idleConnectionTimeout(100).build(), streamFactory());
+        pool.send(peer(), new Message("node-a", "node-b", MessageType.DATA));
+        assertNotNull(received.poll(5, TimeUnit.SECONDS));
+
+        pool.checkConnections();
+        assertEquals(1, pool.getConnectionCount(), "recently used connection kept");
+
+        Thread.sleep(150);
+        pool.checkConnections();
+        assertEquals(0, pool.getConnectionCount(), "idle connection evicted");
+        awaitTrue(() -> closedConnections.get() == 1, "peer sees the connection close");
+    }
+
+    @Test
+    public void testReleasesPooledMessageAndFramesWhenSendFails() throws Exception {
+        MessagePool messages = new MessagePool(4, false);
+        AtomicInteger connects = new AtomicInteger();
+        pool = newPool(new NetworkConfig.Builder().writeCoalesceWindow(0).maxRetries(0).build(), address -> {
+            connects.incrementAndGet();
+            throw new IOException("Connection refused");
+        });
+
+        Message message = messages.acquire("node-a", "node-b", MessageType.DATA);
+        message.setPayload("text", "undeliverable");
+        pool.send(closedPort(), message);
+        assertEquals(1, messages.getFreeCount(), "pooled message released once encoded");
+
+        awaitTrue(() -> pool.getFailedSendCount() == 1, "send failed");
+        assertEquals(1, connects.get());
+        assertEquals(bufferPool.getAllocatedCount(), bufferPool.getIdleCount(), "frames returned to the pool");
+    }
+
+    @Test
+    public void testCoalescesSendsWithinWindow() throws Exception {
+        long window = 50;
+        RecordingConnection connection = new RecordingConnection();
+        pool = newPool(new NetworkConfig.Builder().writeCoalesceWindow(window).build(), address -> connection);
+
+        long start = System.nanoTime();
+        List<Message> sent = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Message message = new Message("node-a", "node-b", MessageType.DATA);
+            sent.add(message);
+            pool.send(peer(), message);
+        }
+        // The first send connects on a pool thread and the batch waits for the window
+        assertTrue(connection.writes.isEmpty());
+
+        List<String> batch = connection.writes.poll(5, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(ids(sent), batch, "one write carrying every frame in order");
+        assertTrue(elapsedMillis >= window - 5, "flushed after " + elapsedMillis + " ms");
+        assertTrue(elapsedMillis < window + 1000, "flushed after " + elapsedMillis + " ms");
+        assertNull(connection.writes.poll(2 * window, TimeUnit.MILLISECONDS));
+        assertEquals(1, pool.getFlushCount());
+        assertEquals(5, pool.getSentMessageCount());
+    }
+
+    @Test
+    public void testFlushesEarlyOnceBatchReachesByteBudget() throws Exception {
+        RecordingConnection connection = new RecordingConnection();
+        pool = newPool(new NetworkConfig.Builder().writeCoalesceWindow(10000).writeCoalesceBytes(200).build(),
+            address -> connection);
+
+        List<Message> sent = new ArrayList<>();
+        while (connection.writes.isEmpty() && sent.size() < 100) {
+            Message message = new Message("node-a", "node-b", MessageType.DATA);
+            message.setPayload("text", "0123456789");
+            sent.add(message);
+            pool.send(peer(), message);
+            Thread.sleep(1);
+        }
+        List<String> batch = connection.writes.poll(5, TimeUnit.SECONDS);
+        assertNotNull(batch, "flushed long before the 10 s window");
+        assertTrue(batch.size() > 1);
+        assertEquals(ids(sent).subList(0, batch.size()), batch);
+    }
+
+    @Test
+    public void testImmediateFlushTypesSkipTheWindow() throws Exception {
+        RecordingConnection connection = new RecordingConnection();
+        pool = newPool(new NetworkConfig.Builder().writeCoalesceWindow(10000).build(), address -> connection);
+
+        Message request = new Message("node-a", "node-b", MessageType.ROUTE_REQUEST);
+        pool.send(peer(), request);
+        assertEquals(ids(Collections.singletonList(request)), connection.writes.poll(5, TimeUnit.SECONDS));
+
+        // Pending frames go out ahead of the immediate one in the same write
+        Message data = new Message("node-a", "node-b", MessageType.DATA);
+        Message reply = new Message("node-a", "node-b", MessageType.ROUTE_REPLY);
+        pool.send(peer(), data);
+        pool.send(peer(), reply);
+        assertEquals(ids(Arrays.asList(data, reply)), connection.writes.poll(5, TimeUnit.SECONDS));
+        assertNull(connection.writes.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testZeroWindowWritesEachMessageAlone() throws Exception {
+        RecordingConnection connection = new RecordingConnection();
+        pool = newPool(new NetworkConfig.Builder().writeCoalesceWindow(0).build(), address -> connection);
+
+        for (int i = 0; i < 3; i++) {
+            Message message = new Message("node-a", "node-b", MessageType.DATA);
+            pool.send(peer(), message);
+            assertEquals(ids(Collections.singletonList(message)), connection.writes.poll(5, TimeUnit.SECONDS));
+        }
+        // Flushes are counted just after the write returns
+        awaitTrue(() -> pool.getFlushCount() == 3, "three flushes");
+    }
+
+    @Test
+    public void testLaterBatchesWaitBehindARetriedBatch() throws Exception {
+        RecordingConnection connection = new RecordingConnection();
+        AtomicInteger connects = new AtomicInteger();
+        pool = newPool(new NetworkConfig.Builder().writeCoalesceWindow(0).build(), address -> {
+            if (connects.getAndIncrement() == 0) {
+                throw new IOException("Connection refused");
+            }
+            return connection;
+        });
+
+        List<Message> sent = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Message message = new Message("node-a", "node-b", MessageType.DATA);
+            sent.add(message);
+            pool.send(peer(), message);
+        }
+
+        List<String> delivered = new ArrayList<>();
+        while (delivered.size() < sent.size()) {
+            List<String> batch = connection.writes.poll(5, TimeUnit.SECONDS);
+            assertNotNull(batch, "every batch delivered after the retry");
+            delivered.addAll(batch);
+        }
+        assertEquals(ids(sent), delivered, "batches reach the peer in the order they were sent");
+        assertEquals(2, connects.get(), "one failed connect, then one shared connection");
+        assertEquals(0, pool.getFailedSendCount());
+    }
+
+    private ConnectionPool newPool(NetworkConfig config, ConnectionFactory factory) {
+        return new ConnectionPool(config, factory, bufferPool);
+    }
+
+    private ConnectionFactory streamFactory() {
+        NetworkConfig config = new NetworkConfig.Builder().build();
+        return address -> StreamPeerConnection.open(address, config, peerThreads);
+    }
+
+    private InetSocketAddress peer() {
+        return (InetSocketAddress) server.getLocalSocketAddress();
+    }
+
+    private static InetSocketAddress closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return (InetSocketAddress) socket.getLocalSocketAddress();
+        }
+    }
+
+    private void acceptLoop() {
+        try {
+            while (true) {
+                Socket socket = server.accept();
+                accepted.add(socket);
+                peerThreads.execute(() -> readFrames(socket));
+            }
+        } catch (IOException e) {
+            // Server closed
+        }
+    }
+
+    private void readFrames(Socket socket) {
+        FrameDecoder decoder = new FrameDecoder(new BufferPool(1024, 4, false));
+        try (ReadableByteChannel in = Channels.newChannel(socket.getInputStream())) {
+            while (true) {
+                received.add(decoder.readFrame(in));
+            }
+        } catch (IOException e) {
+            closedConnections.incrementAndGet();
+        } finally {
+            decoder.release();
+        }
+    }
+
+    private static List<String> ids(List<Message> messages) {
+        List<String> ids = new ArrayList<>();
+        for (Message message : messages) {
+            ids.add(message.getId());
+        }
+        return ids;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String description) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting: " + description);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Records the message ids carried by each write and releases the frames.
+     */
+    private static final class RecordingConnection implements PeerConnection {
+        final BlockingQueue<List<String>> writes = new LinkedBlockingQueue<>();
+
+        @Override
+        public void write(PooledBuffer frames) throws IOException {
+            ByteBuffer buffer = frames.buffer().duplicate();
+            List<String> ids = new ArrayList<>();
+            while (buffer.hasRemaining()) {
+                int length = buffer.getInt();
+                ByteBuffer body = buffer.slice();
+                body.limit(length);
+                ids.add(MessageCodec.decode(body).getId());
+                buffer.position(buffer.position() + length);
+            }
+            frames.release();
+            writes.add(ids);
+        }
+
+        @Override
+        public boolean isHealthy() {
+            return true;
+        }
+
+        @Override
+        public long getLastUsed() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.vrouting.network.socket.transport;
+
+import com.vrouting.network.socket.core.NodeIdRegistry;
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrameDecoderTest {
+    private final BufferPool pool = new BufferPool(256, 16, false);
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, -1, Integer.MIN_VALUE, FrameCodec.MAX_FRAME_SIZE + 1})
+    public void testRejectsInvalidLengthPrefix(int length) {
+        ByteBuffer frame = ByteBuffer.allocate(16);
+        frame.putInt(length).putInt(0).flip();
+        FrameDecoder decoder = new FrameDecoder(pool);
+        try {
+            IOException failure = assertThrows(IOException.class, () -> decoder.readFrame(new ChunkedChannel(frame, 16)));
+            assertTrue(failure.getMessage().contains("Invalid frame length"));
+        } finally {
+            decoder.release();
+        }
+        assertEquals(pool.getAllocatedCount(), pool.getIdleCount());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 7, 64, 1024})
+    public void testDecodesFramesSplitAcrossReads(int chunkSize) throws IOException {
+        List<Message> sent = new ArrayList<>();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < 5; i++) {
+            Message message = new Message("node-a", "node-b", MessageType.DATA);
+            // Frame 3 does not fit in a pooled buffer
+            message.setPayload("text", repeat('a', i == 3 ? 1000 : 20 * i));
+            sent.add(message);
+            FrameCodec.write(Channels.newChannel(stream), message, pool);
+        }
+
+        FrameDecoder decoder = new FrameDecoder(pool);
+        ReadableByteChannel channel = new ChunkedChannel(ByteBuffer.wrap(stream.toByteArray()), chunkSize);
+        try {
+            List<Message> decoded = new ArrayList<>();
+            Message message;
+            while (decoder.readFrom(channel) >= 0) {
+                while ((message = decoder.next()) != null) {
+                    decoded.add(message);
+                }
+            }
+            assertEquals(sent.size(), decoded.size());
+            for (int i = 0; i < sent.size(); i++) {
+                assertEquals(sent.get(i).getId(), decoded.get(i).getId());
+                assertEquals(sent.get(i).getPayload("text", String.class), decoded.get(i).getPayload("text", String.class));
+            }
+            assertThrows(EOFException.class, () -> decoder.readFrame(channel));
+        } finally {
+            decoder.release();
+        }
+        assertEquals(pool.getAllocatedCount(), pool.getIdleCount(), "buffers returned to the pool");
+    }
+
+    @Test
+    public void testSkipsMessageWithUnknownNodeOnceRegistryIsFull() throws IOException {
+        String known = "frame-hop-" + System.nanoTime();
+        String stranger = known.replace("frame-hop-", "frame-new-");
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        List<Message> sent = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Message message = new Message("node-a", "node-b", MessageType.DATA);
+            message.addToRoute(known);
+            sent.add(message);
+            byte[] frame = encode(message);
+            if (i == 1) {
+                // Same length, so only the hop's name changes
+                replace(frame, known.getBytes(StandardCharsets.UTF_8), stranger.getBytes(StandardCharsets.UTF_8));
+            }
+            stream.write(frame);
+        }
+
+        NodeIdRegistry registry = NodeIdRegistry.global();
+        int limit = registry.getRemoteLimit();
+        registry.setRemoteLimit(registry.size());
+        FrameDecoder decoder = new FrameDecoder(pool);
+        try {
+            ReadableByteChannel channel = new ChunkedChannel(ByteBuffer.wrap(stream.toByteArray()), 7);
+            assertEquals(sent.get(0).getId(), decoder.readFrame(channel).getId());
+            assertEquals(sent.get(2).getId(), decoder.readFrame(channel).getId(), "rejected frame skipped");
+            assertEquals(1, decoder.getRejectedCount());
+            assertEquals(NodeIdRegistry.UNKNOWN, registry.lookup(stranger));
+        } finally {
+            registry.setRemoteLimit(limit);
+            decoder.release();
+        }
+    }
+
+    @Test
+    public void testEncodeAndDecodeReturnBuffersToPool() throws IOException {
+        Message small = new Message("node-a", "node-b", MessageType.DATA);
+        small.setPayload("text", "hello");
+        Message large = new Message("node-a", "node-b", MessageType.DATA);
+        large.setPayload("text", repeat('b', 4096));
+
+        PooledBuffer smallFrame = FrameCodec.encode(small, pool);
+        PooledBuffer largeFrame = FrameCodec.encode(large, pool);
+        assertTrue(smallFrame.isPooled());
+        assertFalse(largeFrame.isPooled(), "frames larger than a pooled buffer use a one-off buffer");
+
+        ByteBuffer wire = ByteBuffer.allocate(smallFrame.buffer().remaining() + largeFrame.buffer().remaining());
+        wire.put(smallFrame.buffer()).put(largeFrame.buffer()).flip();
+        smallFrame.release();
+        largeFrame.release();
+        assertEquals(pool.getAllocatedCount(), pool.getIdleCount());
+
+        FrameDecoder decoder = new FrameDecoder(pool);
+        ReadableByteChannel channel = new ChunkedChannel(wire, 100);
+        assertEquals(small.getId(), decoder.readFrame(channel).getId());
+        assertEquals(large.getId(), decoder.readFrame(channel).getId());
+        decoder.release();
+        assertEquals(pool.getAllocatedCount(), pool.getIdleCount());
+        assertThrows(IllegalStateException.class, smallFrame::release);
+    }
+
+    @Test
+    public void testEncodeIntoLeavesBufferUnchangedWhenFrameDoesNotFit() {
+        Message message = new Message("node-a", "node-b", MessageType.DATA);
+        message.setPayload("text", repeat('c', 512));
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        buffer.position(10);
+
+        assertFalse(FrameCodec.encodeInto(message, buffer));
+        assertEquals(10, buffer.position());
+    }
+
+    private byte[] encode(Message message) {
+        PooledBuffer frame = FrameCodec.encode(message, pool);
+        try {
+            byte[] bytes = new byte[frame.buffer().remaining()];
+            frame.buffer().get(bytes);
+            return bytes;
+        } finally {
+            frame.release();
+        }
+    }
+
+    private static void replace(byte[] bytes, byte[] target, byte[] replacement) {
+        outer:
+        for (int i = 0; i + target.length <= bytes.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (bytes[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            System.arraycopy(replacement, 0, bytes, i, replacement.length);
+            return;
+        }
+        fail("bytes not found");
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns at most {@code chunkSize} bytes per read.
+     */
+    private static final class ChunkedChannel implements ReadableByteChannel {
+        private final ByteBuffer source;
+        private final int chunkSize;
+
+        ChunkedChannel(ByteBuffer source, int chunkSize) {
+            this.source = source;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public int read(ByteBuffer target) {
+            if (!source.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(chunkSize, Math.min(source.remaining(), target.remaining()));
+            ByteBuffer chunk = source.duplicate();
+            chunk.limit(chunk.position() + count);
+            target.put(chunk);
+            source.position(source.position() + count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
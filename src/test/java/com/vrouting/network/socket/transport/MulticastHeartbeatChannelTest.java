@@ -0,0 +1,96 @@
+package com.vrouting.network.socket.transport;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class MulticastHeartbeatChannelTest {
+    private final BlockingQueue<Message> receivedByA = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Message> receivedByB = new LinkedBlockingQueue<>();
+    private MulticastHeartbeatChannel channelA;
+    private MulticastHeartbeatChannel channelB;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        NetworkConfig config = new NetworkConfig.Builder()
+            .multicastHeartbeats(true)
+            .multicastGroup("239.255.42.99")
+            .multicastPort(freePort())
+            .multicastInterface("lo")
+            .build();
+        try {
+            channelA = new MulticastHeartbeatChannel(config, "node-a", receivedByA::add);
+            channelB = new MulticastHeartbeatChannel(config, "node-b", receivedByB::add);
+        } catch (IOException e) {
+            assumeTrue(false, "Loopback multicast unavailable: " + e.getMessage());
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (channelA != null) {
+            channelA.close();
+        }
+        if (channelB != null) {
+            channelB.close();
+        }
+    }
+
+    @Test
+    public void testHeartbeatReachesOtherNodesButNotSender() throws InterruptedException {
+        Message heartbeat = Message.createHeartbeat("node-a", MessageType.HEARTBEAT_DISCOVERY);
+        heartbeat.setDepth(2);
+
+        assertTrue(channelA.send(heartbeat));
+
+        Message received = receivedByB.poll(5, TimeUnit.SECONDS);
+        assertNotNull(received, "heartbeat should arrive over loopback multicast");
+        assertEquals(heartbeat.getId(), received.getId());
+        assertEquals(MessageType.HEARTBEAT_DISCOVERY, received.getType());
+        assertEquals(2, received.getDepth());
+        assertNull(receivedByA.poll(200, TimeUnit.MILLISECONDS), "own heartbeat must be filtered");
+    }
+
+    @Test
+    public void testNonHeartbeatFallsBackToUnicast() {
+        assertFalse(channelA.send(new Message("node-a", "node-b", MessageType.DATA)));
+        assertFalse(channelA.send(new Message("node-a", "node-b", MessageType.HEARTBEAT_RESPONSE)));
+    }
+
+    @Test
+    public void testOversizedHeartbeatFallsBackToUnicast() {
+        Message heartbeat = Message.createHeartbeat("node-a", MessageType.HEARTBEAT_STABLE);
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < MulticastHeartbeatChannel.MAX_DATAGRAM_SIZE; i++) {
+            padding.append('x');
+        }
+        heartbeat.setPayload("padding", padding.toString());
+        assertFalse(channelA.send(heartbeat));
+    }
+
+    @Test
+    public void testClosedChannelFallsBackToUnicast() {
+        channelA.close();
+        assertFalse(channelA.isOpen());
+        assertFalse(channelA.send(Message.createHeartbeat("node-a", MessageType.HEARTBEAT_UPDATE)));
+        channelA = null;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
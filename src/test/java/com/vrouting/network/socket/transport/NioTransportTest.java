@@ -0,0 +1,316 @@
+package com.vrouting.network.socket.transport;
+
+import com.vrouting.network.socket.config.NetworkConfig;
+import com.vrouting.network.socket.config.TransportMode;
+import com.vrouting.network.socket.message.Message;
+import com.vrouting.network.socket.message.MessageHandler;
+import com.vrouting.network.socket.message.MessageType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NioTransportTest {
+    private final BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+    private final BufferPool bufferPool = new BufferPool(256, 64, false);
+    private NioTransport transport;
+    private EventLoop loop;
+
+    @AfterEach
+    public void tearDown() {
+        if (transport != null) {
+            transport.shutdown();
+        }
+        if (loop != null) {
+            loop.shutdown();
+        }
+    }
+
+    @Test
+    public void testConnectDeliversFramesAndCloseCleansUpBothEnds() throws Exception {
+        startTransport();
+        PeerConnection connection = transport.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), transport.getPort()));
+        assertTrue(connection.isHealthy());
+
+        Message message = new Message("node-a", "node-b", MessageType.DATA);
+        message.setPayload("text", "hello");
+        connection.write(FrameCodec.encode(message, bufferPool));
+
+        Message delivered = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(delivered);
+        assertEquals(message.getId(), delivered.getId());
+        assertEquals("hello", delivered.getPayload("text", String.class));
+        awaitTrue(() -> transport.getConnectionCount() == 2, "outbound and accepted channel registered");
+
+        connection.close();
+        awaitTrue(() -> transport.getConnectionCount() == 0, "both channels deregistered");
+        assertFalse(connection.isHealthy());
+        // A failed write leaves the frame with the caller
+        PooledBuffer rejected = FrameCodec.encode(message, bufferPool);
+        assertThrows(IOException.class, () -> connection.write(rejected));
+        rejected.release();
+        awaitTrue(() -> bufferPool.getIdleCount() == bufferPool.getAllocatedCount(), "buffers returned to the pool");
+    }
+
+    @Test
+    public void testFramesSplitAcrossReads() throws Exception {
+        startTransport();
+        List<Message> sent = new ArrayList<>();
+        ByteBuffer stream = ByteBuffer.allocate(16 * 1024);
+        for (int i = 0; i < 4; i++) {
+            Message message = new Message("node-a", "node-b", MessageType.DATA);
+            // The last frame is larger than a pooled buffer
+            message.setPayload("text", repeat('x', i == 3 ? 2000 : 10 * i));
+            sent.add(message);
+            PooledBuffer frame = FrameCodec.encode(message, bufferPool);
+            stream.put(frame.buffer());
+            frame.release();
+        }
+        stream.flip();
+
+        try (SocketChannel client = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), transport.getPort()))) {
+            client.socket().setTcpNoDelay(true);
+            int[] chunks = {1, 2, 3, 5, 8, 13, 21, 34};
+            int next = 0;
+            while (stream.hasRemaining()) {
+                ByteBuffer chunk = stream.duplicate();
+                chunk.limit(Math.min(stream.limit(), stream.position() + chunks[next++ % chunks.length]));
+                stream.position(chunk.limit());
+                while (chunk.hasRemaining()) {
+                    client.write(chunk);
+                }
+                Thread.sleep(1);
+            }
+
+            for (Message expected : sent) {
+                Message delivered = received.poll(5, TimeUnit.SECONDS);
+                assertNotNull(delivered, "frame " + sent.indexOf(expected));
+                assertEquals(expected.getId(), delivered.getId());
+                assertEquals(expected.getPayload("text", String.class), delivered.getPayload("text", String.class));
+            }
+        }
+        assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testWriteInterestFollowsBackpressure() throws Exception {
+        loop = new EventLoop("nio-test");
+        loop.start();
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            SocketChannel peer = SocketChannel.open();
+            peer.socket().setReceiveBufferSize(4096);
+            peer.connect(server.getLocalAddress());
+            SocketChannel local = server.accept();
+            local.socket().setSendBufferSize(4096);
+            NioConnection connection = new NioConnection(loop, local, null,
+                (InetSocketAddress) local.getRemoteAddress(), bufferPool);
+            onLoop(() -> {
+                connection.register(SelectionKey.OP_READ);
+                return null;
+            });
+
+            List<Message> sent = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                Message message = new Message("node-a", "node-b", MessageType.DATA);
+                message.setPayload("text", repeat((char) ('a' + i % 26), 32 * 1024));
+                sent.add(message);
+            }
+            onLoop(() -> {
+                for (Message message : sent) {
+                    connection.write(FrameCodec.encode(message, bufferPool));
+                }
+                return null;
+            });
+            // The peer is not reading, so the socket cannot take everything at once
+            Thread.sleep(100);
+            assertTrue(onLoop(connection::isWritePending), "OP_WRITE set while frames are queued");
+
+            FrameDecoder decoder = new FrameDecoder(bufferPool);
+            try {
+                for (Message expected : sent) {
+                    assertEquals(expected.getId(), decoder.readFrame(peer).getId());
+                }
+            } finally {
+                decoder.release();
+            }
+            awaitTrue(() -> !onLoopUnchecked(connection::isWritePending), "OP_WRITE cleared once drained");
+            assertTrue(onLoop(connection::isOpen));
+
+            peer.close();
+            awaitTrue(() -> !connection.isOpen(), "closed after peer disconnect");
+            assertEquals(0, loop.getChannelCount());
+            awaitTrue(() -> bufferPool.getIdleCount() == bufferPool.getAllocatedCount(), "buffers returned to the pool");
+        }
+    }
+
+    @Test
+    public void testPeerDisconnectClosesAcceptedChannel() throws Exception {
+        startTransport();
+        Socket client = new Socket(InetAddress.getLoopbackAddress(), transport.getPort());
+        awaitTrue(() -> transport.getConnectionCount() == 1, "accepted channel registered");
+
+        client.close();
+        awaitTrue(() -> transport.getConnectionCount() == 0, "accepted channel deregistered");
+        awaitTrue(() -> bufferPool.getIdleCount() == bufferPool.getAllocatedCount(), "decoder buffer returned to the pool");
+    }
+
+    @Test
+    public void testPeerDisconnectMarksOutboundConnectionUnhealthy() throws Exception {
+        startTransport();
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            PeerConnection connection = transport.connect((InetSocketAddress) server.getLocalSocketAddress());
+            server.accept().close();
+
+            awaitTrue(() -> !connection.isHealthy(), "outbound connection closed");
+            awaitTrue(() -> transport.getConnectionCount() == 0, "outbound channel deregistered");
+            PooledBuffer rejected = bufferPool.acquire();
+            assertThrows(IOException.class, () -> connection.write(rejected));
+            rejected.release();
+        }
+    }
+
+    @Test
+    public void testWriteRacingCloseFailsAndLeavesFramesWithCaller() throws Exception {
+        loop = new EventLoop("nio-test");
+        loop.start();
+        try (SocketChannel channel = SocketChannel.open()) {
+            NioConnection connection = new NioConnection(loop, channel, null,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 1), bufferPool);
+            ChannelPeerConnection peer = new ChannelPeerConnection(loop, connection, 5000);
+
+            // The loop closes the channel after the write passed its open check
+            CountDownLatch closing = new CountDownLatch(1);
+            loop.execute(() -> {
+                try {
+                    closing.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                connection.close();
+            });
+            new Thread(() -> {
+                sleepQuietly(100);
+                closing.countDown();
+            }).start();
+            PooledBuffer frame = bufferPool.acquire();
+            assertThrows(IOException.class, () -> peer.write(frame));
+            frame.release();
+        }
+        assertEquals(bufferPool.getAllocatedCount(), bufferPool.getIdleCount());
+    }
+
+    @Test
+    public void testWriteTimesOutWhenLoopNeverTakesFrames() throws Exception {
+        loop = new EventLoop("nio-test");
+        try (SocketChannel channel = SocketChannel.open()) {
+            NioConnection connection = new NioConnection(loop, channel, null,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 1), bufferPool);
+            ChannelPeerConnection peer = new ChannelPeerConnection(loop, connection, 50);
+
+            PooledBuffer frame = bufferPool.acquire();
+            assertThrows(IOException.class, () -> peer.write(frame));
+            frame.release();
+
+            // The late handoff must not touch the frame the writer took back
+            loop.start();
+            assertTrue(onLoop(() -> !connection.isWritePending()));
+            onLoop(() -> {
+                connection.close();
+                return null;
+            });
+        }
+        assertEquals(bufferPool.getAllocatedCount(), bufferPool.getIdleCount());
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void startTransport() throws IOException {
+        NetworkConfig config = new NetworkConfig.Builder()
+            .port(0)
+            .transportMode(TransportMode.NIO)
+            .ioThreads(1)
+            .build();
+        transport = new NioTransport(config, new QueueingHandler(), bufferPool);
+        transport.start();
+    }
+
+    private <T> T onLoop(Callable<T> task) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        loop.execute(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result.get(5, TimeUnit.SECONDS);
+    }
+
+    private <T> T onLoopUnchecked(Callable<T> task) {
+        try {
+            return onLoop(task);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String description) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting: " + description);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    private final class QueueingHandler implements MessageHandler {
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public Message handleMessage(Message message) {
+            received.add(message);
+            return message;
+        }
+    }
+}